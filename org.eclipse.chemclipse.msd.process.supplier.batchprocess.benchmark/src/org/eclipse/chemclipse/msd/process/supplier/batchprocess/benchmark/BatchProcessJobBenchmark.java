@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Lablicate GmbH.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * Lablicate GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.chemclipse.msd.process.supplier.batchprocess.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.io.BatchProcessJobFormat;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.io.IBatchProcessJobReader;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.io.IBatchProcessJobWriter;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IBatchProcessJob;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures reading and writing of job files with many input entries, in the XML, compressed XML and binary format.
+ * The entries/s are reported as secondary results, the allocation rate by the GC profiler.
+ * Large jobs take longer than an iteration, hence the iterations are long.
+ * 
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+@State(Scope.Benchmark)
+public class BatchProcessJobBenchmark {
+
+	@Param({"1000", "100000", "1000000"})
+	public int entries;
+	/*
+	 * The file extension selects the format and compression.
+	 */
+	@Param({".xml", ".xml.gz", ".bpj"})
+	public String extension;
+	//
+	private IBatchProcessJob batchProcessJob;
+	private File jobFile;
+	private File outputFile;
+	private IBatchProcessJobReader batchProcessJobReader;
+	private IBatchProcessJobWriter batchProcessJobWriter;
+	private IProgressMonitor monitor;
+
+	@Setup
+	public void setup() throws Exception {
+
+		batchProcessJob = SyntheticBatchProcessJob.create(entries);
+		monitor = new NullProgressMonitor();
+		jobFile = File.createTempFile("batchprocess-", extension);
+		outputFile = File.createTempFile("batchprocess-", extension);
+		batchProcessJobWriter = BatchProcessJobFormat.getWriter(jobFile);
+		batchProcessJobWriter.writeBatchProcessJob(jobFile, batchProcessJob, monitor);
+		batchProcessJobReader = BatchProcessJobFormat.getReader(jobFile);
+		/*
+		 * Don't measure a reader that loses entries.
+		 */
+		int readEntries = batchProcessJobReader.read(jobFile, monitor).getMassSpectrumInputEntries().size();
+		if(readEntries != entries) {
+			throw new IllegalStateException("The job file contains " + readEntries + " instead of " + entries + " entries.");
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+
+		delete(jobFile);
+		delete(outputFile);
+	}
+
+	@Benchmark
+	public IBatchProcessJob read(Throughput throughput) throws Exception {
+
+		IBatchProcessJob batchProcessJob = batchProcessJobReader.read(jobFile, monitor);
+		throughput.entries += entries;
+		throughput.bytes += jobFile.length();
+		return batchProcessJob;
+	}
+
+	@Benchmark
+	public File write(Throughput throughput) throws Exception {
+
+		batchProcessJobWriter.writeBatchProcessJob(outputFile, batchProcessJob, monitor);
+		throughput.entries += entries;
+		throughput.bytes += outputFile.length();
+		return outputFile;
+	}
+
+	private void delete(File file) throws IOException {
+
+		if(file != null && file.exists() && !file.delete()) {
+			throw new IOException("The file couldn't be deleted: " + file);
+		}
+	}
+
+	/**
+	 * The read or written input entries and bytes, reported per second.
+	 */
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	@State(Scope.Thread)
+	public static class Throughput {
+
+		public long entries;
+		public long bytes;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+
+			entries = 0;
+			bytes = 0;
+		}
+	}
+}
@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Lablicate GmbH.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * Lablicate GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.chemclipse.msd.process.supplier.batchprocess.benchmark;
+
+import java.io.File;
+
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.BatchProcessJob;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IBatchProcessJob;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.MassSpectrumInputEntry;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.MassSpectrumOutputEntry;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.MassSpectrumProcessEntry;
+
+/**
+ * Creates jobs with a configurable number of input entries, as generated by the acquisition software.
+ * 
+ */
+public class SyntheticBatchProcessJob {
+
+	private static final String INPUT_FOLDER = File.separator + "data" + File.separator + "acquisition" + File.separator;
+	private static final String OUTPUT_FOLDER = File.separator + "data" + File.separator + "processed";
+	private static final String INPUT_EXTENSION = ".mzXML";
+	private static final int FILES_PER_FOLDER = 1000;
+	private static final int PROCESS_ENTRIES = 3;
+
+	private SyntheticBatchProcessJob() {
+	}
+
+	/**
+	 * Returns a job with the given number of input entries, a few process entries and one output entry.
+	 * 
+	 * @param numberOfInputEntries
+	 * @return {@link IBatchProcessJob}
+	 */
+	public static IBatchProcessJob create(int numberOfInputEntries) {
+
+		IBatchProcessJob batchProcessJob = new BatchProcessJob();
+		for(int index = 0; index < numberOfInputEntries; index++) {
+			String inputFile = INPUT_FOLDER + "run-" + (index / FILES_PER_FOLDER) + File.separator + "sample-" + index + INPUT_EXTENSION;
+			batchProcessJob.getMassSpectrumInputEntries().add(new MassSpectrumInputEntry(inputFile));
+		}
+		for(String processorId : SyntheticProcessTypeSupplier.getProcessorChain(PROCESS_ENTRIES)) {
+			batchProcessJob.getMassSpectrumProcessEntries().add(new MassSpectrumProcessEntry(SyntheticProcessTypeSupplier.CATEGORY, processorId));
+		}
+		batchProcessJob.getMassSpectrumOutputEntries().add(new MassSpectrumOutputEntry(OUTPUT_FOLDER, SyntheticStreamConverter.CONVERTER_ID));
+		return batchProcessJob;
+	}
+}
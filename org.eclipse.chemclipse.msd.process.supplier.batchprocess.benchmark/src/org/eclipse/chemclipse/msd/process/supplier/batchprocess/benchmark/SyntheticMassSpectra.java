@@ -0,0 +1,79 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Lablicate GmbH.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * Lablicate GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.chemclipse.msd.process.supplier.batchprocess.benchmark;
+
+import java.util.Random;
+
+import org.eclipse.chemclipse.model.exceptions.AbundanceLimitExceededException;
+import org.eclipse.chemclipse.msd.model.core.IMassSpectra;
+import org.eclipse.chemclipse.msd.model.core.IScanMSD;
+import org.eclipse.chemclipse.msd.model.exceptions.IonLimitExceededException;
+import org.eclipse.chemclipse.msd.model.implementation.Ion;
+import org.eclipse.chemclipse.msd.model.implementation.MassSpectra;
+import org.eclipse.chemclipse.msd.model.implementation.ScanMSD;
+
+/**
+ * Creates reproducible mass spectra of a configurable size.
+ * 
+ */
+public class SyntheticMassSpectra {
+
+	private static final double MIN_MZ = 35.0d;
+	private static final double MAX_MZ = 600.0d;
+	private static final float MAX_ABUNDANCE = 100000.0f;
+	private static final int SCAN_INTERVAL = 500; // milliseconds
+
+	private SyntheticMassSpectra() {
+	}
+
+	/**
+	 * Returns mass spectra with the given number of scans and ions per scan.
+	 * 
+	 * @param numberOfScans
+	 * @param numberOfIons
+	 * @param seed
+	 * @return {@link IMassSpectra}
+	 */
+	public static IMassSpectra create(int numberOfScans, int numberOfIons, long seed) {
+
+		Random random = new Random(seed);
+		MassSpectra massSpectra = new MassSpectra();
+		massSpectra.setName("synthetic-" + seed);
+		for(int scan = 0; scan < numberOfScans; scan++) {
+			massSpectra.addMassSpectrum(createScan(scan, numberOfIons, random));
+		}
+		return massSpectra;
+	}
+
+	/**
+	 * Returns a scan with the given number of ions.
+	 * 
+	 * @param scan
+	 * @param numberOfIons
+	 * @param random
+	 * @return {@link IScanMSD}
+	 */
+	public static IScanMSD createScan(int scan, int numberOfIons, Random random) {
+
+		ScanMSD massSpectrum = new ScanMSD();
+		massSpectrum.setRetentionTime(scan * SCAN_INTERVAL);
+		double step = (MAX_MZ - MIN_MZ) / Math.max(1, numberOfIons);
+		for(int index = 0; index < numberOfIons; index++) {
+			try {
+				massSpectrum.addIon(new Ion(MIN_MZ + index * step, 1.0f + random.nextFloat() * MAX_ABUNDANCE));
+			} catch(AbundanceLimitExceededException | IonLimitExceededException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+		return massSpectrum;
+	}
+}
@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Lablicate GmbH.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * Lablicate GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.chemclipse.msd.process.supplier.batchprocess.benchmark;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.chemclipse.msd.model.core.IIon;
+import org.eclipse.chemclipse.msd.model.core.IScanMSD;
+import org.eclipse.chemclipse.msd.process.support.IProcessTypeSupplier;
+import org.eclipse.chemclipse.processing.core.IProcessingInfo;
+import org.eclipse.chemclipse.processing.core.ProcessingInfo;
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * Cheap, thread safe processors that touch every ion, so that the benchmarks measure
+ * the batch process itself and not an expensive filter.
+ * 
+ */
+public class SyntheticProcessTypeSupplier implements IProcessTypeSupplier {
+
+	public static final String CATEGORY = "Synthetic";
+	/*
+	 * Scales the highest ion to 1000.
+	 */
+	public static final String NORMALIZE = "normalize";
+	/*
+	 * Sets ions below 1 % of the highest ion to zero.
+	 */
+	public static final String THRESHOLD = "threshold";
+	/*
+	 * Sums the abundances without modifying the scan.
+	 */
+	public static final String SUM = "sum";
+	private static final List<String> PROCESSOR_IDS = Arrays.asList(NORMALIZE, THRESHOLD, SUM);
+	private static final float NORMALIZATION_BASE = 1000.0f;
+	private static final float THRESHOLD_FACTOR = 0.01f;
+
+	/**
+	 * Returns the processor ids, cycled up to the given length.
+	 * 
+	 * @param length
+	 * @return String[]
+	 */
+	public static String[] getProcessorChain(int length) {
+
+		String[] processorIds = new String[length];
+		for(int index = 0; index < length; index++) {
+			processorIds[index] = PROCESSOR_IDS.get(index % PROCESSOR_IDS.size());
+		}
+		return processorIds;
+	}
+
+	@Override
+	public String getCategory() {
+
+		return CATEGORY;
+	}
+
+	@Override
+	public String getProcessorName(String processorId) throws Exception {
+
+		return processorId;
+	}
+
+	@Override
+	public List<String> getPluginIds() throws Exception {
+
+		return PROCESSOR_IDS;
+	}
+
+	@Override
+	public IProcessingInfo applyProcessor(IScanMSD massSpectrum, String processorId, IProgressMonitor monitor) {
+
+		IProcessingInfo processingInfo = new ProcessingInfo();
+		List<IIon> ions = massSpectrum.getIons();
+		if(NORMALIZE.equals(processorId)) {
+			float max = getMaxAbundance(ions);
+			if(max > 0) {
+				float factor = NORMALIZATION_BASE / max;
+				for(IIon ion : ions) {
+					ion.setAbundance(ion.getAbundance() * factor);
+				}
+			}
+		} else if(THRESHOLD.equals(processorId)) {
+			float threshold = getMaxAbundance(ions) * THRESHOLD_FACTOR;
+			for(IIon ion : ions) {
+				if(ion.getAbundance() < threshold) {
+					ion.setAbundance(0.0f);
+				}
+			}
+		} else if(SUM.equals(processorId)) {
+			double sum = 0.0d;
+			for(IIon ion : ions) {
+				sum += ion.getAbundance();
+			}
+			processingInfo.setProcessingResult(sum);
+		} else {
+			processingInfo.addErrorMessage(CATEGORY, "Unknown processor: " + processorId);
+		}
+		return processingInfo;
+	}
+
+	@Override
+	public boolean isThreadSafe(String processorId) {
+
+		return true;
+	}
+
+	@Override
+	public String getSettingsFingerprint(String processorId) {
+
+		/*
+		 * The processors have no settings apart from their constants.
+		 */
+		return processorId + '\0' + NORMALIZATION_BASE + '\0' + THRESHOLD_FACTOR;
+	}
+
+	private float getMaxAbundance(List<IIon> ions) {
+
+		float max = 0.0f;
+		for(IIon ion : ions) {
+			max = Math.max(max, ion.getAbundance());
+		}
+		return max;
+	}
+}
@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Lablicate GmbH.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * Lablicate GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.chemclipse.msd.process.supplier.batchprocess.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.eclipse.chemclipse.msd.model.core.IScanMSD;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.io.IMassSpectrumStreamConverter;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.io.IMassSpectrumStreamReader;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.io.IMassSpectrumStreamWriter;
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * Reads synthetic scans instead of a file and discards the written scans,
+ * hence the batch process can be benchmarked without any converter and without disk I/O.
+ * The input files don't need to exist, only their extension is checked.
+ * 
+ */
+public class SyntheticStreamConverter implements IMassSpectrumStreamConverter {
+
+	public static final String FILE_EXTENSION = ".synthetic";
+	public static final String CONVERTER_ID = "org.eclipse.chemclipse.msd.process.supplier.batchprocess.benchmark.synthetic";
+	//
+	private final int numberOfScans;
+	private final int numberOfIons;
+
+	public SyntheticStreamConverter(int numberOfScans, int numberOfIons) {
+		this.numberOfScans = numberOfScans;
+		this.numberOfIons = numberOfIons;
+	}
+
+	@Override
+	public boolean canRead(File file) {
+
+		return file.getName().endsWith(FILE_EXTENSION);
+	}
+
+	@Override
+	public IMassSpectrumStreamReader openReader(File file, IProgressMonitor monitor) throws IOException {
+
+		String name = file.getName();
+		return new SyntheticReader(name.substring(0, name.length() - FILE_EXTENSION.length()));
+	}
+
+	@Override
+	public boolean canWrite(String converterId) {
+
+		return CONVERTER_ID.equals(converterId);
+	}
+
+	@Override
+	public IMassSpectrumStreamWriter openWriter(File file, String converterId, IProgressMonitor monitor) throws IOException {
+
+		return new DiscardingWriter();
+	}
+
+	private class SyntheticReader implements IMassSpectrumStreamReader {
+
+		private final String name;
+		private final Random random;
+		private int scan = 0;
+
+		private SyntheticReader(String name) {
+			this.name = name;
+			this.random = new Random(name.hashCode());
+		}
+
+		@Override
+		public String getName() {
+
+			return name;
+		}
+
+		@Override
+		public IScanMSD next() throws IOException {
+
+			if(scan >= numberOfScans) {
+				return null;
+			}
+			return SyntheticMassSpectra.createScan(scan++, numberOfIons, random);
+		}
+
+		@Override
+		public void close() throws IOException {
+
+		}
+	}
+
+	private static class DiscardingWriter implements IMassSpectrumStreamWriter {
+
+		@Override
+		public void write(IScanMSD massSpectrum) throws IOException {
+
+		}
+
+		@Override
+		public void close() throws IOException {
+
+		}
+	}
+}
@@ -0,0 +1,172 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Lablicate GmbH.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * Lablicate GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.chemclipse.msd.process.supplier.batchprocess.core;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.chemclipse.msd.model.core.IMassSpectra;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.benchmark.SyntheticMassSpectra;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.benchmark.SyntheticProcessTypeSupplier;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.benchmark.SyntheticStreamConverter;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.BatchProcessJob;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.ExecutionMode;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IBatchProcessJob;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IBatchProcessSettings;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IMassSpectrumOutputEntry;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.MassSpectrumInputEntry;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.MassSpectrumOutputEntry;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.MassSpectrumProcessEntry;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.ScanProcessingMode;
+import org.eclipse.chemclipse.msd.process.support.IProcessTypeSupplier;
+import org.eclipse.chemclipse.msd.process.support.ProcessTypeSupport;
+import org.eclipse.chemclipse.processing.core.IProcessingInfo;
+import org.eclipse.chemclipse.processing.core.ProcessingInfo;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Runs a whole job through the batch process. If streaming, the files are streamed from the
+ * synthetic converter. Otherwise they are loaded completely and written by the same methods
+ * as the converters of a real job, which create synthetic mass spectra and discard the outputs.
+ * The pipeline always loads the files completely. Hence the load and write costs are those of
+ * creating the scans, not of a real converter. The files/s and scans/s are reported as
+ * secondary results, the allocation rate by the GC profiler of the {@link org.eclipse.chemclipse.msd.process.supplier.batchprocess.benchmark.BenchmarkRunner}.
+ * 
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchProcessBenchmark {
+
+	@Param({"16"})
+	public int files;
+	@Param({"1000", "10000"})
+	public int scans;
+	@Param({"100"})
+	public int ions;
+	@Param({"3"})
+	public int processors;
+	@Param({"SEQUENTIAL", "PARALLEL", "PIPELINE"})
+	public ExecutionMode executionMode;
+	@Param({"SEQUENTIAL", "FUSED", "PARALLEL"})
+	public ScanProcessingMode scanProcessingMode;
+	@Param({"false", "true"})
+	public boolean streaming;
+	//
+	private BatchProcess batchProcess;
+	private IBatchProcessJob batchProcessJob;
+
+	@Setup
+	public void setup() {
+
+		batchProcess = new SyntheticBatchProcess(scans, ions);
+		if(streaming) {
+			batchProcess.getStreamConverterSupport().add(new SyntheticStreamConverter(scans, ions));
+		}
+		batchProcessJob = new BatchProcessJob();
+		IBatchProcessSettings batchProcessSettings = batchProcessJob.getBatchProcessSettings();
+		batchProcessSettings.setExecutionMode(executionMode);
+		batchProcessSettings.setScanProcessingMode(scanProcessingMode);
+		batchProcessSettings.setStreaming(streaming);
+		File directory = new File(System.getProperty("java.io.tmpdir"));
+		for(int index = 0; index < files; index++) {
+			batchProcessJob.getMassSpectrumInputEntries().add(new MassSpectrumInputEntry(new File(directory, "synthetic-" + index + SyntheticStreamConverter.FILE_EXTENSION).getAbsolutePath()));
+		}
+		for(String processorId : SyntheticProcessTypeSupplier.getProcessorChain(processors)) {
+			batchProcessJob.getMassSpectrumProcessEntries().add(new MassSpectrumProcessEntry(SyntheticProcessTypeSupplier.CATEGORY, processorId));
+		}
+		batchProcessJob.getMassSpectrumOutputEntries().add(new MassSpectrumOutputEntry(directory.getAbsolutePath(), SyntheticStreamConverter.CONVERTER_ID));
+		/*
+		 * Don't measure a job that fails.
+		 */
+		IProcessingInfo processingInfo = batchProcess.execute(batchProcessJob, new NullProgressMonitor());
+		if(processingInfo.hasErrorMessages()) {
+			throw new IllegalStateException("The benchmark job has failed.");
+		}
+	}
+
+	@Benchmark
+	public IProcessingInfo execute(Throughput throughput) {
+
+		IProcessingInfo processingInfo = batchProcess.execute(batchProcessJob, new NullProgressMonitor());
+		throughput.files += files;
+		throughput.scans += (long)files * scans;
+		return processingInfo;
+	}
+
+	/**
+	 * Loads synthetic mass spectra instead of the files and discards the outputs.
+	 */
+	private static class SyntheticBatchProcess extends BatchProcess {
+
+		private final int numberOfScans;
+		private final int numberOfIons;
+
+		private SyntheticBatchProcess(int numberOfScans, int numberOfIons) {
+			super(new ProcessTypeSupport(Collections.<IProcessTypeSupplier> singletonList(new SyntheticProcessTypeSupplier())));
+			this.numberOfScans = numberOfScans;
+			this.numberOfIons = numberOfIons;
+		}
+
+		@Override
+		IMassSpectra loadMassSpectra(File massSpectrumInputFile, IProcessingInfo batchProcessingInfo, IProgressMonitor monitor) {
+
+			String name = massSpectrumInputFile.getName();
+			name = name.substring(0, name.length() - SyntheticStreamConverter.FILE_EXTENSION.length());
+			IMassSpectra massSpectra = SyntheticMassSpectra.create(numberOfScans, numberOfIons, name.hashCode());
+			massSpectra.setName(name);
+			return massSpectra;
+		}
+
+		@Override
+		IProcessingInfo writeMassSpectrumOutputEntry(IMassSpectra massSpectra, IMassSpectrumOutputEntry massSpectrumOutput, IProgressMonitor monitor) {
+
+			return new ProcessingInfo();
+		}
+	}
+
+	/**
+	 * The processed files and scans, reported per second.
+	 */
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	@State(Scope.Thread)
+	public static class Throughput {
+
+		public long files;
+		public long scans;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+
+			files = 0;
+			scans = 0;
+		}
+	}
+}
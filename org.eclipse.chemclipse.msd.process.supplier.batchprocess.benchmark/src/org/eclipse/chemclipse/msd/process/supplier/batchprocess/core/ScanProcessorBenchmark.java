@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Lablicate GmbH.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * Lablicate GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.chemclipse.msd.process.supplier.batchprocess.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.chemclipse.msd.model.core.IMassSpectra;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.benchmark.SyntheticMassSpectra;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.benchmark.SyntheticProcessTypeSupplier;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IMassSpectrumProcessEntry;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.MassSpectrumProcessEntry;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.ScanProcessingMode;
+import org.eclipse.chemclipse.msd.process.support.IProcessTypeSupplier;
+import org.eclipse.chemclipse.msd.process.support.ProcessTypeSupport;
+import org.eclipse.chemclipse.processing.core.IProcessingInfo;
+import org.eclipse.chemclipse.processing.core.ProcessingInfo;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the scan processing modes on mass spectra that are already in memory.
+ * SEQUENTIAL applies one process entry to all scans before the next entry (entry-major),
+ * FUSED applies the whole chain to one scan before the next scan (scan-major).
+ * With a single process entry both orders are the same, hence the chain of four entries
+ * is the case of interest. The difference is expected to grow with the size of the scans.
+ * The processors modify the ions, hence the mass spectra are created again before each invocation.
+ * 
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScanProcessorBenchmark {
+
+	@Param({"1000", "20000"})
+	public int scans;
+	@Param({"20", "200"})
+	public int ions;
+	@Param({"1", "4"})
+	public int processors;
+	@Param({"SEQUENTIAL", "FUSED", "PARALLEL"})
+	public ScanProcessingMode scanProcessingMode;
+	//
+	private ScanProcessor scanProcessor;
+	private IMassSpectra massSpectra;
+	private List<IMassSpectrumProcessEntry> processEntries;
+	private BatchProcessMetrics metrics;
+	private IProgressMonitor monitor;
+
+	@Setup
+	public void setup() {
+
+		scanProcessor = new ScanProcessor(new ProcessTypeSupport(Collections.<IProcessTypeSupplier> singletonList(new SyntheticProcessTypeSupplier())));
+		processEntries = new ArrayList<IMassSpectrumProcessEntry>();
+		for(String processorId : SyntheticProcessTypeSupplier.getProcessorChain(processors)) {
+			processEntries.add(new MassSpectrumProcessEntry(SyntheticProcessTypeSupplier.CATEGORY, processorId));
+		}
+		metrics = new BatchProcessMetrics();
+		monitor = new NullProgressMonitor();
+	}
+
+	@Setup(Level.Invocation)
+	public void createMassSpectra() {
+
+		massSpectra = SyntheticMassSpectra.create(scans, ions, 1L);
+	}
+
+	@Benchmark
+	public IProcessingInfo process(Throughput throughput) {
+
+		IProcessingInfo processingInfo = new ProcessingInfo();
+		switch(scanProcessingMode) {
+			case FUSED:
+				scanProcessor.processFused(massSpectra, processEntries, metrics, processingInfo, monitor);
+				break;
+			case PARALLEL:
+				scanProcessor.processParallel(massSpectra, processEntries, metrics, processingInfo, monitor);
+				break;
+			default:
+				scanProcessor.processSequential(massSpectra, processEntries, metrics, processingInfo, monitor);
+				break;
+		}
+		throughput.scans += scans;
+		return processingInfo;
+	}
+
+	/**
+	 * The processed scans, reported per second.
+	 */
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	@State(Scope.Thread)
+	public static class Throughput {
+
+		public long scans;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+
+			scans = 0;
+		}
+	}
+}
@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Lablicate GmbH.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * Lablicate GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.chemclipse.msd.process.supplier.batchprocess.core;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import junit.framework.TestCase;
+
+/**
+ * Skips the inputs that have been completed and haven't been changed since.
+ * 
+ */
+public class BatchProcessJournal_1_Test extends TestCase {
+
+	private File directory;
+	private File journalFile;
+	private File input;
+
+	@Override
+	protected void setUp() throws Exception {
+
+		super.setUp();
+		directory = Files.createTempDirectory("BatchProcessJournal").toFile();
+		journalFile = new File(directory, "job.journal");
+		input = new File(directory, "sample.msd");
+		Files.write(input.toPath(), "input".getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+
+		try (Stream<Path> paths = Files.walk(directory.toPath())) {
+			paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+		}
+		super.tearDown();
+	}
+
+	public void testKeptJournalSkipsCompletedInput() throws Exception {
+
+		complete();
+		BatchProcessJournal journal = BatchProcessJournal.open(journalFile, true);
+		try {
+			assertTrue(journal.isCompleted(input));
+		} finally {
+			journal.close();
+		}
+	}
+
+	public void testDiscardedJournalDoesntSkipCompletedInput() throws Exception {
+
+		complete();
+		BatchProcessJournal journal = BatchProcessJournal.open(journalFile, false);
+		try {
+			assertFalse(journal.isCompleted(input));
+		} finally {
+			journal.close();
+		}
+	}
+
+	public void testReplacedInputIsProcessedAgain() throws Exception {
+
+		complete();
+		/*
+		 * The file is dropped again under the same name.
+		 */
+		Files.write(input.toPath(), "another input".getBytes(StandardCharsets.UTF_8));
+		BatchProcessJournal journal = BatchProcessJournal.open(journalFile, true);
+		try {
+			assertFalse(journal.isCompleted(input));
+			journal.append(input, Collections.<File> emptyList());
+			assertTrue(journal.isCompleted(input));
+		} finally {
+			journal.close();
+		}
+	}
+
+	private void complete() throws Exception {
+
+		BatchProcessJournal journal = BatchProcessJournal.open(journalFile, false);
+		try {
+			journal.append(input, Collections.singletonList(new File(directory, "sample.csv")));
+			assertTrue(journal.isCompleted(input));
+		} finally {
+			journal.close();
+		}
+	}
+}
@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Lablicate GmbH.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * Lablicate GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.chemclipse.msd.process.supplier.batchprocess.core;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.eclipse.chemclipse.msd.model.core.IMassSpectra;
+import org.eclipse.chemclipse.msd.model.implementation.MassSpectra;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.BatchProcessJob;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.ExecutionMode;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IBatchProcessJob;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IBatchProcessSettings;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.MassSpectrumInputEntry;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.SchedulingPolicy;
+import org.eclipse.chemclipse.msd.process.support.IProcessTypeSupplier;
+import org.eclipse.chemclipse.msd.process.support.ProcessTypeSupport;
+import org.eclipse.chemclipse.processing.core.IProcessingInfo;
+import org.eclipse.chemclipse.processing.core.IProcessingMessage;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+import junit.framework.TestCase;
+
+/**
+ * Runs a job through the pipeline with the largest files first.
+ * 
+ */
+public class BatchProcessPipeline_1_Test extends TestCase {
+
+	private static final String PROCESSED = "The file has been processed successfully: ";
+	private static final int NUMBER_OF_INPUTS = 20;
+	//
+	private File directory;
+
+	@Override
+	protected void setUp() throws Exception {
+
+		super.setUp();
+		directory = Files.createTempDirectory("BatchProcessPipeline").toFile();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+
+		try (Stream<Path> paths = Files.walk(directory.toPath())) {
+			paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+		}
+		super.tearDown();
+	}
+
+	public void testMessagesAreInInputOrder() throws Exception {
+
+		/*
+		 * The later inputs are larger, hence they are loaded first.
+		 */
+		List<String> inputs = new ArrayList<String>();
+		IBatchProcessJob batchProcessJob = new BatchProcessJob();
+		for(int i = 0; i < NUMBER_OF_INPUTS; i++) {
+			File input = new File(directory, "input-" + i + ".msd");
+			Files.write(input.toPath(), new byte[(i + 1) * 1000]);
+			inputs.add(input.getPath());
+			batchProcessJob.getMassSpectrumInputEntries().add(new MassSpectrumInputEntry(input.getPath()));
+		}
+		IBatchProcessSettings batchProcessSettings = batchProcessJob.getBatchProcessSettings();
+		batchProcessSettings.setExecutionMode(ExecutionMode.PIPELINE);
+		batchProcessSettings.setSchedulingPolicy(SchedulingPolicy.LARGEST_FIRST);
+		batchProcessSettings.setNumberOfThreads(4);
+		batchProcessSettings.setQueueCapacity(2);
+		List<String> loaded = Collections.synchronizedList(new ArrayList<String>());
+		BatchProcess batchProcess = new BatchProcess(new ProcessTypeSupport(Collections.<IProcessTypeSupplier> emptyList())) {
+
+			@Override
+			IMassSpectra loadMassSpectra(File massSpectrumInputFile, IProcessingInfo batchProcessingInfo, IProgressMonitor monitor) {
+
+				loaded.add(massSpectrumInputFile.getPath());
+				MassSpectra massSpectra = new MassSpectra();
+				massSpectra.setName(massSpectrumInputFile.getName());
+				return massSpectra;
+			}
+		};
+		IProcessingInfo processingInfo = batchProcess.execute(batchProcessJob, new NullProgressMonitor());
+		assertFalse(processingInfo.hasErrorMessages());
+		List<String> reversed = new ArrayList<String>(inputs);
+		Collections.reverse(reversed);
+		assertEquals(reversed, loaded);
+		List<String> processed = new ArrayList<String>();
+		for(IProcessingMessage processingMessage : processingInfo.getMessages()) {
+			String message = processingMessage.getMessage();
+			if(message.startsWith(PROCESSED)) {
+				processed.add(message.substring(PROCESSED.length()));
+			}
+		}
+		assertEquals(inputs, processed);
+	}
+}
@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Lablicate GmbH.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * Lablicate GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.chemclipse.msd.process.supplier.batchprocess.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * A process that shares the work queue with the test, see {@link LeaseWorkQueue_1_Test}.
+ * 
+ * process [queue] [lease timeout] [fingerprint] [log file] [inputs...]
+ * claims the inputs, records each processed input in the log file and takes over expired foreign leases.
+ * 
+ * halt [queue] [lease timeout] [fingerprint] [ready file] [input]
+ * claims the input, creates the ready file and dies without releasing the lease.
+ * 
+ * hold [queue] [lease timeout] [fingerprint] [ready file] [input] [hold time]
+ * claims the input, creates the ready file and completes the input after the hold time.
+ * 
+ */
+public class LeaseWorkQueueProcess {
+
+	static final String PROCESS = "process";
+	static final String HALT = "halt";
+	static final String HOLD = "hold";
+	/*
+	 * The time it takes to process an input.
+	 */
+	private static final long PROCESSING_TIME = 5;
+	private static final long POLL_INTERVAL = 100;
+
+	public static void main(String[] args) throws Exception {
+
+		String mode = args[0];
+		File directory = new File(args[1]);
+		long leaseTimeout = Long.parseLong(args[2]);
+		String jobFingerprint = args[3];
+		File file = new File(args[4]);
+		LeaseWorkQueue workQueue = new LeaseWorkQueue(directory, leaseTimeout, jobFingerprint);
+		switch(mode) {
+			case PROCESS:
+				for(int i = 5; i < args.length; i++) {
+					File input = new File(args[i]);
+					if(workQueue.claim(input) == LeaseWorkQueue.Claim.CLAIMED) {
+						process(workQueue, input, file);
+					}
+				}
+				List<File> leasedInputs = workQueue.getForeignLeases();
+				while(!leasedInputs.isEmpty()) {
+					for(File input : leasedInputs) {
+						if(workQueue.isExpired(input) && workQueue.claim(input) == LeaseWorkQueue.Claim.CLAIMED) {
+							process(workQueue, input, file);
+						}
+					}
+					Thread.sleep(POLL_INTERVAL);
+					leasedInputs = workQueue.getForeignLeases();
+				}
+				workQueue.close();
+				break;
+			case HALT:
+				if(workQueue.claim(new File(args[5])) == LeaseWorkQueue.Claim.CLAIMED) {
+					Files.createFile(file.toPath());
+				}
+				/*
+				 * Die like a killed process, the lease is neither renewed nor released.
+				 */
+				Runtime.getRuntime().halt(1);
+				break;
+			case HOLD:
+				File input = new File(args[5]);
+				if(workQueue.claim(input) == LeaseWorkQueue.Claim.CLAIMED) {
+					Files.createFile(file.toPath());
+					Thread.sleep(Long.parseLong(args[6]));
+					workQueue.complete(input);
+				}
+				workQueue.close();
+				break;
+			default:
+				throw new IllegalArgumentException(mode);
+		}
+		System.exit(0);
+	}
+
+	private static void process(LeaseWorkQueue workQueue, File input, File logFile) throws IOException, InterruptedException {
+
+		Thread.sleep(PROCESSING_TIME);
+		Files.write(logFile.toPath(), (input.getAbsolutePath() + "\n").getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+		workQueue.complete(input);
+	}
+}
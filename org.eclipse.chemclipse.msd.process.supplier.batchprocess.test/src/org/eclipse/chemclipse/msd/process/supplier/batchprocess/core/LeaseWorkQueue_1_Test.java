@@ -0,0 +1,196 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Lablicate GmbH.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * Lablicate GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.chemclipse.msd.process.supplier.batchprocess.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import junit.framework.TestCase;
+
+/**
+ * Shares a work queue between several JVMs, see {@link LeaseWorkQueueProcess}.
+ * 
+ */
+public class LeaseWorkQueue_1_Test extends TestCase {
+
+	private static final String JOB_FINGERPRINT = "job";
+	private static final long LEASE_TIMEOUT = 1000;
+	private static final long PROCESS_TIMEOUT = 60000;
+	private static final int NUMBER_OF_PROCESSES = 3;
+	private static final int NUMBER_OF_INPUTS = 300;
+	//
+	private File directory;
+	private File queue;
+
+	@Override
+	protected void setUp() throws Exception {
+
+		super.setUp();
+		directory = Files.createTempDirectory("LeaseWorkQueue").toFile();
+		queue = new File(directory, "queue");
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+
+		try (Stream<Path> paths = Files.walk(directory.toPath())) {
+			paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+		}
+		super.tearDown();
+	}
+
+	public void testEachInputIsCompletedOnce() throws Exception {
+
+		List<String> inputs = new ArrayList<String>();
+		for(int i = 0; i < NUMBER_OF_INPUTS; i++) {
+			inputs.add(new File(directory, "input-" + i + ".msd").getAbsolutePath());
+		}
+		List<Process> processes = new ArrayList<Process>();
+		List<File> logFiles = new ArrayList<File>();
+		for(int i = 0; i < NUMBER_OF_PROCESSES; i++) {
+			File logFile = new File(directory, "process-" + i + ".log");
+			logFiles.add(logFile);
+			/*
+			 * Each process starts at a different input, so that they contend for the same inputs.
+			 */
+			List<String> args = new ArrayList<String>();
+			args.add(LeaseWorkQueueProcess.PROCESS);
+			args.add(queue.getPath());
+			args.add(Long.toString(LEASE_TIMEOUT));
+			args.add(JOB_FINGERPRINT);
+			args.add(logFile.getPath());
+			int offset = i * NUMBER_OF_INPUTS / NUMBER_OF_PROCESSES;
+			for(int j = 0; j < NUMBER_OF_INPUTS; j++) {
+				args.add(inputs.get((offset + j) % NUMBER_OF_INPUTS));
+			}
+			processes.add(start(args));
+		}
+		for(Process process : processes) {
+			assertEquals(0, waitFor(process));
+		}
+		Map<String, Integer> counts = new HashMap<String, Integer>();
+		for(File logFile : logFiles) {
+			if(logFile.exists()) {
+				for(String line : Files.readAllLines(logFile.toPath(), StandardCharsets.UTF_8)) {
+					counts.merge(line, 1, Integer::sum);
+				}
+			}
+		}
+		assertEquals(NUMBER_OF_INPUTS, counts.size());
+		for(String input : inputs) {
+			assertEquals(input, Integer.valueOf(1), counts.get(input));
+		}
+		try (LeaseWorkQueue workQueue = new LeaseWorkQueue(queue, LEASE_TIMEOUT, JOB_FINGERPRINT)) {
+			for(String input : inputs) {
+				assertEquals(LeaseWorkQueue.Claim.DONE, workQueue.claim(new File(input)));
+			}
+		}
+		/*
+		 * The done markers of another job don't apply.
+		 */
+		try (LeaseWorkQueue workQueue = new LeaseWorkQueue(queue, LEASE_TIMEOUT, "other job")) {
+			assertEquals(LeaseWorkQueue.Claim.CLAIMED, workQueue.claim(new File(inputs.get(0))));
+		}
+	}
+
+	public void testExpiredLeaseIsTakenOver() throws Exception {
+
+		String input = new File(directory, "input.msd").getAbsolutePath();
+		File readyFile = new File(directory, "ready");
+		Process halted = start(LeaseWorkQueueProcess.HALT, queue.getPath(), Long.toString(LEASE_TIMEOUT), JOB_FINGERPRINT, readyFile.getPath(), input);
+		assertEquals(1, waitFor(halted));
+		assertTrue(readyFile.exists());
+		try (LeaseWorkQueue workQueue = new LeaseWorkQueue(queue, LEASE_TIMEOUT, JOB_FINGERPRINT)) {
+			assertEquals(LeaseWorkQueue.Claim.LEASED, workQueue.claim(new File(input)));
+		}
+		/*
+		 * The lease of the dead process expires and is claimed again.
+		 */
+		File logFile = new File(directory, "process.log");
+		Process process = start(LeaseWorkQueueProcess.PROCESS, queue.getPath(), Long.toString(LEASE_TIMEOUT), JOB_FINGERPRINT, logFile.getPath(), input);
+		assertEquals(0, waitFor(process));
+		List<String> lines = Files.readAllLines(logFile.toPath(), StandardCharsets.UTF_8);
+		assertEquals(1, lines.size());
+		assertEquals(input, lines.get(0));
+		try (LeaseWorkQueue workQueue = new LeaseWorkQueue(queue, LEASE_TIMEOUT, JOB_FINGERPRINT)) {
+			assertEquals(LeaseWorkQueue.Claim.DONE, workQueue.claim(new File(input)));
+		}
+	}
+
+	public void testRenewedLeaseIsNotTaken() throws Exception {
+
+		String input = new File(directory, "input.msd").getAbsolutePath();
+		File readyFile = new File(directory, "ready");
+		long holdTime = 4 * LEASE_TIMEOUT;
+		Process holding = start(LeaseWorkQueueProcess.HOLD, queue.getPath(), Long.toString(LEASE_TIMEOUT), JOB_FINGERPRINT, readyFile.getPath(), input, Long.toString(holdTime));
+		long deadline = System.currentTimeMillis() + PROCESS_TIMEOUT;
+		while(!readyFile.exists()) {
+			assertTrue("The input hasn't been claimed in time.", System.currentTimeMillis() < deadline);
+			Thread.sleep(10);
+		}
+		/*
+		 * The lease outlives several timeouts, because it is renewed.
+		 */
+		long start = System.currentTimeMillis();
+		try (LeaseWorkQueue workQueue = new LeaseWorkQueue(queue, LEASE_TIMEOUT, JOB_FINGERPRINT)) {
+			while(System.currentTimeMillis() - start < holdTime - LEASE_TIMEOUT) {
+				assertFalse(workQueue.isExpired(new File(input)));
+				assertEquals(LeaseWorkQueue.Claim.LEASED, workQueue.claim(new File(input)));
+				Thread.sleep(50);
+			}
+			assertEquals(0, waitFor(holding));
+			assertEquals(LeaseWorkQueue.Claim.DONE, workQueue.claim(new File(input)));
+		}
+	}
+
+	private Process start(String... args) throws IOException {
+
+		List<String> arguments = new ArrayList<String>();
+		for(String arg : args) {
+			arguments.add(arg);
+		}
+		return start(arguments);
+	}
+
+	private Process start(List<String> args) throws IOException {
+
+		List<String> command = new ArrayList<String>();
+		command.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getPath());
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(LeaseWorkQueueProcess.class.getName());
+		command.addAll(args);
+		ProcessBuilder processBuilder = new ProcessBuilder(command);
+		processBuilder.redirectErrorStream(true);
+		processBuilder.redirectOutput(new File(directory, "jvm-" + System.nanoTime() + ".out"));
+		return processBuilder.start();
+	}
+
+	private int waitFor(Process process) throws InterruptedException {
+
+		if(!process.waitFor(PROCESS_TIMEOUT, TimeUnit.MILLISECONDS)) {
+			process.destroyForcibly();
+			fail("The process hasn't finished in time.");
+		}
+		return process.exitValue();
+	}
+}
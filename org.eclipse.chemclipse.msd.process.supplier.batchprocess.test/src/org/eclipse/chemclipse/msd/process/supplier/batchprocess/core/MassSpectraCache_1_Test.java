@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Lablicate GmbH.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * Lablicate GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.chemclipse.msd.process.supplier.batchprocess.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import junit.framework.TestCase;
+
+/**
+ * Restores the outputs of a processed input from the cache.
+ * 
+ */
+public class MassSpectraCache_1_Test extends TestCase {
+
+	private static final String JOB_FINGERPRINT = "Synthetic\0normalize\0fingerprint\nconverter\n";
+	private static final String NAME = "sample.msd";
+	private static final long CACHE_SIZE = 1024 * 1024 * 16;
+	/*
+	 * Larger than the buffer of the cache.
+	 */
+	private static final int OUTPUT_SIZE = 200000;
+	//
+	private File directory;
+	private File cacheDirectory;
+	private File input;
+
+	@Override
+	protected void setUp() throws Exception {
+
+		super.setUp();
+		directory = Files.createTempDirectory("MassSpectraCache").toFile();
+		cacheDirectory = new File(directory, "cache");
+		input = new File(directory, NAME);
+		Files.write(input.toPath(), "input".getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+
+		try (Stream<Path> paths = Files.walk(directory.toPath())) {
+			paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+		}
+		super.tearDown();
+	}
+
+	public void testHitWritesTheSameOutputsAsMiss() throws Exception {
+
+		MassSpectraCache cache = new MassSpectraCache(cacheDirectory, CACHE_SIZE, JOB_FINGERPRINT);
+		String key = cache.getKey(input);
+		assertNull(cache.restore(key, name -> getOutputFiles("miss", name)));
+		/*
+		 * The outputs of the processing, one of them empty.
+		 */
+		List<File> missOutputs = getOutputFiles("miss", NAME);
+		writeOutput(missOutputs.get(0), OUTPUT_SIZE, 1);
+		writeOutput(missOutputs.get(1), 0, 2);
+		cache.put(key, NAME, missOutputs);
+		/*
+		 * Another run of the job, reopening the cache, restores the outputs to other folders.
+		 */
+		MassSpectraCache reopened = new MassSpectraCache(cacheDirectory, CACHE_SIZE, JOB_FINGERPRINT);
+		assertEquals(1, reopened.getEntryCount());
+		assertEquals(key, reopened.getKey(input));
+		assertEquals(NAME, reopened.restore(key, name -> getOutputFiles("hit", name)));
+		List<File> hitOutputs = getOutputFiles("hit", NAME);
+		for(int index = 0; index < missOutputs.size(); index++) {
+			assertTrue(Arrays.equals(Files.readAllBytes(missOutputs.get(index).toPath()), Files.readAllBytes(hitOutputs.get(index).toPath())));
+		}
+		assertNoTemporaryFiles();
+	}
+
+	public void testExistingOutputIsReplaced() throws Exception {
+
+		MassSpectraCache cache = new MassSpectraCache(cacheDirectory, CACHE_SIZE, JOB_FINGERPRINT);
+		String key = cache.getKey(input);
+		List<File> missOutputs = getOutputFiles("miss", NAME);
+		writeOutput(missOutputs.get(0), OUTPUT_SIZE, 1);
+		writeOutput(missOutputs.get(1), OUTPUT_SIZE, 2);
+		cache.put(key, NAME, missOutputs);
+		List<File> hitOutputs = getOutputFiles("hit", NAME);
+		writeOutput(hitOutputs.get(0), OUTPUT_SIZE * 2, 3);
+		assertEquals(NAME, cache.restore(key, name -> hitOutputs));
+		assertTrue(Arrays.equals(Files.readAllBytes(missOutputs.get(0).toPath()), Files.readAllBytes(hitOutputs.get(0).toPath())));
+	}
+
+	public void testOtherJobIsNotRestored() throws Exception {
+
+		MassSpectraCache cache = new MassSpectraCache(cacheDirectory, CACHE_SIZE, JOB_FINGERPRINT);
+		List<File> missOutputs = getOutputFiles("miss", NAME);
+		writeOutput(missOutputs.get(0), OUTPUT_SIZE, 1);
+		writeOutput(missOutputs.get(1), OUTPUT_SIZE, 2);
+		cache.put(cache.getKey(input), NAME, missOutputs);
+		/*
+		 * Another setting of a processor.
+		 */
+		MassSpectraCache other = new MassSpectraCache(cacheDirectory, CACHE_SIZE, "Synthetic\0normalize\0other\nconverter\n");
+		assertNull(other.restore(other.getKey(input), name -> getOutputFiles("hit", name)));
+		assertFalse(getOutputFiles("hit", NAME).get(0).exists());
+	}
+
+	public void testCorruptEntryIsRemoved() throws Exception {
+
+		MassSpectraCache cache = new MassSpectraCache(cacheDirectory, CACHE_SIZE, JOB_FINGERPRINT);
+		String key = cache.getKey(input);
+		List<File> missOutputs = getOutputFiles("miss", NAME);
+		writeOutput(missOutputs.get(0), OUTPUT_SIZE, 1);
+		writeOutput(missOutputs.get(1), OUTPUT_SIZE, 2);
+		cache.put(key, NAME, missOutputs);
+		/*
+		 * Truncate the entry within the second output.
+		 */
+		File[] entries = cacheDirectory.listFiles();
+		assertEquals(1, entries.length);
+		byte[] bytes = Files.readAllBytes(entries[0].toPath());
+		Files.write(entries[0].toPath(), Arrays.copyOf(bytes, bytes.length - OUTPUT_SIZE / 2));
+		List<File> hitOutputs = getOutputFiles("hit", NAME);
+		assertNull(cache.restore(key, name -> hitOutputs));
+		assertEquals(0, cache.getEntryCount());
+		assertEquals(0, cacheDirectory.listFiles().length);
+		for(File hitOutput : hitOutputs) {
+			assertFalse(hitOutput.exists());
+		}
+		assertNoTemporaryFiles();
+	}
+
+	private List<File> getOutputFiles(String run, String name) {
+
+		List<File> outputFiles = new ArrayList<File>();
+		outputFiles.add(new File(new File(directory, run + "-first"), name));
+		outputFiles.add(new File(new File(directory, run + "-second"), name));
+		return outputFiles;
+	}
+
+	private void writeOutput(File outputFile, int size, long seed) throws IOException {
+
+		byte[] bytes = new byte[size];
+		new Random(seed).nextBytes(bytes);
+		Files.createDirectories(outputFile.getParentFile().toPath());
+		Files.write(outputFile.toPath(), bytes);
+	}
+
+	private void assertNoTemporaryFiles() throws IOException {
+
+		try (Stream<Path> paths = Files.walk(directory.toPath())) {
+			assertFalse(paths.anyMatch(path -> path.toString().endsWith(".tmp")));
+		}
+	}
+}
@@ -113,6 +113,21 @@ public class BaselineCorrection {
 		return baselineCorrectionSupport;
 	}
 
+	/**
+	 * Returns the symbolic name of the bundle that contributes the baseline correction or null if none is available.
+	 * 
+	 * @param correctionId
+	 * @return String
+	 */
+	public static String getContributorName(final String correctionId) {
+
+		IConfigurationElement element = getConfigurationElement(correctionId);
+		if(element != null) {
+			return element.getContributor().getName();
+		}
+		return null;
+	}
+
 	// --------------------------------------------private methods
 	private static IBaselineCorrection getBaselineCorrection(final String correctionId) {
 
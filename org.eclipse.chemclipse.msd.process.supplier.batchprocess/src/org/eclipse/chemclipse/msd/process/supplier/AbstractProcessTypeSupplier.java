@@ -11,7 +11,72 @@
  *******************************************************************************/
 package org.eclipse.chemclipse.msd.process.supplier;
 
+import java.util.Arrays;
+
+import org.eclipse.chemclipse.logging.core.Logger;
 import org.eclipse.chemclipse.msd.process.support.IProcessTypeSupplier;
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.core.runtime.preferences.ConfigurationScope;
+import org.eclipse.core.runtime.preferences.DefaultScope;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences;
+import org.eclipse.core.runtime.preferences.IScopeContext;
+import org.eclipse.core.runtime.preferences.InstanceScope;
+import org.osgi.framework.Bundle;
+import org.osgi.service.prefs.BackingStoreException;
 
 public abstract class AbstractProcessTypeSupplier implements IProcessTypeSupplier {
+
+	private static final Logger logger = Logger.getLogger(AbstractProcessTypeSupplier.class);
+
+	@Override
+	public boolean isThreadSafe(String processorId) {
+
+		/*
+		 * Suppliers must opt in explicitly.
+		 */
+		return false;
+	}
+
+	@Override
+	public String getSettingsFingerprint(String processorId) {
+
+		/*
+		 * The settings are unknown, hence the results of the processor must not be cached.
+		 */
+		return "";
+	}
+
+	/**
+	 * Returns a fingerprint of the bundle that contributes a processor and of its preferences
+	 * in the instance, configuration and default scope.
+	 * An empty fingerprint is returned if the bundle or its preferences are not available.
+	 * 
+	 * @param symbolicName
+	 * @return String
+	 */
+	protected String getPreferencesFingerprint(String symbolicName) {
+
+		Bundle bundle = symbolicName != null ? Platform.getBundle(symbolicName) : null;
+		if(bundle == null) {
+			return "";
+		}
+		StringBuilder fingerprint = new StringBuilder();
+		fingerprint.append(symbolicName).append('\0').append(bundle.getVersion()).append('\n');
+		IScopeContext[] scopes = new IScopeContext[]{InstanceScope.INSTANCE, ConfigurationScope.INSTANCE, DefaultScope.INSTANCE};
+		try {
+			for(IScopeContext scope : scopes) {
+				IEclipsePreferences preferences = scope.getNode(symbolicName);
+				String[] keys = preferences.keys();
+				Arrays.sort(keys);
+				fingerprint.append(scope.getName()).append('\n');
+				for(String key : keys) {
+					fingerprint.append(key).append('\0').append(preferences.get(key, "")).append('\n');
+				}
+			}
+		} catch(BackingStoreException e) {
+			logger.warn(e);
+			return "";
+		}
+		return fingerprint.toString();
+	}
 }
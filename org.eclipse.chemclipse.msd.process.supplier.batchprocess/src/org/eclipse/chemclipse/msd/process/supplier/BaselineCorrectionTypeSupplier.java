@@ -50,4 +50,22 @@ public class BaselineCorrectionTypeSupplier extends AbstractProcessTypeSupplier
 
 		return BaselineCorrection.setBaseline(massSpectrum, processorId, monitor);
 	}
+
+	@Override
+	public boolean isThreadSafe(String processorId) {
+
+		/*
+		 * Each call creates a new baseline correction instance.
+		 */
+		return true;
+	}
+
+	@Override
+	public String getSettingsFingerprint(String processorId) {
+
+		/*
+		 * The corrections without settings apply the preferences of their bundle.
+		 */
+		return getPreferencesFingerprint(BaselineCorrection.getContributorName(processorId));
+	}
 }
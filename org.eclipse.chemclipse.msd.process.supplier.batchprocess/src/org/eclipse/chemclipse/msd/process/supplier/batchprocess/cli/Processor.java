@@ -15,13 +15,34 @@ package org.eclipse.chemclipse.msd.process.supplier.batchprocess.cli;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.xml.stream.XMLStreamException;
 
 import org.eclipse.chemclipse.converter.exceptions.FileIsEmptyException;
 import org.eclipse.chemclipse.converter.exceptions.FileIsNotReadableException;
+import org.eclipse.chemclipse.converter.exceptions.FileIsNotWriteableException;
 import org.eclipse.chemclipse.logging.core.Logger;
 import org.eclipse.chemclipse.msd.process.supplier.batchprocess.core.BatchProcess;
-import org.eclipse.chemclipse.msd.process.supplier.batchprocess.io.BatchProcessJobReader;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.io.BatchProcessJobFormat;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.io.IBatchProcessJobReader;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.io.ProcessingInfoSummary;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.ExecutionMode;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.ExecutorType;
 import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IBatchProcessJob;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IBatchProcessSettings;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.LazyBatchProcessJob;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.ScanProcessingMode;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.SchedulingPolicy;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.ShardingPolicy;
+import org.eclipse.chemclipse.processing.core.IProcessingInfo;
 import org.eclipse.chemclipse.rcp.app.cli.AbstractCommandLineProcessor;
 import org.eclipse.chemclipse.rcp.app.cli.ICommandLineProcessor;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -30,6 +51,56 @@ import org.eclipse.core.runtime.NullProgressMonitor;
 public class Processor extends AbstractCommandLineProcessor implements ICommandLineProcessor {
 
 	private static final Logger logger = Logger.getLogger(Processor.class);
+	/*
+	 * Optional arguments, given as key=value after the batch file, e.g.:
+	 * -batchfile job.xml mode=parallel threads=8 resume=true
+	 * The job file may be XML, gzip compressed XML or binary, convert=job.bpj or convert=job.xml.gz
+	 * writes the job with the options applied to the given file instead of executing it.
+	 * The input entries of XML jobs are read while the job is executed.
+	 * A sharded job, e.g. shard=1 shards=4, writes the summary job.xml.shard-1-of-4.summary,
+	 * merge=job.summary merges the summaries of all shards instead of executing the job.
+	 * Several processes started with the same workqueue=/shared/queue claim the input entries
+	 * dynamically, lease=60 is the time in seconds after which the files of a dead process are
+	 * claimed by the others. The queue directory must be emptied to run the job again.
+	 * cache=/local/cache restores the outputs of inputs that have been processed with the same
+	 * process entries, settings and output converters before, cachesize=1024 bounds the cache in megabytes.
+	 * Jobs with report entries are not cached.
+	 */
+	private static final String JOURNAL_EXTENSION = ".journal";
+	private static final String SHARD_SUFFIX = ".shard-%d-of-%d";
+	private static final String WORKER_SUFFIX = ".worker-%s";
+	private static final Pattern SHARD_SUMMARY = Pattern.compile("\\.shard-(\\d+)-of-(\\d+)" + Pattern.quote(ProcessingInfoSummary.FILE_EXTENSION));
+	private static final String MESSAGE_LOG_EXTENSION = ".messages.log";
+	private static final long SHUTDOWN_TIMEOUT = 60;
+	private static final String OPTION_MODE = "mode";
+	private static final String OPTION_THREADS = "threads";
+	private static final String OPTION_QUEUE = "queue";
+	private static final String OPTION_STREAM = "stream";
+	private static final String OPTION_SCANS = "scans";
+	private static final String OPTION_EXECUTOR = "executor";
+	private static final String OPTION_STREAM_WINDOW = "window";
+	private static final String OPTION_JOURNAL = "journal";
+	private static final String OPTION_INCREMENTAL = "incremental";
+	private static final String OPTION_PARALLEL_OUTPUT = "paralleloutput";
+	private static final String OPTION_RESUME = "resume";
+	private static final String OPTION_HEAP = "heap";
+	private static final String OPTION_VOLUME_THREADS = "volumethreads";
+	private static final String OPTION_WATCH = "watch";
+	private static final String OPTION_SCHEDULING = "schedule";
+	private static final String OPTION_FILE_TIMEOUT = "timeout";
+	private static final String OPTION_WATCH_SETTLE_TIME = "settle";
+	private static final String OPTION_MESSAGE_LIMIT = "messages";
+	private static final String OPTION_STAGE_TIMEOUT = "stagetimeout";
+	private static final String OPTION_MESSAGE_LOG = "messagelog";
+	private static final String OPTION_CONVERT = "convert";
+	private static final String OPTION_MERGE = "merge";
+	private static final String OPTION_SHARD_INDEX = "shard";
+	private static final String OPTION_SHARD_COUNT = "shards";
+	private static final String OPTION_SHARDING = "sharding";
+	private static final String OPTION_LEASE_TIMEOUT = "lease";
+	private static final String OPTION_WORK_QUEUE = "workqueue";
+	private static final String OPTION_CACHE_SIZE = "cachesize";
+	private static final String OPTION_CACHE = "cache";
 
 	@Override
 	public void process(String[] args) {
@@ -37,24 +108,283 @@ public class Processor extends AbstractCommandLineProcessor implements ICommandL
 		/*
 		 * Import the batch process job and execute it.
 		 */
-		BatchProcessJobReader reader = new BatchProcessJobReader();
 		String filePath = args[0].trim();
 		File file = new File(filePath);
 		try {
 			IProgressMonitor monitor = new NullProgressMonitor();
 			logger.info("Read batch process");
-			IBatchProcessJob batchProcessJob = reader.read(file, monitor);
-			logger.info("Execute batch process");
-			BatchProcess bp = new BatchProcess();
-			bp.execute(batchProcessJob, monitor);
+			String mergePath = getOption(args, OPTION_MERGE);
+			if(mergePath != null) {
+				logger.info("Merge batch process summaries");
+				mergeSummaries(file, new File(mergePath));
+				return;
+			}
+			String convertPath = getOption(args, OPTION_CONVERT);
+			if(convertPath != null) {
+				IBatchProcessJobReader reader = BatchProcessJobFormat.getReader(file);
+				IBatchProcessJob batchProcessJob = reader.read(file, monitor);
+				applyOptions(args, batchProcessJob.getBatchProcessSettings());
+				logger.info("Convert batch process");
+				File convertFile = new File(convertPath);
+				BatchProcessJobFormat.getWriter(convertFile).writeBatchProcessJob(convertFile, batchProcessJob, monitor);
+				return;
+			}
+			/*
+			 * The input entries are read while the first files are already processed.
+			 * If the scheduling or the sharding by size is given as option, the job is read
+			 * completely, because the largest files can only be started first and the shards
+			 * can only be balanced if all files are known.
+			 */
+			IBatchProcessJob batchProcessJob;
+			String sharding = getOption(args, OPTION_SHARDING);
+			if(getOption(args, OPTION_SCHEDULING) != null || ShardingPolicy.SIZE.name().equalsIgnoreCase(sharding)) {
+				batchProcessJob = BatchProcessJobFormat.getReader(file).read(file, monitor);
+			} else {
+				batchProcessJob = BatchProcessJobFormat.readLazy(file, monitor);
+			}
+			try {
+				execute(file, batchProcessJob, args, monitor);
+			} finally {
+				if(batchProcessJob instanceof LazyBatchProcessJob) {
+					((LazyBatchProcessJob)batchProcessJob).close();
+				}
+			}
 		} catch(FileNotFoundException e) {
 			logger.warn(e);
 		} catch(FileIsNotReadableException e) {
 			logger.warn(e);
 		} catch(FileIsEmptyException e) {
 			logger.warn(e);
+		} catch(FileIsNotWriteableException e) {
+			logger.warn(e);
+		} catch(XMLStreamException e) {
+			logger.warn(e);
 		} catch(IOException e) {
 			logger.warn(e);
 		}
 	}
+
+	/**
+	 * Applies the options and executes the job.
+	 * 
+	 * @param file
+	 * @param batchProcessJob
+	 * @param args
+	 * @param monitor
+	 */
+	private void execute(File file, IBatchProcessJob batchProcessJob, String[] args, IProgressMonitor monitor) {
+
+		IBatchProcessSettings batchProcessSettings = batchProcessJob.getBatchProcessSettings();
+		applyOptions(args, batchProcessSettings);
+		/*
+		 * The shards of a job may run on nodes that share the job directory.
+		 */
+		String path = file.getPath();
+		boolean sharded = batchProcessSettings.getShardCount() > 1;
+		if(sharded) {
+			path += String.format(SHARD_SUFFIX, batchProcessSettings.getShardIndex(), batchProcessSettings.getShardCount());
+		}
+		boolean queued = !batchProcessSettings.getWorkQueueDirectory().isEmpty();
+		if(queued) {
+			/*
+			 * The processes of a work queue share the job directory as well.
+			 */
+			path += String.format(WORKER_SUFFIX, ManagementFactory.getRuntimeMXBean().getName().replaceAll("[^\\w.-]", "_"));
+		}
+		if(batchProcessSettings.getJournalFile().isEmpty() && !queued) {
+			/*
+			 * Always record the progress, so that a crashed run can be resumed.
+			 * The done markers of a work queue record the progress of all processes.
+			 */
+			batchProcessSettings.setJournalFile(path + JOURNAL_EXTENSION);
+		}
+		if(batchProcessSettings.getMessageLimit() > 0 && batchProcessSettings.getMessageLogFile().isEmpty()) {
+			batchProcessSettings.setMessageLogFile(path + MESSAGE_LOG_EXTENSION);
+		}
+		logger.info("Execute batch process");
+		BatchProcess bp = new BatchProcess();
+		IProcessingInfo processingInfo;
+		if(batchProcessSettings.isWatch()) {
+			processingInfo = executeWatch(bp, batchProcessJob, monitor);
+		} else {
+			processingInfo = bp.execute(batchProcessJob, monitor);
+		}
+		if(sharded) {
+			try {
+				ProcessingInfoSummary.write(new File(path + ProcessingInfoSummary.FILE_EXTENSION), processingInfo);
+			} catch(IOException e) {
+				logger.warn(e);
+			}
+		}
+	}
+
+	/**
+	 * Merges the summaries of all shards of the job in the order of the shards.
+	 * 
+	 * @param file
+	 * @param mergeFile
+	 * @throws IOException
+	 */
+	private void mergeSummaries(File file, File mergeFile) throws IOException {
+
+		File directory = file.getAbsoluteFile().getParentFile();
+		String prefix = file.getName();
+		SortedMap<Integer, File> summaries = new TreeMap<Integer, File>();
+		int shardCount = 0;
+		File[] files = directory.listFiles();
+		if(files != null) {
+			for(File summary : files) {
+				String name = summary.getName();
+				if(!name.startsWith(prefix)) {
+					continue;
+				}
+				Matcher matcher = SHARD_SUMMARY.matcher(name.substring(prefix.length()));
+				if(matcher.matches()) {
+					summaries.put(Integer.parseInt(matcher.group(1)), summary);
+					shardCount = Math.max(shardCount, Integer.parseInt(matcher.group(2)));
+				}
+			}
+		}
+		if(summaries.isEmpty()) {
+			logger.warn("No shard summaries have been found for the job: " + file);
+			return;
+		}
+		if(summaries.size() < shardCount) {
+			logger.warn("Only " + summaries.size() + " of " + shardCount + " shard summaries have been found.");
+		}
+		IProcessingInfo processingInfo = ProcessingInfoSummary.merge(new ArrayList<File>(summaries.values()));
+		ProcessingInfoSummary.write(mergeFile, processingInfo);
+		logger.info("Merged " + summaries.size() + " shard summaries, errors: " + processingInfo.hasErrorMessages() + ", warnings: " + processingInfo.hasWarnMessages());
+	}
+
+	/**
+	 * The watch runs until the JVM is shut down. The shutdown cancels the watch and
+	 * waits until the files in progress are finished and the journal is closed.
+	 * 
+	 * @param batchProcess
+	 * @param batchProcessJob
+	 * @param monitor
+	 * @return {@link IProcessingInfo}
+	 */
+	private IProcessingInfo executeWatch(BatchProcess batchProcess, IBatchProcessJob batchProcessJob, IProgressMonitor monitor) {
+
+		CountDownLatch finished = new CountDownLatch(1);
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			monitor.setCanceled(true);
+			try {
+				finished.await(SHUTDOWN_TIMEOUT, TimeUnit.SECONDS);
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}));
+		try {
+			return batchProcess.execute(batchProcessJob, monitor);
+		} finally {
+			finished.countDown();
+		}
+	}
+
+	/**
+	 * Overrides the settings of the job with the options given on the command line.
+	 * 
+	 * @param args
+	 * @param batchProcessSettings
+	 */
+	private void applyOptions(String[] args, IBatchProcessSettings batchProcessSettings) {
+
+		for(int i = 1; i < args.length; i++) {
+			String argument = args[i].trim();
+			int index = argument.indexOf('=');
+			if(index <= 0) {
+				logger.warn("Unknown option: " + argument);
+				continue;
+			}
+			String key = argument.substring(0, index);
+			String value = argument.substring(index + 1);
+			try {
+				if(key.equals(OPTION_MODE)) {
+					batchProcessSettings.setExecutionMode(ExecutionMode.valueOf(value.toUpperCase()));
+				} else if(key.equals(OPTION_THREADS)) {
+					batchProcessSettings.setNumberOfThreads(Integer.parseInt(value));
+				} else if(key.equals(OPTION_QUEUE)) {
+					batchProcessSettings.setQueueCapacity(Integer.parseInt(value));
+				} else if(key.equals(OPTION_SCANS)) {
+					batchProcessSettings.setScanProcessingMode(ScanProcessingMode.valueOf(value.toUpperCase()));
+				} else if(key.equals(OPTION_STREAM)) {
+					batchProcessSettings.setStreaming(Boolean.parseBoolean(value));
+				} else if(key.equals(OPTION_STREAM_WINDOW)) {
+					batchProcessSettings.setStreamWindowSize(Integer.parseInt(value));
+				} else if(key.equals(OPTION_EXECUTOR)) {
+					batchProcessSettings.setExecutorType(ExecutorType.valueOf(value.toUpperCase()));
+				} else if(key.equals(OPTION_INCREMENTAL)) {
+					batchProcessSettings.setIncremental(Boolean.parseBoolean(value));
+				} else if(key.equals(OPTION_JOURNAL)) {
+					batchProcessSettings.setJournalFile(value);
+				} else if(key.equals(OPTION_RESUME)) {
+					batchProcessSettings.setResume(Boolean.parseBoolean(value));
+				} else if(key.equals(OPTION_PARALLEL_OUTPUT)) {
+					batchProcessSettings.setParallelOutput(Boolean.parseBoolean(value));
+				} else if(key.equals(OPTION_VOLUME_THREADS)) {
+					batchProcessSettings.setOutputThreadsPerVolume(Integer.parseInt(value));
+				} else if(key.equals(OPTION_HEAP)) {
+					batchProcessSettings.setHeapBudget(Integer.parseInt(value));
+				} else if(key.equals(OPTION_SCHEDULING)) {
+					batchProcessSettings.setSchedulingPolicy(SchedulingPolicy.valueOf(value.toUpperCase()));
+				} else if(key.equals(OPTION_WATCH)) {
+					batchProcessSettings.setWatch(Boolean.parseBoolean(value));
+				} else if(key.equals(OPTION_WATCH_SETTLE_TIME)) {
+					batchProcessSettings.setWatchSettleTime(Integer.parseInt(value));
+				} else if(key.equals(OPTION_FILE_TIMEOUT)) {
+					batchProcessSettings.setFileTimeout(Integer.parseInt(value));
+				} else if(key.equals(OPTION_STAGE_TIMEOUT)) {
+					batchProcessSettings.setStageTimeout(Integer.parseInt(value));
+				} else if(key.equals(OPTION_MESSAGE_LIMIT)) {
+					batchProcessSettings.setMessageLimit(Integer.parseInt(value));
+				} else if(key.equals(OPTION_MESSAGE_LOG)) {
+					batchProcessSettings.setMessageLogFile(value);
+				} else if(key.equals(OPTION_CONVERT) || key.equals(OPTION_MERGE)) {
+					/*
+					 * Not a setting, see getOption.
+					 */
+				} else if(key.equals(OPTION_SHARD_INDEX)) {
+					batchProcessSettings.setShardIndex(Integer.parseInt(value));
+				} else if(key.equals(OPTION_SHARD_COUNT)) {
+					batchProcessSettings.setShardCount(Integer.parseInt(value));
+				} else if(key.equals(OPTION_SHARDING)) {
+					batchProcessSettings.setShardingPolicy(ShardingPolicy.valueOf(value.toUpperCase()));
+				} else if(key.equals(OPTION_WORK_QUEUE)) {
+					batchProcessSettings.setWorkQueueDirectory(value);
+				} else if(key.equals(OPTION_LEASE_TIMEOUT)) {
+					batchProcessSettings.setLeaseTimeout(Integer.parseInt(value));
+				} else if(key.equals(OPTION_CACHE)) {
+					batchProcessSettings.setCacheDirectory(value);
+				} else if(key.equals(OPTION_CACHE_SIZE)) {
+					batchProcessSettings.setCacheSize(Integer.parseInt(value));
+				} else {
+					logger.warn("Unknown option: " + argument);
+				}
+			} catch(IllegalArgumentException e) {
+				logger.warn("Invalid value for option: " + argument);
+			}
+		}
+	}
+
+	/**
+	 * Returns the value of the given option or null if it is not given.
+	 * 
+	 * @param args
+	 * @param key
+	 * @return String
+	 */
+	private String getOption(String[] args, String key) {
+
+		String prefix = key + "=";
+		for(int i = 1; i < args.length; i++) {
+			String argument = args[i].trim();
+			if(argument.startsWith(prefix)) {
+				return argument.substring(prefix.length());
+			}
+		}
+		return null;
+	}
 }
@@ -0,0 +1,286 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Lablicate GmbH.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * Lablicate GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.chemclipse.msd.process.supplier.batchprocess.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+import org.eclipse.chemclipse.logging.core.Logger;
+import org.eclipse.chemclipse.processing.core.IProcessingInfo;
+import org.eclipse.chemclipse.processing.core.IProcessingMessage;
+import org.eclipse.chemclipse.processing.core.MessageType;
+import org.eclipse.chemclipse.processing.core.ProcessingInfo;
+import org.eclipse.chemclipse.processing.core.ProcessingMessage;
+
+/**
+ * A processing info of bounded size that may be written by several threads.
+ * Messages are grouped by type, description and message template, i.e. the message
+ * without its trailing argument (": ...") and with the numbers replaced by "#".
+ * Per group, the first messages are kept and all messages are counted. The other
+ * messages are kept in a ring buffer of recent messages and written to the log file,
+ * if one is given. Adding a message never waits for the log file, the writing is
+ * done by whichever thread gets the lock. The log file is completed by {@link #close()}.
+ * The messages of a part of the work, e.g. a file, are collected by a part of this info,
+ * see {@link #createPart(IProcessingInfo)}. A part keeps the first messages per group
+ * itself and passes all others on to its parent immediately, hence the parent counts
+ * every message, no matter whether the part is merged early or late.
+ * 
+ */
+class AggregatingProcessingInfo extends ProcessingInfo {
+
+	private static final Logger logger = Logger.getLogger(AggregatingProcessingInfo.class);
+	private static final String DESCRIPTION = "Batch Processor";
+	private static final Pattern NUMBERS = Pattern.compile("\\d+");
+	private static final String ARGUMENT_SEPARATOR = ": ";
+	private static final int RECENT_MESSAGES = 100;
+	//
+	private final int messageLimit;
+	private final File logFile;
+	private final AggregatingProcessingInfo parent;
+	private final Map<String, Category> categories = new ConcurrentHashMap<String, Category>();
+	private final Queue<IProcessingMessage> retainedMessages = new ConcurrentLinkedQueue<IProcessingMessage>();
+	private final AtomicReferenceArray<IProcessingMessage> recentMessages = new AtomicReferenceArray<IProcessingMessage>(RECENT_MESSAGES);
+	private final AtomicLong overflowCount = new AtomicLong();
+	private final Queue<IProcessingMessage> pendingLog = new ConcurrentLinkedQueue<IProcessingMessage>();
+	private final ReentrantLock logLock = new ReentrantLock();
+	private final LongAdder[] typeCounts = new LongAdder[MessageType.values().length];
+	private Writer logWriter;
+	private boolean logFailed = false;
+
+	/**
+	 * @param messageLimit
+	 *            the number of messages kept per group
+	 * @param logFile
+	 *            receives the messages that are not kept, may be null
+	 */
+	AggregatingProcessingInfo(int messageLimit, File logFile) {
+		this(messageLimit, logFile, null);
+	}
+
+	private AggregatingProcessingInfo(int messageLimit, File logFile, AggregatingProcessingInfo parent) {
+		this.messageLimit = messageLimit;
+		this.logFile = logFile;
+		this.parent = parent;
+		for(int i = 0; i < typeCounts.length; i++) {
+			typeCounts[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * Returns a processing info for a part of the work, e.g. a file or a chunk of scans.
+	 * If the given processing info is bounded, so is the part.
+	 * 
+	 * @param processingInfo
+	 *            the processing info the part is merged into, may be null
+	 * @return {@link IProcessingInfo}
+	 */
+	static IProcessingInfo createPart(IProcessingInfo processingInfo) {
+
+		if(processingInfo instanceof AggregatingProcessingInfo) {
+			AggregatingProcessingInfo aggregatingProcessingInfo = (AggregatingProcessingInfo)processingInfo;
+			return new AggregatingProcessingInfo(aggregatingProcessingInfo.messageLimit, null, aggregatingProcessingInfo);
+		}
+		return new ProcessingInfo();
+	}
+
+	@Override
+	public void addMessages(IProcessingInfo processingInfo) {
+
+		if(processingInfo != null) {
+			for(IProcessingMessage processingMessage : processingInfo.getMessages()) {
+				addMessage(processingMessage);
+			}
+		}
+	}
+
+	@Override
+	public void addMessage(IProcessingMessage processingMessage) {
+
+		if(processingMessage == null) {
+			return;
+		}
+		typeCounts[processingMessage.getMessageType().ordinal()].increment();
+		Category category = categories.computeIfAbsent(getKey(processingMessage), key -> new Category(processingMessage));
+		long count = category.count.incrementAndGet();
+		if(count <= messageLimit) {
+			retainedMessages.add(processingMessage);
+		} else if(parent != null) {
+			parent.addMessage(processingMessage);
+		} else {
+			long index = overflowCount.getAndIncrement();
+			recentMessages.set((int)(index % RECENT_MESSAGES), processingMessage);
+			if(logFile != null) {
+				pendingLog.add(processingMessage);
+				drainLog();
+			}
+		}
+	}
+
+	@Override
+	public void addErrorMessage(String description, String message) {
+
+		addMessage(new ProcessingMessage(MessageType.ERROR, description, message));
+	}
+
+	@Override
+	public void addWarnMessage(String description, String message) {
+
+		addMessage(new ProcessingMessage(MessageType.WARN, description, message));
+	}
+
+	@Override
+	public void addInfoMessage(String description, String message) {
+
+		addMessage(new ProcessingMessage(MessageType.INFO, description, message));
+	}
+
+	/**
+	 * Returns the kept messages, followed by the recent messages and a summary per group that has been cut.
+	 * A part only returns the messages it has kept, the others have been passed on already.
+	 */
+	@Override
+	public List<IProcessingMessage> getMessages() {
+
+		List<IProcessingMessage> messages = new ArrayList<IProcessingMessage>(retainedMessages);
+		long overflow = overflowCount.get();
+		long first = Math.max(0, overflow - RECENT_MESSAGES);
+		for(long index = first; index < overflow; index++) {
+			IProcessingMessage processingMessage = recentMessages.get((int)(index % RECENT_MESSAGES));
+			if(processingMessage != null) {
+				messages.add(processingMessage);
+			}
+		}
+		for(Category category : categories.values()) {
+			long count = category.count.get();
+			if(count > messageLimit && parent == null) {
+				messages.add(new ProcessingMessage(category.type, category.description, category.template + " (" + count + " times, " + (count - messageLimit) + " not kept)"));
+			}
+		}
+		if(logFailed) {
+			messages.add(new ProcessingMessage(MessageType.WARN, DESCRIPTION, "The messages couldn't be written to the log file: " + logFile));
+		}
+		return Collections.unmodifiableList(messages);
+	}
+
+	@Override
+	public boolean hasErrorMessages() {
+
+		return typeCounts[MessageType.ERROR.ordinal()].sum() > 0;
+	}
+
+	@Override
+	public boolean hasWarnMessages() {
+
+		return typeCounts[MessageType.WARN.ordinal()].sum() > 0;
+	}
+
+	/**
+	 * Writes the pending messages and closes the log file.
+	 */
+	void close() {
+
+		logLock.lock();
+		try {
+			writePendingLog();
+			if(logWriter != null) {
+				logWriter.close();
+				logWriter = null;
+			}
+		} catch(IOException e) {
+			logger.warn(e);
+			logFailed = true;
+		} finally {
+			logLock.unlock();
+		}
+	}
+
+	private void drainLog() {
+
+		/*
+		 * Don't wait, the thread that holds the lock writes the pending messages.
+		 */
+		while(!pendingLog.isEmpty() && logLock.tryLock()) {
+			try {
+				writePendingLog();
+			} catch(IOException e) {
+				logger.warn(e);
+				logFailed = true;
+			} finally {
+				logLock.unlock();
+			}
+		}
+	}
+
+	private void writePendingLog() throws IOException {
+
+		IProcessingMessage processingMessage;
+		while((processingMessage = pendingLog.poll()) != null) {
+			if(logFailed) {
+				continue;
+			}
+			if(logWriter == null) {
+				logWriter = Files.newBufferedWriter(logFile.toPath(), StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+			}
+			logWriter.write(processingMessage.getMessageType() + "\t" + processingMessage.getDescription() + "\t" + processingMessage.getMessage() + "\n");
+		}
+	}
+
+	private String getKey(IProcessingMessage processingMessage) {
+
+		return processingMessage.getMessageType() + "\t" + processingMessage.getDescription() + "\t" + getTemplate(processingMessage.getMessage());
+	}
+
+	private static String getTemplate(String message) {
+
+		if(message == null) {
+			return "";
+		}
+		int index = message.indexOf(ARGUMENT_SEPARATOR);
+		if(index >= 0) {
+			message = message.substring(0, index);
+		}
+		return NUMBERS.matcher(message).replaceAll("#");
+	}
+
+	/**
+	 * Messages of the same type, description and template.
+	 */
+	private static class Category {
+
+		private final MessageType type;
+		private final String description;
+		private final String template;
+		private final AtomicLong count = new AtomicLong();
+
+		private Category(IProcessingMessage processingMessage) {
+			type = processingMessage.getMessageType();
+			description = processingMessage.getDescription();
+			template = getTemplate(processingMessage.getMessage());
+		}
+	}
+}
@@ -13,17 +13,39 @@
 package org.eclipse.chemclipse.msd.process.supplier.batchprocess.core;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 
 import org.eclipse.chemclipse.logging.core.Logger;
 import org.eclipse.chemclipse.msd.converter.massspectrum.MassSpectrumConverter;
 import org.eclipse.chemclipse.msd.converter.processing.massspectrum.IMassSpectrumImportConverterProcessingInfo;
 import org.eclipse.chemclipse.msd.model.core.IMassSpectra;
-import org.eclipse.chemclipse.msd.model.core.IScanMSD;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.internal.support.BatchProcessThreadFactory;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.internal.support.SynchronizedProgressMonitor;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.internal.support.VirtualThreadSupport;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.io.MassSpectrumStreamConverterSupport;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.ExecutionMode;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.ExecutorType;
 import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IBatchProcessJob;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IBatchProcessSettings;
 import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IMassSpectrumInputEntry;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IMassSpectrumInputSource;
 import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IMassSpectrumOutputEntry;
 import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IMassSpectrumProcessEntry;
 import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IMassSpectrumReportSupplierEntry;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.MassSpectrumInputEntry;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.SchedulingPolicy;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.ShardingPolicy;
 import org.eclipse.chemclipse.msd.process.support.ProcessTypeSupport;
 import org.eclipse.chemclipse.processing.core.IProcessingInfo;
 import org.eclipse.chemclipse.processing.core.MessageType;
@@ -31,6 +53,7 @@ import org.eclipse.chemclipse.processing.core.ProcessingInfo;
 import org.eclipse.chemclipse.processing.core.ProcessingMessage;
 import org.eclipse.chemclipse.processing.core.exceptions.TypeCastException;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
 
 /**
  * @author Matthias Mailänder
@@ -40,44 +63,916 @@ public class BatchProcess implements IBatchProcess {
 
 	private Logger logger = Logger.getLogger(BatchProcess.class);
 	private static final String DESCRIPTION = "Batch Processor";
+	private static final String THREAD_PREFIX = "BatchProcess-Worker";
+	private static final String WATCHDOG_THREAD_PREFIX = "BatchProcess-Watchdog";
+	private static final long MILLISECONDS = 1000L;
+	private static final long LEASE_POLL_INTERVAL = 1000L;
+	private static final long MEGABYTE = 1024L * 1024L;
 	private ProcessTypeSupport processTypeSupport;
+	private ScanProcessor scanProcessor;
+	private MassSpectrumStreamConverterSupport streamConverterSupport;
+	private MassSpectrumStreamProcessor streamProcessor;
+	private InputEntryScheduler inputEntryScheduler;
 
 	public BatchProcess() {
-		processTypeSupport = new ProcessTypeSupport();
+		this(new ProcessTypeSupport());
+		streamConverterSupport.addRegisteredConverters();
+	}
+
+	BatchProcess(ProcessTypeSupport processTypeSupport) {
+		this.processTypeSupport = processTypeSupport;
+		scanProcessor = new ScanProcessor(processTypeSupport);
+		streamConverterSupport = new MassSpectrumStreamConverterSupport();
+		streamProcessor = new MassSpectrumStreamProcessor(this, streamConverterSupport);
+		inputEntryScheduler = new InputEntryScheduler();
+	}
+
+	/**
+	 * Returns the converters that are used in streaming mode, by default the registered ones.
+	 * If no stream converter is able to handle an input or output, the file is loaded completely.
+	 * 
+	 * @return {@link MassSpectrumStreamConverterSupport}
+	 */
+	public MassSpectrumStreamConverterSupport getStreamConverterSupport() {
+
+		return streamConverterSupport;
 	}
 
 	@Override
 	public IProcessingInfo execute(IBatchProcessJob batchProcessJob, IProgressMonitor monitor) {
 
-		IProcessingInfo batchProcessingInfo = new ProcessingInfo();
 		/*
 		 * The batch process jobs must not be null.
 		 */
 		if(batchProcessJob == null) {
+			IProcessingInfo batchProcessingInfo = new ProcessingInfo();
 			batchProcessingInfo.addErrorMessage(DESCRIPTION, "The batch job was null.");
-		} else {
+			return batchProcessingInfo;
+		}
+		IBatchProcessSettings batchProcessSettings = batchProcessJob.getBatchProcessSettings();
+		if(batchProcessSettings.getShardIndex() < 0 || batchProcessSettings.getShardIndex() >= batchProcessSettings.getShardCount()) {
+			IProcessingInfo batchProcessingInfo = new ProcessingInfo();
+			batchProcessingInfo.addErrorMessage(DESCRIPTION, "The shard index " + batchProcessSettings.getShardIndex() + " must be at least 0 and lower than the number of shards " + batchProcessSettings.getShardCount() + ".");
+			return batchProcessingInfo;
+		}
+		AggregatingProcessingInfo aggregatingProcessingInfo = null;
+		IProcessingInfo batchProcessingInfo;
+		int messageLimit = batchProcessSettings.getMessageLimit();
+		if(messageLimit > 0) {
 			/*
-			 * Process all entries.
-			 * Input -> Process -> Output
+			 * Large jobs produce more messages than can be held in memory.
 			 */
-			for(IMassSpectrumInputEntry massSpectrumInput : batchProcessJob.getMassSpectrumInputEntries()) {
+			String messageLogFile = batchProcessSettings.getMessageLogFile();
+			aggregatingProcessingInfo = new AggregatingProcessingInfo(messageLimit, messageLogFile.isEmpty() ? null : new File(messageLogFile));
+			batchProcessingInfo = aggregatingProcessingInfo;
+		} else {
+			batchProcessingInfo = new ProcessingInfo();
+		}
+		/*
+		 * Process all entries.
+		 * Input -> Process -> Output
+		 */
+		if(monitor == null) {
+			monitor = new NullProgressMonitor();
+		}
+		BatchProcessContext context = new BatchProcessContext(batchProcessJob, new SynchronizedProgressMonitor(monitor), batchProcessingInfo);
+		BatchProcessMetrics metrics = context.getMetrics();
+		metrics.register();
+		if(batchProcessSettings.getShardCount() > 1) {
+			if(batchProcessSettings.getShardingPolicy() == ShardingPolicy.SIZE) {
+				/*
+				 * The shards can only be balanced by size if all input entries are known.
+				 */
+				readPendingInputEntries(batchProcessJob, batchProcessingInfo);
+			}
+			context.setSharding(new InputEntrySharding(batchProcessSettings.getShardIndex(), batchProcessSettings.getShardCount(), batchProcessSettings.getShardingPolicy()));
+			String shardInfo = "Shard " + batchProcessSettings.getShardIndex() + " of " + batchProcessSettings.getShardCount() + ": " + context.getMassSpectrumInputEntries().size() + " of " + batchProcessJob.getMassSpectrumInputEntries().size() + " listed input entries.";
+			if(hasPendingInputEntries(batchProcessJob) || !batchProcessJob.getMassSpectrumInputSources().isEmpty()) {
+				shardInfo += " The input entries that are read or discovered later are selected by their path.";
+			}
+			batchProcessingInfo.addInfoMessage(DESCRIPTION, shardInfo);
+		}
+		if(!batchProcessSettings.getWorkQueueDirectory().isEmpty()) {
+			openWorkQueue(context, batchProcessingInfo);
+		}
+		if(batchProcessSettings.isIncremental()) {
+			if(context.getWorkQueue() == null) {
+				loadIncrementalManifest(context, batchProcessingInfo);
+			} else {
 				/*
-				 * Get the mass spectrum.
+				 * The processes of a work queue would overwrite each other's manifest.
 				 */
-				File massSpectrumInputFile = new File(massSpectrumInput.getInputFile());
+				batchProcessingInfo.addWarnMessage(DESCRIPTION, "The incremental mode is not supported with a work queue, the done markers of the queue are used instead.");
+			}
+		}
+		if(!batchProcessSettings.getJournalFile().isEmpty()) {
+			openJournal(context, batchProcessingInfo);
+		}
+		if(batchProcessSettings.getSchedulingPolicy() == SchedulingPolicy.LARGEST_FIRST) {
+			loadTimings(batchProcessJob);
+		}
+		if(!batchProcessSettings.getCacheDirectory().isEmpty()) {
+			openCache(context, batchProcessingInfo);
+		}
+		if(batchProcessSettings.getHeapBudget() > 0) {
+			context.setAdmissionController(new HeapAdmissionController(batchProcessSettings.getHeapBudget() * MEGABYTE));
+		}
+		if(batchProcessSettings.isParallelOutput()) {
+			context.setOutputWriter(new MassSpectrumOutputWriter(this, batchProcessSettings.getOutputThreadsPerVolume()));
+		}
+		if(batchProcessSettings.getFileTimeout() > 0 || batchProcessSettings.getStageTimeout() > 0) {
+			context.setWatchdog(Executors.newSingleThreadScheduledExecutor(new BatchProcessThreadFactory(WATCHDOG_THREAD_PREFIX)));
+		}
+		if(batchProcessSettings.isStreaming()) {
+			reportStreaming(batchProcessSettings, batchProcessingInfo);
+		}
+		if(batchProcessSettings.isWatch()) {
+			/*
+			 * Runs until the monitor is canceled.
+			 */
+			BatchProcessWatcher batchProcessWatcher = new BatchProcessWatcher(this, context, getNumberOfThreads(batchProcessSettings));
+			batchProcessWatcher.watch(batchProcessingInfo);
+		} else {
+			switch(batchProcessSettings.getExecutionMode()) {
+				case PARALLEL:
+					executeParallel(context, batchProcessingInfo);
+					break;
+				case PIPELINE:
+					executePipeline(context, batchProcessingInfo);
+					break;
+				default:
+					executeSequential(context, batchProcessingInfo);
+					break;
+			}
+			awaitLeasedInputEntries(context, batchProcessingInfo);
+		}
+		if(context.getOutputWriter() != null) {
+			context.getOutputWriter().shutdown();
+		}
+		if(context.getWatchdog() != null) {
+			context.getWatchdog().shutdownNow();
+		}
+		saveIncrementalManifest(context, batchProcessingInfo);
+		closeJournal(context, batchProcessingInfo);
+		if(batchProcessSettings.getSchedulingPolicy() == SchedulingPolicy.LARGEST_FIRST) {
+			saveTimings(batchProcessJob, batchProcessingInfo);
+		}
+		if(context.getWorkQueue() != null) {
+			context.getWorkQueue().close();
+		}
+		if(context.getCache() != null) {
+			MassSpectraCache cache = context.getCache();
+			batchProcessingInfo.addInfoMessage(DESCRIPTION, String.format("Cache: %d hits, %d misses, %d evictions, %d entries with %.1f MB.", metrics.getCacheHitCount(), metrics.getCacheMissCount(), cache.getEvictions(), cache.getEntryCount(), cache.getSize() / (double)MEGABYTE));
+		}
+		metrics.unregister();
+		String summary = metrics.getSummary();
+		logger.info(summary);
+		batchProcessingInfo.addInfoMessage(DESCRIPTION, "Summary: " + summary);
+		if(aggregatingProcessingInfo != null) {
+			aggregatingProcessingInfo.close();
+		}
+		return batchProcessingInfo;
+	}
+
+	/**
+	 * Warns if the streaming mode has been requested, but the files can't be streamed.
+	 * 
+	 * @param batchProcessSettings
+	 * @param batchProcessingInfo
+	 */
+	private void reportStreaming(IBatchProcessSettings batchProcessSettings, IProcessingInfo batchProcessingInfo) {
+
+		if(streamConverterSupport.isEmpty()) {
+			batchProcessingInfo.addWarnMessage(DESCRIPTION, "The streaming mode is not available, because no stream converter is registered. All files are loaded completely.");
+		} else if(batchProcessSettings.getExecutionMode() == ExecutionMode.PIPELINE && !batchProcessSettings.isWatch()) {
+			batchProcessingInfo.addWarnMessage(DESCRIPTION, "The streaming mode is not supported by the pipeline. All files are loaded completely.");
+		}
+	}
+
+	/**
+	 * Processes the input entries one after another.
+	 * 
+	 * @param context
+	 * @param batchProcessingInfo
+	 */
+	private void executeSequential(BatchProcessContext context, IProcessingInfo batchProcessingInfo) {
+
+		for(IMassSpectrumInputEntry massSpectrumInput : context.getMassSpectrumInputEntries()) {
+			batchProcessingInfo.addMessages(processInputEntry(massSpectrumInput, context));
+		}
+		try (InputSourceDiscovery inputSourceDiscovery = new InputSourceDiscovery(context)) {
+			while(inputSourceDiscovery.hasNext()) {
+				batchProcessingInfo.addMessages(processInputEntry(inputSourceDiscovery.next(), context));
+			}
+			batchProcessingInfo.addMessages(inputSourceDiscovery.getProcessingInfo());
+		}
+	}
+
+	/**
+	 * Processes the input entries independently on a bounded worker pool.
+	 * The processing infos of the files are merged in the order of the input entries
+	 * and are dropped once they have been merged.
+	 * 
+	 * @param context
+	 * @param batchProcessingInfo
+	 */
+	private void executeParallel(BatchProcessContext context, IProcessingInfo batchProcessingInfo) {
+
+		IBatchProcessJob batchProcessJob = context.getBatchProcessJob();
+		List<IMassSpectrumInputSource> massSpectrumInputSources = batchProcessJob.getMassSpectrumInputSources();
+		List<IMassSpectrumInputEntry> massSpectrumInputs = new ArrayList<IMassSpectrumInputEntry>(context.getMassSpectrumInputEntries());
+		boolean pending = hasPendingInputEntries(batchProcessJob);
+		if(massSpectrumInputs.isEmpty() && massSpectrumInputSources.isEmpty() && !pending) {
+			return;
+		}
+		IBatchProcessSettings batchProcessSettings = context.getBatchProcessSettings();
+		int numberOfThreads = getNumberOfThreads(batchProcessSettings);
+		if(massSpectrumInputSources.isEmpty() && !pending) {
+			numberOfThreads = Math.min(numberOfThreads, massSpectrumInputs.size());
+		}
+		ExecutorService executorService = null;
+		if(batchProcessSettings.getExecutorType() == ExecutorType.VIRTUAL) {
+			/*
+			 * Each file gets its own virtual thread, only the CPU heavy processing is bounded.
+			 */
+			executorService = VirtualThreadSupport.newVirtualThreadPerTaskExecutor();
+			if(executorService != null) {
+				context.setProcessPermits(new Semaphore(numberOfThreads));
+			} else {
+				logger.info("Virtual threads are not supported by the JVM, platform threads are used instead.");
+			}
+		}
+		if(executorService == null) {
+			executorService = Executors.newFixedThreadPool(numberOfThreads, new BatchProcessThreadFactory(THREAD_PREFIX));
+		}
+		try {
+			/*
+			 * Submit in the scheduled order, but keep the futures in input order.
+			 */
+			List<Future<IProcessingInfo>> futures = new ArrayList<Future<IProcessingInfo>>(Collections.<Future<IProcessingInfo>> nCopies(massSpectrumInputs.size(), null));
+			for(int index : getOrder(context)) {
+				IMassSpectrumInputEntry massSpectrumInput = massSpectrumInputs.get(index);
+				futures.set(index, executorService.submit(() -> processInputEntry(massSpectrumInput, context)));
+			}
+			/*
+			 * The pending and discovered files are submitted while the workers already process the first ones.
+			 */
+			IProcessingInfo discoveryInfo;
+			try (InputSourceDiscovery inputSourceDiscovery = new InputSourceDiscovery(context)) {
+				while(inputSourceDiscovery.hasNext()) {
+					IMassSpectrumInputEntry massSpectrumInput = inputSourceDiscovery.next();
+					massSpectrumInputs.add(massSpectrumInput);
+					futures.add(executorService.submit(() -> processInputEntry(massSpectrumInput, context)));
+				}
+				discoveryInfo = inputSourceDiscovery.getProcessingInfo();
+			}
+			/*
+			 * Merge the results deterministically in input order.
+			 */
+			for(int index = 0; index < futures.size(); index++) {
 				try {
-					IMassSpectra massSpectra = loadMassSpectra(massSpectrumInputFile, batchProcessingInfo, monitor);
-					processMassSpectra(massSpectra, batchProcessJob, batchProcessingInfo, monitor);
-					batchProcessingInfo.addMessage(new ProcessingMessage(MessageType.INFO, DESCRIPTION, "The file has been processed successfully: " + massSpectrumInputFile));
-				} catch(TypeCastException e) {
-					batchProcessingInfo.addErrorMessage(DESCRIPTION, "A failure occurred fetching the chromatogram: " + massSpectrumInputFile);
+					batchProcessingInfo.addMessages(futures.get(index).get());
+				} catch(ExecutionException e) {
+					logger.warn(e);
+					batchProcessingInfo.addErrorMessage(DESCRIPTION, "A failure occurred processing the file: " + massSpectrumInputs.get(index).getInputFile());
 				}
+				futures.set(index, null);
 			}
+			batchProcessingInfo.addMessages(discoveryInfo);
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			batchProcessingInfo.addErrorMessage(DESCRIPTION, "The batch process has been interrupted.");
+		} finally {
+			executorService.shutdownNow();
 		}
-		return batchProcessingInfo;
 	}
 
-	private IMassSpectra loadMassSpectra(File massSpectrumInputFile, IProcessingInfo batchProcessingInfo, IProgressMonitor monitor) throws TypeCastException {
+	/**
+	 * Returns true if input entries are still being read from the job file.
+	 * A read failure is reported when the pending input entries are processed.
+	 * 
+	 * @param batchProcessJob
+	 * @return boolean
+	 */
+	private boolean hasPendingInputEntries(IBatchProcessJob batchProcessJob) {
+
+		try {
+			return batchProcessJob.getPendingMassSpectrumInputEntries().hasNext();
+		} catch(UncheckedIOException e) {
+			return true;
+		}
+	}
+
+	/**
+	 * Reads the input entries that are still pending into the input entries of the job.
+	 * 
+	 * @param batchProcessJob
+	 * @param batchProcessingInfo
+	 */
+	private void readPendingInputEntries(IBatchProcessJob batchProcessJob, IProcessingInfo batchProcessingInfo) {
+
+		try {
+			Iterator<IMassSpectrumInputEntry> pendingInputEntries = batchProcessJob.getPendingMassSpectrumInputEntries();
+			while(pendingInputEntries.hasNext()) {
+				batchProcessJob.getMassSpectrumInputEntries().add(pendingInputEntries.next());
+			}
+		} catch(UncheckedIOException e) {
+			logger.warn(e);
+			batchProcessingInfo.addErrorMessage(DESCRIPTION, "The input entries of the job couldn't be read completely: " + e.getCause().getMessage());
+		}
+	}
+
+	/**
+	 * Waits until the input entries that have been leased by other processes are done.
+	 * If a process dies, its leases expire and the input entries are processed here.
+	 * 
+	 * @param context
+	 * @param batchProcessingInfo
+	 */
+	private void awaitLeasedInputEntries(BatchProcessContext context, IProcessingInfo batchProcessingInfo) {
+
+		LeaseWorkQueue workQueue = context.getWorkQueue();
+		if(workQueue == null) {
+			return;
+		}
+		try {
+			List<File> leasedInputs = workQueue.getForeignLeases();
+			if(!leasedInputs.isEmpty()) {
+				logger.info("Wait for " + leasedInputs.size() + " files that are processed by other processes.");
+			}
+			while(!leasedInputs.isEmpty() && !context.getMonitor().isCanceled()) {
+				for(File leasedInput : leasedInputs) {
+					if(workQueue.isExpired(leasedInput)) {
+						batchProcessingInfo.addMessages(processInputEntry(new MassSpectrumInputEntry(leasedInput.getPath()), context));
+					}
+				}
+				Thread.sleep(LEASE_POLL_INTERVAL);
+				leasedInputs = workQueue.getForeignLeases();
+			}
+		} catch(IOException e) {
+			logger.warn(e);
+			batchProcessingInfo.addErrorMessage(DESCRIPTION, "The work queue couldn't be read: " + context.getBatchProcessSettings().getWorkQueueDirectory());
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			batchProcessingInfo.addErrorMessage(DESCRIPTION, "The batch process has been interrupted.");
+		}
+	}
+
+	/**
+	 * Loads, processes and writes the input entries in separate stages,
+	 * so that the I/O of the neighboring files overlaps with the processing.
+	 * 
+	 * @param context
+	 * @param batchProcessingInfo
+	 */
+	private void executePipeline(BatchProcessContext context, IProcessingInfo batchProcessingInfo) {
+
+		IBatchProcessSettings batchProcessSettings = context.getBatchProcessSettings();
+		BatchProcessPipeline batchProcessPipeline = new BatchProcessPipeline(this, context, getNumberOfThreads(batchProcessSettings), batchProcessSettings.getQueueCapacity());
+		batchProcessPipeline.execute(batchProcessingInfo);
+	}
+
+	/**
+	 * Returns the indices of the input entries in the order in which they shall be started.
+	 * 
+	 * @param context
+	 * @return List
+	 */
+	List<Integer> getOrder(BatchProcessContext context) {
+
+		return inputEntryScheduler.getOrder(context.getMassSpectrumInputEntries(), context.getBatchProcessSettings().getSchedulingPolicy());
+	}
+
+	/**
+	 * Loads, processes, writes and reports the given input entry.
+	 * 
+	 * @param massSpectrumInput
+	 * @param context
+	 * @return {@link IProcessingInfo}
+	 */
+	IProcessingInfo processInputEntry(IMassSpectrumInputEntry massSpectrumInput, BatchProcessContext context) {
+
+		IBatchProcessJob batchProcessJob = context.getBatchProcessJob();
+		IProcessingInfo processingInfo = context.createProcessingInfo();
+		File massSpectrumInputFile = new File(massSpectrumInput.getInputFile());
+		if(skipInputEntry(massSpectrumInputFile, context, processingInfo)) {
+			return processingInfo;
+		}
+		String name;
+		long start = System.nanoTime();
+		FileDeadline fileDeadline = createDeadline(context);
+		try {
+			/*
+			 * Stream the mass spectrum if possible.
+			 */
+			boolean streaming = context.getBatchProcessSettings().isStreaming();
+			if(streaming && streamProcessor.canStream(massSpectrumInputFile, batchProcessJob)) {
+				name = streamInputEntry(massSpectrumInputFile, context, fileDeadline, processingInfo);
+			} else {
+				if(streaming && !streamConverterSupport.isEmpty()) {
+					processingInfo.addInfoMessage(DESCRIPTION, "No stream converter is able to handle the file, it has been loaded completely: " + massSpectrumInputFile);
+				}
+				name = loadInputEntry(massSpectrumInputFile, context, fileDeadline, processingInfo);
+			}
+		} finally {
+			fileDeadline.close();
+		}
+		checkDeadline(massSpectrumInputFile, fileDeadline, processingInfo);
+		completeInputEntry(massSpectrumInputFile, name, context, processingInfo);
+		recordInputEntry(massSpectrumInputFile, start, processingInfo);
+		return processingInfo;
+	}
+
+	private String streamInputEntry(File massSpectrumInputFile, BatchProcessContext context, FileDeadline fileDeadline, IProcessingInfo processingInfo) {
+
+		String name = null;
+		try {
+			fileDeadline.enterStage(FileDeadline.STAGE_STREAM);
+			name = streamProcessor.process(massSpectrumInputFile, context, processingInfo, fileDeadline.getMonitor());
+			if(fileDeadline.isCanceled()) {
+				/*
+				 * The partial outputs have been deleted already.
+				 */
+				return name;
+			}
+			processingInfo.addMessage(new ProcessingMessage(MessageType.INFO, DESCRIPTION, "The file has been processed successfully: " + massSpectrumInputFile));
+		} catch(IOException e) {
+			logger.warn(e);
+			processingInfo.addErrorMessage(DESCRIPTION, "A failure occurred streaming the file: " + massSpectrumInputFile);
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			processingInfo.addErrorMessage(DESCRIPTION, "The processing has been interrupted: " + massSpectrumInputFile);
+		}
+		return name;
+	}
+
+	private String loadInputEntry(File massSpectrumInputFile, BatchProcessContext context, FileDeadline fileDeadline, IProcessingInfo processingInfo) {
+
+		String name = null;
+		/*
+		 * Get the mass spectrum.
+		 */
+		HeapAdmissionController admissionController = context.getAdmissionController();
+		HeapAdmissionController.Admission admission = null;
+		try {
+			/*
+			 * The outputs of a file that has been processed before are restored without loading it.
+			 */
+			String cacheKey = null;
+			if(context.getCache() != null) {
+				fileDeadline.enterStage(FileDeadline.STAGE_CACHE);
+				cacheKey = getCacheKey(massSpectrumInputFile, context, processingInfo);
+				name = restoreOutputs(cacheKey, context);
+				fileDeadline.leaveStage();
+				if(name != null) {
+					processingInfo.addMessage(new ProcessingMessage(MessageType.INFO, DESCRIPTION, "The file has been restored from the cache: " + massSpectrumInputFile));
+					return name;
+				}
+			}
+			if(admissionController != null) {
+				admission = admissionController.admit(massSpectrumInputFile);
+			}
+			fileDeadline.enterStage(FileDeadline.STAGE_LOAD);
+			IMassSpectra massSpectra = loadMassSpectra(massSpectrumInputFile, processingInfo, fileDeadline.getMonitor());
+			fileDeadline.leaveStage();
+			if(admission != null && massSpectra != null) {
+				admissionController.update(admission, massSpectra);
+			}
+			if(massSpectra != null) {
+				name = massSpectra.getName();
+			}
+			if(processMassSpectra(massSpectra, cacheKey, context, fileDeadline, processingInfo)) {
+				processingInfo.addMessage(new ProcessingMessage(MessageType.INFO, DESCRIPTION, "The file has been processed successfully: " + massSpectrumInputFile));
+			} else {
+				addCanceledMessage(massSpectrumInputFile, fileDeadline, processingInfo);
+			}
+		} catch(TypeCastException e) {
+			processingInfo.addErrorMessage(DESCRIPTION, "A failure occurred fetching the chromatogram: " + massSpectrumInputFile);
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			processingInfo.addErrorMessage(DESCRIPTION, "The processing has been interrupted: " + massSpectrumInputFile);
+		} finally {
+			if(admission != null) {
+				admissionController.release(admission);
+			}
+		}
+		return name;
+	}
+
+	/**
+	 * Returns the deadline of a file. Its clock starts when the first stage works on the file.
+	 * 
+	 * @param context
+	 * @return {@link FileDeadline}
+	 */
+	FileDeadline createDeadline(BatchProcessContext context) {
+
+		IBatchProcessSettings batchProcessSettings = context.getBatchProcessSettings();
+		return new FileDeadline(context.getWatchdog(), context.getMonitor(), batchProcessSettings.getFileTimeout() * MILLISECONDS, batchProcessSettings.getStageTimeout() * MILLISECONDS, context.getMetrics());
+	}
+
+	/**
+	 * Adds an error if a timeout of the file has expired.
+	 * 
+	 * @param massSpectrumInputFile
+	 * @param fileDeadline
+	 * @param processingInfo
+	 */
+	void checkDeadline(File massSpectrumInputFile, FileDeadline fileDeadline, IProcessingInfo processingInfo) {
+
+		if(fileDeadline.isTimedOut()) {
+			processingInfo.addErrorMessage(DESCRIPTION, "The file has timed out in the " + fileDeadline.getTimedOutStage() + " stage and has been canceled: " + massSpectrumInputFile);
+		}
+	}
+
+	/**
+	 * Adds an error if the batch process has been canceled while the file was processed.
+	 * An expired timeout is reported by {@link #checkDeadline(File, FileDeadline, IProcessingInfo)}.
+	 * 
+	 * @param massSpectrumInputFile
+	 * @param fileDeadline
+	 * @param processingInfo
+	 */
+	void addCanceledMessage(File massSpectrumInputFile, FileDeadline fileDeadline, IProcessingInfo processingInfo) {
+
+		if(fileDeadline.isCanceled() && !fileDeadline.isTimedOut()) {
+			processingInfo.addErrorMessage(DESCRIPTION, "The processing of the file has been canceled: " + massSpectrumInputFile);
+		}
+	}
+
+	/**
+	 * Records the timing of a successfully processed file to refine the scheduling.
+	 * 
+	 * @param massSpectrumInputFile
+	 * @param start
+	 * @param processingInfo
+	 */
+	private void recordInputEntry(File massSpectrumInputFile, long start, IProcessingInfo processingInfo) {
+
+		if(!processingInfo.hasErrorMessages()) {
+			inputEntryScheduler.record(massSpectrumInputFile, System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Returns true if the input file shall not be processed, e.g. because
+	 * the batch process has been canceled or the outputs are up to date.
+	 * 
+	 * @param massSpectrumInputFile
+	 * @param context
+	 * @param processingInfo
+	 * @return boolean
+	 */
+	boolean skipInputEntry(File massSpectrumInputFile, BatchProcessContext context, IProcessingInfo processingInfo) {
+
+		if(context.getMonitor().isCanceled()) {
+			processingInfo.addWarnMessage(DESCRIPTION, "The batch process has been canceled, the file has been skipped: " + massSpectrumInputFile);
+			return true;
+		}
+		IncrementalManifest incrementalManifest = context.getIncrementalManifest();
+		if(incrementalManifest != null && incrementalManifest.isUpToDate(massSpectrumInputFile)) {
+			processingInfo.addInfoMessage(DESCRIPTION, "The file is up to date and has been skipped: " + massSpectrumInputFile);
+			return true;
+		}
+		/*
+		 * The watch mode always skips the completed files, otherwise the directories
+		 * listed again after lost events or a restart would be processed again.
+		 */
+		BatchProcessJournal batchProcessJournal = context.getBatchProcessJournal();
+		if(batchProcessJournal != null && isKeepJournal(context.getBatchProcessSettings()) && batchProcessJournal.isCompleted(massSpectrumInputFile)) {
+			processingInfo.addInfoMessage(DESCRIPTION, "The file has been completed already and has been skipped: " + massSpectrumInputFile);
+			return true;
+		}
+		/*
+		 * Claim the file last, so that a skipped file doesn't keep its lease.
+		 */
+		LeaseWorkQueue workQueue = context.getWorkQueue();
+		if(workQueue != null) {
+			try {
+				switch(workQueue.claim(massSpectrumInputFile)) {
+					case LEASED:
+						processingInfo.addInfoMessage(DESCRIPTION, "The file is processed by another process and has been skipped: " + massSpectrumInputFile);
+						return true;
+					case DONE:
+						processingInfo.addInfoMessage(DESCRIPTION, "The file has been completed by another process and has been skipped: " + massSpectrumInputFile);
+						return true;
+					default:
+						break;
+				}
+			} catch(IOException e) {
+				logger.warn(e);
+				processingInfo.addErrorMessage(DESCRIPTION, "The file couldn't be claimed in the work queue and has been skipped: " + massSpectrumInputFile);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Records the result of the processed input file.
+	 * 
+	 * @param massSpectrumInputFile
+	 * @param name
+	 *            the name of the mass spectra, used for the output files
+	 * @param context
+	 * @param processingInfo
+	 */
+	void completeInputEntry(File massSpectrumInputFile, String name, BatchProcessContext context, IProcessingInfo processingInfo) {
+
+		context.getMetrics().addFile(massSpectrumInputFile.length(), processingInfo.hasErrorMessages());
+		LeaseWorkQueue workQueue = context.getWorkQueue();
+		if(workQueue != null) {
+			/*
+			 * A failed file is done as well, otherwise the processes would retry it forever.
+			 */
+			try {
+				workQueue.complete(massSpectrumInputFile);
+			} catch(IOException e) {
+				logger.warn(e);
+				processingInfo.addWarnMessage(DESCRIPTION, "The file couldn't be marked as done in the work queue: " + massSpectrumInputFile);
+			}
+		}
+		if(processingInfo.hasErrorMessages()) {
+			return;
+		}
+		IncrementalManifest incrementalManifest = context.getIncrementalManifest();
+		if(incrementalManifest != null) {
+			incrementalManifest.update(massSpectrumInputFile);
+		}
+		BatchProcessJournal batchProcessJournal = context.getBatchProcessJournal();
+		if(batchProcessJournal != null) {
+			List<File> outputFiles = name != null ? getOutputFiles(name, context) : new ArrayList<File>();
+			try {
+				batchProcessJournal.append(massSpectrumInputFile, outputFiles);
+			} catch(IOException e) {
+				logger.warn(e);
+				processingInfo.addWarnMessage(DESCRIPTION, "The file couldn't be added to the journal: " + massSpectrumInputFile);
+			}
+		}
+	}
+
+	private void openJournal(BatchProcessContext context, IProcessingInfo batchProcessingInfo) {
+
+		IBatchProcessSettings batchProcessSettings = context.getBatchProcessSettings();
+		try {
+			context.setBatchProcessJournal(BatchProcessJournal.open(new File(batchProcessSettings.getJournalFile()), isKeepJournal(batchProcessSettings)));
+		} catch(IOException e) {
+			logger.warn(e);
+			batchProcessingInfo.addWarnMessage(DESCRIPTION, "The journal couldn't be opened, the progress won't be recorded: " + batchProcessSettings.getJournalFile());
+		}
+	}
+
+	private boolean isKeepJournal(IBatchProcessSettings batchProcessSettings) {
+
+		return batchProcessSettings.isResume() || batchProcessSettings.isWatch();
+	}
+
+	private void closeJournal(BatchProcessContext context, IProcessingInfo batchProcessingInfo) {
+
+		BatchProcessJournal batchProcessJournal = context.getBatchProcessJournal();
+		if(batchProcessJournal != null) {
+			try {
+				batchProcessJournal.close();
+			} catch(IOException e) {
+				logger.warn(e);
+				batchProcessingInfo.addErrorMessage(DESCRIPTION, "The journal couldn't be closed.");
+			}
+		}
+	}
+
+	/**
+	 * Returns the key of the input in the cache or null if no cache is used.
+	 * 
+	 * @param massSpectrumInputFile
+	 * @param context
+	 * @param processingInfo
+	 * @return String
+	 */
+	String getCacheKey(File massSpectrumInputFile, BatchProcessContext context, IProcessingInfo processingInfo) {
+
+		MassSpectraCache cache = context.getCache();
+		if(cache == null) {
+			return null;
+		}
+		try {
+			return cache.getKey(massSpectrumInputFile);
+		} catch(IOException e) {
+			logger.warn(e);
+			processingInfo.addWarnMessage(DESCRIPTION, "The file couldn't be looked up in the cache: " + massSpectrumInputFile);
+			return null;
+		}
+	}
+
+	/**
+	 * Restores the outputs from the cache and returns the name of the mass spectra or null if they are not cached.
+	 * 
+	 * @param cacheKey
+	 * @param context
+	 * @return String
+	 */
+	String restoreOutputs(String cacheKey, BatchProcessContext context) {
+
+		if(cacheKey == null) {
+			return null;
+		}
+		String name = context.getCache().restore(cacheKey, restoredName -> getOutputFiles(restoredName, context));
+		context.getMetrics().addCacheLookup(name != null);
+		return name;
+	}
+
+	/**
+	 * Caches the written outputs, unless the processing has failed.
+	 * 
+	 * @param cacheKey
+	 * @param name
+	 * @param context
+	 * @param processingInfo
+	 */
+	void storeOutputs(String cacheKey, String name, BatchProcessContext context, IProcessingInfo processingInfo) {
+
+		if(cacheKey == null || name == null || processingInfo.hasErrorMessages()) {
+			return;
+		}
+		List<File> outputFiles = getOutputFiles(name, context);
+		for(File outputFile : outputFiles) {
+			if(!outputFile.isFile()) {
+				/*
+				 * The converter has written the output elsewhere, hence it couldn't be restored.
+				 */
+				return;
+			}
+		}
+		try {
+			context.getCache().put(cacheKey, name, outputFiles);
+		} catch(IOException e) {
+			logger.warn(e);
+			processingInfo.addWarnMessage(DESCRIPTION, "The outputs couldn't be cached: " + name);
+		}
+	}
+
+	/**
+	 * Returns the first process entry whose processor doesn't report its settings or null if all settings are known.
+	 * 
+	 * @param batchProcessJob
+	 * @return {@link IMassSpectrumProcessEntry}
+	 */
+	private IMassSpectrumProcessEntry getProcessEntryWithUnknownSettings(IBatchProcessJob batchProcessJob) {
+
+		for(IMassSpectrumProcessEntry processEntry : batchProcessJob.getMassSpectrumProcessEntries()) {
+			String settingsFingerprint = processTypeSupport.getSettingsFingerprint(processEntry);
+			if(settingsFingerprint == null || settingsFingerprint.isEmpty()) {
+				return processEntry;
+			}
+		}
+		return null;
+	}
+
+	private void openCache(BatchProcessContext context, IProcessingInfo batchProcessingInfo) {
+
+		IBatchProcessSettings batchProcessSettings = context.getBatchProcessSettings();
+		IBatchProcessJob batchProcessJob = context.getBatchProcessJob();
+		if(!batchProcessJob.getMassSpectrumReportEntries().isEmpty()) {
+			/*
+			 * Only the outputs are cached, the reports need the processed mass spectra.
+			 */
+			batchProcessingInfo.addWarnMessage(DESCRIPTION, "The cache isn't used, the report entries need the processed mass spectra.");
+			return;
+		}
+		IMassSpectrumProcessEntry unknownProcessEntry = getProcessEntryWithUnknownSettings(batchProcessJob);
+		if(unknownProcessEntry != null) {
+			/*
+			 * Results of processors with unknown settings could be stale.
+			 */
+			batchProcessingInfo.addWarnMessage(DESCRIPTION, "The cache isn't used, the settings of the processor are unknown: " + unknownProcessEntry.getProcessCategory() + " " + unknownProcessEntry.getProcessorId());
+			return;
+		}
+		StringBuilder jobFingerprint = new StringBuilder();
+		for(IMassSpectrumProcessEntry processEntry : batchProcessJob.getMassSpectrumProcessEntries()) {
+			jobFingerprint.append(processEntry.getProcessCategory()).append('\0');
+			jobFingerprint.append(processEntry.getProcessorId()).append('\0');
+			jobFingerprint.append(processTypeSupport.getSettingsFingerprint(processEntry)).append('\n');
+		}
+		/*
+		 * The output folders don't change the written bytes.
+		 */
+		for(IMassSpectrumOutputEntry massSpectrumOutput : batchProcessJob.getMassSpectrumOutputEntries()) {
+			jobFingerprint.append(massSpectrumOutput.getConverterId()).append('\n');
+		}
+		try {
+			context.setCache(new MassSpectraCache(new File(batchProcessSettings.getCacheDirectory()), batchProcessSettings.getCacheSize() * MEGABYTE, jobFingerprint.toString()));
+		} catch(IOException e) {
+			logger.warn(e);
+			batchProcessingInfo.addWarnMessage(DESCRIPTION, "The cache couldn't be opened, all files will be processed: " + batchProcessSettings.getCacheDirectory());
+		}
+	}
+
+	private void openWorkQueue(BatchProcessContext context, IProcessingInfo batchProcessingInfo) {
+
+		IBatchProcessSettings batchProcessSettings = context.getBatchProcessSettings();
+		try {
+			String jobFingerprint = IncrementalManifest.getFingerprint(context.getBatchProcessJob(), processTypeSupport);
+			context.setWorkQueue(new LeaseWorkQueue(new File(batchProcessSettings.getWorkQueueDirectory()), batchProcessSettings.getLeaseTimeout() * MILLISECONDS, jobFingerprint));
+		} catch(IOException e) {
+			logger.warn(e);
+			batchProcessingInfo.addWarnMessage(DESCRIPTION, "The work queue couldn't be opened, all files will be processed: " + batchProcessSettings.getWorkQueueDirectory());
+		}
+	}
+
+	private void loadTimings(IBatchProcessJob batchProcessJob) {
+
+		File file = InputEntryScheduler.getFile(batchProcessJob);
+		if(file != null) {
+			try {
+				inputEntryScheduler.load(file);
+			} catch(IOException e) {
+				/*
+				 * The scheduling falls back to the file sizes.
+				 */
+				logger.warn(e);
+			}
+		}
+	}
+
+	private void saveTimings(IBatchProcessJob batchProcessJob, IProcessingInfo batchProcessingInfo) {
+
+		File file = InputEntryScheduler.getFile(batchProcessJob);
+		if(file != null) {
+			try {
+				inputEntryScheduler.save(file);
+			} catch(IOException e) {
+				logger.warn(e);
+				batchProcessingInfo.addWarnMessage(DESCRIPTION, "The timings of the scheduling couldn't be written.");
+			}
+		}
+	}
+
+	private void loadIncrementalManifest(BatchProcessContext context, IProcessingInfo batchProcessingInfo) {
+
+		IMassSpectrumProcessEntry unknownProcessEntry = getProcessEntryWithUnknownSettings(context.getBatchProcessJob());
+		if(unknownProcessEntry != null) {
+			/*
+			 * The inputs would be skipped, although the settings of the processor could have changed.
+			 */
+			batchProcessingInfo.addWarnMessage(DESCRIPTION, "The incremental mode isn't used, the settings of the processor are unknown: " + unknownProcessEntry.getProcessCategory() + " " + unknownProcessEntry.getProcessorId());
+			return;
+		}
+		try {
+			IncrementalManifest incrementalManifest = IncrementalManifest.load(context.getBatchProcessJob(), processTypeSupport);
+			if(incrementalManifest == null) {
+				batchProcessingInfo.addWarnMessage(DESCRIPTION, "The incremental mode requires an output entry, all files will be processed.");
+			}
+			context.setIncrementalManifest(incrementalManifest);
+		} catch(IOException e) {
+			logger.warn(e);
+			batchProcessingInfo.addWarnMessage(DESCRIPTION, "The manifest of the incremental mode couldn't be read, all files will be processed.");
+		}
+	}
+
+	private void saveIncrementalManifest(BatchProcessContext context, IProcessingInfo batchProcessingInfo) {
+
+		IncrementalManifest incrementalManifest = context.getIncrementalManifest();
+		if(incrementalManifest != null) {
+			try {
+				incrementalManifest.save();
+			} catch(IOException e) {
+				logger.warn(e);
+				batchProcessingInfo.addErrorMessage(DESCRIPTION, "The manifest of the incremental mode couldn't be written.");
+			}
+		}
+	}
+
+	void acquire(BatchProcessContext context) throws InterruptedException {
+
+		Semaphore processPermits = context.getProcessPermits();
+		if(processPermits != null) {
+			processPermits.acquire();
+		}
+	}
+
+	void release(BatchProcessContext context) {
+
+		Semaphore processPermits = context.getProcessPermits();
+		if(processPermits != null) {
+			processPermits.release();
+		}
+	}
+
+	/**
+	 * Returns the size of the worker pool, which is by default the number of available processors.
+	 * 
+	 * @param batchProcessSettings
+	 * @return int
+	 */
+	private int getNumberOfThreads(IBatchProcessSettings batchProcessSettings) {
+
+		int numberOfThreads = batchProcessSettings.getNumberOfThreads();
+		if(numberOfThreads <= 0) {
+			numberOfThreads = Runtime.getRuntime().availableProcessors();
+		}
+		return numberOfThreads;
+	}
+
+	IMassSpectra loadMassSpectra(File massSpectrumInputFile, IProcessingInfo batchProcessingInfo, IProgressMonitor monitor) throws TypeCastException {
 
 		IMassSpectrumImportConverterProcessingInfo processingInfo = MassSpectrumConverter.convert(massSpectrumInputFile, monitor);
 		batchProcessingInfo.addMessages(processingInfo);
@@ -85,17 +980,59 @@ public class BatchProcess implements IBatchProcess {
 		return massSpectra;
 	}
 
-	private void processMassSpectra(IMassSpectra massSpectra, IBatchProcessJob batchProcessJob, IProcessingInfo batchProcessingInfo, IProgressMonitor monitor) {
+	/**
+	 * Processes, writes and reports the mass spectra. The following stages are skipped once
+	 * a timeout has expired or the batch process has been canceled, hence no partially
+	 * processed mass spectra are written.
+	 * 
+	 * @param massSpectra
+	 * @param cacheKey
+	 * @param context
+	 * @param fileDeadline
+	 * @param batchProcessingInfo
+	 * @return boolean true if all stages have been completed
+	 * @throws InterruptedException
+	 */
+	private boolean processMassSpectra(IMassSpectra massSpectra, String cacheKey, BatchProcessContext context, FileDeadline fileDeadline, IProcessingInfo batchProcessingInfo) throws InterruptedException {
 
+		IBatchProcessJob batchProcessJob = context.getBatchProcessJob();
+		IProgressMonitor monitor = fileDeadline.getMonitor();
 		/*
 		 * The mass spectrum must be not null.
 		 */
 		if(massSpectra != null) {
-			processMassSpectrumEntry(massSpectra, batchProcessJob, batchProcessingInfo, monitor);
-			writeMassSpectrumOutputEntries(massSpectra, batchProcessJob, batchProcessingInfo, monitor);
+			if(fileDeadline.isCanceled()) {
+				return false;
+			}
+			acquire(context);
+			try {
+				fileDeadline.enterStage(FileDeadline.STAGE_PROCESS);
+				processMassSpectrumEntry(massSpectra, context, batchProcessingInfo, monitor);
+			} finally {
+				release(context);
+			}
+			if(fileDeadline.isCanceled()) {
+				return false;
+			}
+			fileDeadline.enterStage(FileDeadline.STAGE_WRITE);
+			writeMassSpectrumOutputEntries(massSpectra, context, batchProcessingInfo, monitor);
+			/*
+			 * Partially written outputs must not be cached.
+			 */
+			if(fileDeadline.isCanceled()) {
+				return false;
+			}
+			if(cacheKey != null) {
+				fileDeadline.enterStage(FileDeadline.STAGE_CACHE);
+				storeOutputs(cacheKey, massSpectra.getName(), context, batchProcessingInfo);
+			}
+			fileDeadline.enterStage(FileDeadline.STAGE_REPORT);
 			processMassSpectrumReportEntries(massSpectra, batchProcessJob, batchProcessingInfo, monitor);
+			fileDeadline.leaveStage();
+			return !fileDeadline.isCanceled();
 		} else {
 			batchProcessingInfo.addErrorMessage(DESCRIPTION, "The chromatogram must be not null.");
+			return false;
 		}
 	}
 
@@ -103,53 +1040,127 @@ public class BatchProcess implements IBatchProcess {
 	 * Process the mass spectra selection with each process entry.
 	 * 
 	 * @param chromatogramSelection
-	 * @param batchProcessJob
+	 * @param context
 	 * @param batchProcessReport
 	 * @param monitor
 	 */
-	private void processMassSpectrumEntry(IMassSpectra massSpectra, IBatchProcessJob batchProcessJob, IProcessingInfo batchProcessingInfo, IProgressMonitor monitor) {
+	void processMassSpectrumEntry(IMassSpectra massSpectra, BatchProcessContext context, IProcessingInfo batchProcessingInfo, IProgressMonitor monitor) {
 
-		for(IMassSpectrumProcessEntry processEntry : batchProcessJob.getMassSpectrumProcessEntries()) {
-			for(IScanMSD massSpectrum : massSpectra.getList()) {
-				if(massSpectrum == null) {
-					batchProcessingInfo.addErrorMessage(DESCRIPTION, "The mass spectrum must not be null.");
-				} else {
-					IProcessingInfo processingInfo = processTypeSupport.applyProcessor(massSpectrum, processEntry, monitor);
-					batchProcessingInfo.addMessages(processingInfo);
-				}
-			}
+		List<IMassSpectrumProcessEntry> processEntries = context.getBatchProcessJob().getMassSpectrumProcessEntries();
+		BatchProcessMetrics metrics = context.getMetrics();
+		metrics.addScans(massSpectra.size());
+		switch(context.getBatchProcessSettings().getScanProcessingMode()) {
+			case FUSED:
+				scanProcessor.processFused(massSpectra, processEntries, metrics, batchProcessingInfo, monitor);
+				break;
+			case PARALLEL:
+				scanProcessor.processParallel(massSpectra, processEntries, metrics, batchProcessingInfo, monitor);
+				break;
+			default:
+				scanProcessor.processSequential(massSpectra, processEntries, metrics, batchProcessingInfo, monitor);
+				break;
 		}
 	}
 
 	/**
 	 * Write the mass spectrum output entries.
 	 * 
-	 * @param chromatogramSelection
-	 * @param batchProcessJob
-	 * @param batchProcessReport
+	 * @param massSpectra
+	 * @param context
+	 * @param batchProcessingInfo
 	 * @param monitor
+	 * @throws InterruptedException
 	 */
-	private void writeMassSpectrumOutputEntries(IMassSpectra massSpectra, IBatchProcessJob batchProcessJob, IProcessingInfo batchProcessingInfo, IProgressMonitor monitor) {
+	void writeMassSpectrumOutputEntries(IMassSpectra massSpectra, BatchProcessContext context, IProcessingInfo batchProcessingInfo, IProgressMonitor monitor) throws InterruptedException {
 
+		List<IMassSpectrumOutputEntry> massSpectrumOutputs = context.getBatchProcessJob().getMassSpectrumOutputEntries();
+		MassSpectrumOutputWriter outputWriter = context.getOutputWriter();
+		if(outputWriter != null) {
+			outputWriter.write(massSpectra, massSpectrumOutputs, batchProcessingInfo, monitor);
+			return;
+		}
 		/*
 		 * Write the mass spectrum to each listed output format.
 		 */
-		IProcessingInfo processingInfo = null;
-		for(IMassSpectrumOutputEntry massSpectrumOutput : batchProcessJob.getMassSpectrumOutputEntries()) {
-			/*
-			 * Append the "/" or "\" to the end of the folder if not exists.
-			 */
-			String outputFolder = massSpectrumOutput.getOutputFolder();
-			if(!outputFolder.endsWith(File.separator)) {
-				outputFolder += File.separator;
+		for(IMassSpectrumOutputEntry massSpectrumOutput : massSpectrumOutputs) {
+			if(monitor.isCanceled()) {
+				break;
 			}
-			/*
-			 * Write the mass spectrum.
-			 */
-			File massSpectrumOutputFile = new File(outputFolder + massSpectra.getName());
+			batchProcessingInfo.addMessages(writeMassSpectrumOutputEntry(massSpectra, massSpectrumOutput, monitor));
+		}
+	}
+
+	/**
+	 * Writes the mass spectra to the output entry. If the writing is canceled or interrupted,
+	 * the partially written output file is deleted, so that it isn't taken for a valid result.
+	 * 
+	 * @param massSpectra
+	 * @param massSpectrumOutput
+	 * @param monitor
+	 * @return {@link IProcessingInfo}
+	 */
+	IProcessingInfo writeMassSpectrumOutputEntry(IMassSpectra massSpectra, IMassSpectrumOutputEntry massSpectrumOutput, IProgressMonitor monitor) {
+
+		File massSpectrumOutputFile = getOutputFile(massSpectrumOutput, massSpectra.getName());
+		IProcessingInfo processingInfo = null;
+		boolean completed = false;
+		try {
 			processingInfo = MassSpectrumConverter.convert(massSpectrumOutputFile, massSpectra, true, massSpectrumOutput.getConverterId(), monitor);
-			batchProcessingInfo.addMessages(processingInfo);
+			completed = !monitor.isCanceled() && !Thread.currentThread().isInterrupted();
+		} finally {
+			if(!completed) {
+				deletePartialOutput(massSpectrumOutputFile);
+			}
+		}
+		if(processingInfo == null) {
+			processingInfo = new ProcessingInfo();
+		}
+		if(!completed) {
+			processingInfo.addErrorMessage(DESCRIPTION, "The writing has been canceled, the partial output has been deleted: " + massSpectrumOutputFile);
+		}
+		return processingInfo;
+	}
+
+	/**
+	 * Deletes an output file that has not been written completely.
+	 * 
+	 * @param massSpectrumOutputFile
+	 */
+	void deletePartialOutput(File massSpectrumOutputFile) {
+
+		try {
+			Files.deleteIfExists(massSpectrumOutputFile.toPath());
+		} catch(IOException e) {
+			logger.warn(e);
+		}
+	}
+
+	/**
+	 * Returns the output files of the mass spectra in the order of the output entries.
+	 * 
+	 * @param name
+	 * @param context
+	 * @return List<File>
+	 */
+	List<File> getOutputFiles(String name, BatchProcessContext context) {
+
+		List<File> outputFiles = new ArrayList<File>();
+		for(IMassSpectrumOutputEntry massSpectrumOutput : context.getBatchProcessJob().getMassSpectrumOutputEntries()) {
+			outputFiles.add(getOutputFile(massSpectrumOutput, name));
+		}
+		return outputFiles;
+	}
+
+	File getOutputFile(IMassSpectrumOutputEntry massSpectrumOutput, String name) {
+
+		/*
+		 * Append the "/" or "\" to the end of the folder if not exists.
+		 */
+		String outputFolder = massSpectrumOutput.getOutputFolder();
+		if(!outputFolder.endsWith(File.separator)) {
+			outputFolder += File.separator;
 		}
+		return new File(outputFolder + name);
 	}
 
 	/**
@@ -160,7 +1171,7 @@ public class BatchProcess implements IBatchProcess {
 	 * @param batchProcessReport
 	 * @param monitor
 	 */
-	private void processMassSpectrumReportEntries(IMassSpectra massSpectra, IBatchProcessJob batchProcessJob, IProcessingInfo batchProcessingInfo, IProgressMonitor monitor) {
+	void processMassSpectrumReportEntries(IMassSpectra massSpectra, IBatchProcessJob batchProcessJob, IProcessingInfo batchProcessingInfo, IProgressMonitor monitor) {
 
 		/*
 		 * Report the mass spectrum by each selected report supplier.
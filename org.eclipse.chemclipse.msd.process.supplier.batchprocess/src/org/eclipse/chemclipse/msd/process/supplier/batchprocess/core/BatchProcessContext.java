@@ -0,0 +1,235 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Lablicate GmbH.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * Lablicate GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.chemclipse.msd.process.supplier.batchprocess.core;
+
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IBatchProcessJob;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IBatchProcessSettings;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IMassSpectrumInputEntry;
+import org.eclipse.chemclipse.processing.core.IProcessingInfo;
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * The state of one execution of a batch process job, shared by all workers.
+ * 
+ */
+class BatchProcessContext {
+
+	private final IBatchProcessJob batchProcessJob;
+	private final IProgressMonitor monitor;
+	private final IProcessingInfo batchProcessingInfo;
+	private final BatchProcessMetrics metrics = new BatchProcessMetrics();
+	private IncrementalManifest incrementalManifest;
+	private BatchProcessJournal batchProcessJournal;
+	private Semaphore processPermits;
+	private MassSpectrumOutputWriter outputWriter;
+	private HeapAdmissionController admissionController;
+	private ScheduledExecutorService watchdog;
+	private InputEntrySharding sharding;
+	private LeaseWorkQueue workQueue;
+	private MassSpectraCache cache;
+	private List<IMassSpectrumInputEntry> massSpectrumInputEntries;
+
+	BatchProcessContext(IBatchProcessJob batchProcessJob, IProgressMonitor monitor, IProcessingInfo batchProcessingInfo) {
+		this.batchProcessJob = batchProcessJob;
+		this.monitor = monitor;
+		this.batchProcessingInfo = batchProcessingInfo;
+		this.massSpectrumInputEntries = batchProcessJob.getMassSpectrumInputEntries();
+	}
+
+	IBatchProcessJob getBatchProcessJob() {
+
+		return batchProcessJob;
+	}
+
+	IBatchProcessSettings getBatchProcessSettings() {
+
+		return batchProcessJob.getBatchProcessSettings();
+	}
+
+	IProgressMonitor getMonitor() {
+
+		return monitor;
+	}
+
+	/**
+	 * Returns a processing info for the messages of a single file.
+	 * It is bounded like the processing info of the batch process.
+	 * 
+	 * @return {@link IProcessingInfo}
+	 */
+	IProcessingInfo createProcessingInfo() {
+
+		return AggregatingProcessingInfo.createPart(batchProcessingInfo);
+	}
+
+	BatchProcessMetrics getMetrics() {
+
+		return metrics;
+	}
+
+	/**
+	 * Returns the manifest of the incremental mode or null if the mode is not active.
+	 * 
+	 * @return {@link IncrementalManifest}
+	 */
+	IncrementalManifest getIncrementalManifest() {
+
+		return incrementalManifest;
+	}
+
+	void setIncrementalManifest(IncrementalManifest incrementalManifest) {
+
+		this.incrementalManifest = incrementalManifest;
+	}
+
+	/**
+	 * Returns the journal of completed inputs or null if no journal is written.
+	 * 
+	 * @return {@link BatchProcessJournal}
+	 */
+	BatchProcessJournal getBatchProcessJournal() {
+
+		return batchProcessJournal;
+	}
+
+	void setBatchProcessJournal(BatchProcessJournal batchProcessJournal) {
+
+		this.batchProcessJournal = batchProcessJournal;
+	}
+
+	/**
+	 * Returns the permits that bound the concurrent processing or null if it is not bounded.
+	 * 
+	 * @return {@link Semaphore}
+	 */
+	Semaphore getProcessPermits() {
+
+		return processPermits;
+	}
+
+	void setProcessPermits(Semaphore processPermits) {
+
+		this.processPermits = processPermits;
+	}
+
+	/**
+	 * Returns the writer of concurrent outputs or null if the outputs are written one after another.
+	 * 
+	 * @return {@link MassSpectrumOutputWriter}
+	 */
+	MassSpectrumOutputWriter getOutputWriter() {
+
+		return outputWriter;
+	}
+
+	void setOutputWriter(MassSpectrumOutputWriter outputWriter) {
+
+		this.outputWriter = outputWriter;
+	}
+
+	/**
+	 * Returns the admission control of the loaded files or null if the loading is not bounded.
+	 * 
+	 * @return {@link HeapAdmissionController}
+	 */
+	HeapAdmissionController getAdmissionController() {
+
+		return admissionController;
+	}
+
+	void setAdmissionController(HeapAdmissionController admissionController) {
+
+		this.admissionController = admissionController;
+	}
+
+	/**
+	 * Returns the scheduler of the file and stage timeouts or null if there are no timeouts.
+	 * 
+	 * @return {@link ScheduledExecutorService}
+	 */
+	ScheduledExecutorService getWatchdog() {
+
+		return watchdog;
+	}
+
+	void setWatchdog(ScheduledExecutorService watchdog) {
+
+		this.watchdog = watchdog;
+	}
+
+	/**
+	 * Returns the queue shared with other processes or null if the input entries are not claimed.
+	 * 
+	 * @return {@link LeaseWorkQueue}
+	 */
+	LeaseWorkQueue getWorkQueue() {
+
+		return workQueue;
+	}
+
+	void setWorkQueue(LeaseWorkQueue workQueue) {
+
+		this.workQueue = workQueue;
+	}
+
+	/**
+	 * Returns the cache of the outputs of processed mass spectra or null if no cache is used.
+	 * 
+	 * @return {@link MassSpectraCache}
+	 */
+	MassSpectraCache getCache() {
+
+		return cache;
+	}
+
+	void setCache(MassSpectraCache cache) {
+
+		this.cache = cache;
+	}
+
+	/**
+	 * Returns the input entries of the job that are processed by this execution.
+	 * If the job is sharded, these are the input entries of the shard.
+	 * 
+	 * @return List<IMassSpectrumInputEntry>
+	 */
+	List<IMassSpectrumInputEntry> getMassSpectrumInputEntries() {
+
+		return massSpectrumInputEntries;
+	}
+
+	/**
+	 * Restricts the execution to the input entries of the given shard.
+	 * 
+	 * @param sharding
+	 */
+	void setSharding(InputEntrySharding sharding) {
+
+		this.sharding = sharding;
+		this.massSpectrumInputEntries = sharding.select(batchProcessJob.getMassSpectrumInputEntries());
+	}
+
+	/**
+	 * Returns true if the input entry that has not been known in advance belongs to this execution.
+	 * 
+	 * @param massSpectrumInput
+	 * @return boolean
+	 */
+	boolean isSelected(IMassSpectrumInputEntry massSpectrumInput) {
+
+		return sharding == null || sharding.isSelected(massSpectrumInput);
+	}
+}
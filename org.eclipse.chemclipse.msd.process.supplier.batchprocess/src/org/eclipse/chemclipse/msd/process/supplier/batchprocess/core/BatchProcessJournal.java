@@ -0,0 +1,214 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Lablicate GmbH.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * Lablicate GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.chemclipse.msd.process.supplier.batchprocess.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.chemclipse.logging.core.Logger;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.internal.support.BatchProcessThreadFactory;
+
+/**
+ * An append-only journal of the completed input files and their outputs.
+ * A crashed or interrupted batch process can be resumed from the journal.
+ * The size and modification time of each input is recorded, hence an input
+ * that has been replaced since it was completed is processed again.
+ * The journal is synced to disk in batches to limit the number of fsync calls,
+ * an entry is synced at the latest a second after it has been appended.
+ * 
+ */
+class BatchProcessJournal {
+
+	private static final Logger logger = Logger.getLogger(BatchProcessJournal.class);
+	private static final String SEPARATOR = "\t";
+	private static final String OUTPUT_SEPARATOR = "|";
+	private static final String RECORD_SEPARATOR = ";";
+	private static final char LINE_END = '\n';
+	/*
+	 * Sync after the given number of entries or the given time, whatever comes first.
+	 */
+	private static final int SYNC_ENTRIES = 32;
+	private static final long SYNC_INTERVAL = 1000L;
+	private static final String SYNC_THREAD_PREFIX = "BatchProcess-Journal";
+	//
+	private final FileChannel fileChannel;
+	/*
+	 * The record (size and modification time) of each completed input, by path.
+	 */
+	private final Map<String, String> completedInputs;
+	private final ScheduledExecutorService syncTimer;
+	private int pendingEntries = 0;
+	private long lastSync = System.currentTimeMillis();
+
+	private BatchProcessJournal(FileChannel fileChannel, Map<String, String> completedInputs) {
+		this.fileChannel = fileChannel;
+		this.completedInputs = completedInputs;
+		/*
+		 * The entries appended before a pause are synced by the timer.
+		 */
+		syncTimer = Executors.newSingleThreadScheduledExecutor(new BatchProcessThreadFactory(SYNC_THREAD_PREFIX));
+		syncTimer.scheduleWithFixedDelay(this::syncPendingEntries, SYNC_INTERVAL, SYNC_INTERVAL, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Opens the journal. If keep is false, the previous journal is discarded.
+	 * 
+	 * @param file
+	 * @param keep
+	 * @return {@link BatchProcessJournal}
+	 * @throws IOException
+	 */
+	static BatchProcessJournal open(File file, boolean keep) throws IOException {
+
+		Map<String, String> completedInputs = new HashMap<String, String>();
+		/*
+		 * Only complete lines are valid, the last line might have been torn by a crash.
+		 */
+		int validLength = 0;
+		if(keep && file.exists()) {
+			byte[] content = Files.readAllBytes(file.toPath());
+			for(int i = content.length - 1; i >= 0; i--) {
+				if(content[i] == LINE_END) {
+					validLength = i + 1;
+					break;
+				}
+			}
+			String lines = new String(content, 0, validLength, StandardCharsets.UTF_8);
+			int start = 0;
+			int end;
+			while((end = lines.indexOf(LINE_END, start)) >= 0) {
+				/*
+				 * input, record and outputs
+				 */
+				String[] values = lines.substring(start, end).split(SEPARATOR, -1);
+				if(values.length == 3 && !values[0].isEmpty()) {
+					completedInputs.put(values[0], values[1]);
+				}
+				start = end + 1;
+			}
+		}
+		File folder = file.getAbsoluteFile().getParentFile();
+		if(folder != null && !folder.exists()) {
+			folder.mkdirs();
+		}
+		/*
+		 * The torn line is removed, otherwise the next entry would be appended to it.
+		 */
+		FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		try {
+			fileChannel.truncate(validLength);
+			fileChannel.position(validLength);
+		} catch(IOException e) {
+			fileChannel.close();
+			throw e;
+		}
+		return new BatchProcessJournal(fileChannel, completedInputs);
+	}
+
+	/**
+	 * Returns true if the input has been completed and hasn't been changed since.
+	 * 
+	 * @param massSpectrumInputFile
+	 * @return boolean
+	 */
+	synchronized boolean isCompleted(File massSpectrumInputFile) {
+
+		String record = completedInputs.get(massSpectrumInputFile.getAbsolutePath());
+		return record != null && record.equals(getRecord(massSpectrumInputFile));
+	}
+
+	/**
+	 * Appends the completed input and its output files.
+	 * 
+	 * @param massSpectrumInputFile
+	 * @param outputFiles
+	 * @throws IOException
+	 */
+	synchronized void append(File massSpectrumInputFile, List<File> outputFiles) throws IOException {
+
+		String record = getRecord(massSpectrumInputFile);
+		StringBuilder builder = new StringBuilder();
+		builder.append(massSpectrumInputFile.getAbsolutePath());
+		builder.append(SEPARATOR);
+		builder.append(record);
+		builder.append(SEPARATOR);
+		for(int i = 0; i < outputFiles.size(); i++) {
+			if(i > 0) {
+				builder.append(OUTPUT_SEPARATOR);
+			}
+			builder.append(outputFiles.get(i).getAbsolutePath());
+		}
+		builder.append(LINE_END);
+		ByteBuffer buffer = ByteBuffer.wrap(builder.toString().getBytes(StandardCharsets.UTF_8));
+		while(buffer.hasRemaining()) {
+			fileChannel.write(buffer);
+		}
+		completedInputs.put(massSpectrumInputFile.getAbsolutePath(), record);
+		pendingEntries++;
+		long now = System.currentTimeMillis();
+		if(pendingEntries >= SYNC_ENTRIES || now - lastSync >= SYNC_INTERVAL) {
+			sync(now);
+		}
+	}
+
+	/**
+	 * Syncs and closes the journal.
+	 * 
+	 * @throws IOException
+	 */
+	synchronized void close() throws IOException {
+
+		syncTimer.shutdownNow();
+		try {
+			sync(System.currentTimeMillis());
+		} finally {
+			fileChannel.close();
+		}
+	}
+
+	private String getRecord(File massSpectrumInputFile) {
+
+		return massSpectrumInputFile.length() + RECORD_SEPARATOR + massSpectrumInputFile.lastModified();
+	}
+
+	private synchronized void syncPendingEntries() {
+
+		long now = System.currentTimeMillis();
+		if(fileChannel.isOpen() && now - lastSync >= SYNC_INTERVAL) {
+			try {
+				sync(now);
+			} catch(IOException e) {
+				logger.warn(e);
+			}
+		}
+	}
+
+	private void sync(long now) throws IOException {
+
+		if(pendingEntries > 0) {
+			fileChannel.force(false);
+			pendingEntries = 0;
+		}
+		lastSync = now;
+	}
+}
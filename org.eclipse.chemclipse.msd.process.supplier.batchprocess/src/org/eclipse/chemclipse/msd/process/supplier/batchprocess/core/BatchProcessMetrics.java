@@ -0,0 +1,217 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Lablicate GmbH.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * Lablicate GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.chemclipse.msd.process.supplier.batchprocess.core;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+import org.eclipse.chemclipse.logging.core.Logger;
+
+/**
+ * Collects the timings of the stages and processors and the throughput of one execution of a job.
+ * All counters are lock-free, hence they can be updated by the workers without contention.
+ * 
+ */
+class BatchProcessMetrics implements BatchProcessMetricsMXBean {
+
+	private static final Logger logger = Logger.getLogger(BatchProcessMetrics.class);
+	private static final String DOMAIN = "org.eclipse.chemclipse.msd.process.supplier.batchprocess";
+	private static final AtomicInteger EXECUTIONS = new AtomicInteger();
+	private static final double NANOS_PER_SECOND = 1000000000.0d;
+	private static final double BYTES_PER_MEGABYTE = 1024.0d * 1024.0d;
+	//
+	private final long start = System.nanoTime();
+	private final ConcurrentMap<String, LatencyHistogram> stages = new ConcurrentHashMap<String, LatencyHistogram>();
+	private final ConcurrentMap<String, LatencyHistogram> processors = new ConcurrentHashMap<String, LatencyHistogram>();
+	private final LongAdder files = new LongAdder();
+	private final LongAdder failedFiles = new LongAdder();
+	private final LongAdder scans = new LongAdder();
+	private final LongAdder bytes = new LongAdder();
+	private final LongAdder cacheHits = new LongAdder();
+	private final LongAdder cacheMisses = new LongAdder();
+	private ObjectName objectName;
+
+	LatencyHistogram getStage(String stage) {
+
+		return stages.computeIfAbsent(stage, key -> new LatencyHistogram());
+	}
+
+	LatencyHistogram getProcessor(String processorId) {
+
+		return processors.computeIfAbsent(String.valueOf(processorId), key -> new LatencyHistogram());
+	}
+
+	void addScans(int count) {
+
+		scans.add(count);
+	}
+
+	void addFile(long size, boolean failed) {
+
+		files.increment();
+		bytes.add(size);
+		if(failed) {
+			failedFiles.increment();
+		}
+	}
+
+	void addCacheLookup(boolean hit) {
+
+		if(hit) {
+			cacheHits.increment();
+		} else {
+			cacheMisses.increment();
+		}
+	}
+
+	/**
+	 * Registers the metrics at the platform MBean server.
+	 */
+	void register() {
+
+		try {
+			MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+			objectName = new ObjectName(DOMAIN + ":type=BatchProcess,execution=" + EXECUTIONS.incrementAndGet());
+			mBeanServer.registerMBean(new StandardMBean(this, BatchProcessMetricsMXBean.class, true), objectName);
+		} catch(JMException | RuntimeException e) {
+			logger.warn(e);
+			objectName = null;
+		}
+	}
+
+	void unregister() {
+
+		if(objectName != null) {
+			try {
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+			} catch(JMException | RuntimeException e) {
+				logger.warn(e);
+			}
+			objectName = null;
+		}
+	}
+
+	@Override
+	public long getFileCount() {
+
+		return files.sum();
+	}
+
+	@Override
+	public long getFailedFileCount() {
+
+		return failedFiles.sum();
+	}
+
+	@Override
+	public long getScanCount() {
+
+		return scans.sum();
+	}
+
+	@Override
+	public long getByteCount() {
+
+		return bytes.sum();
+	}
+
+	@Override
+	public long getCacheHitCount() {
+
+		return cacheHits.sum();
+	}
+
+	@Override
+	public long getCacheMissCount() {
+
+		return cacheMisses.sum();
+	}
+
+	@Override
+	public double getElapsedSeconds() {
+
+		return (System.nanoTime() - start) / NANOS_PER_SECOND;
+	}
+
+	@Override
+	public double getFilesPerSecond() {
+
+		return getRate(getFileCount());
+	}
+
+	@Override
+	public double getScansPerSecond() {
+
+		return getRate(getScanCount());
+	}
+
+	@Override
+	public double getMegabytesPerSecond() {
+
+		return getRate(getByteCount()) / BYTES_PER_MEGABYTE;
+	}
+
+	@Override
+	public Map<String, TimerStatistics> getStageStatistics() {
+
+		return getStatistics(stages);
+	}
+
+	@Override
+	public Map<String, TimerStatistics> getProcessorStatistics() {
+
+		return getStatistics(processors);
+	}
+
+	@Override
+	public String getSummary() {
+
+		StringBuilder builder = new StringBuilder();
+		builder.append(String.format("files=%d (failed=%d) scans=%d size=%.1fMB elapsed=%.1fs", getFileCount(), getFailedFileCount(), getScanCount(), getByteCount() / BYTES_PER_MEGABYTE, getElapsedSeconds()));
+		builder.append(String.format(" throughput=%.2f files/s %.1f scans/s %.2f MB/s", getFilesPerSecond(), getScansPerSecond(), getMegabytesPerSecond()));
+		if(getCacheHitCount() > 0 || getCacheMissCount() > 0) {
+			builder.append(String.format(" cache=%d hits %d misses", getCacheHitCount(), getCacheMissCount()));
+		}
+		for(Map.Entry<String, TimerStatistics> entry : getStageStatistics().entrySet()) {
+			builder.append("\nstage ").append(entry.getKey()).append(": ").append(entry.getValue());
+		}
+		for(Map.Entry<String, TimerStatistics> entry : getProcessorStatistics().entrySet()) {
+			builder.append("\nprocessor ").append(entry.getKey()).append(": ").append(entry.getValue());
+		}
+		return builder.toString();
+	}
+
+	private double getRate(long count) {
+
+		double seconds = getElapsedSeconds();
+		return seconds > 0 ? count / seconds : 0.0d;
+	}
+
+	private Map<String, TimerStatistics> getStatistics(Map<String, LatencyHistogram> histograms) {
+
+		Map<String, TimerStatistics> statistics = new TreeMap<String, TimerStatistics>();
+		for(Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+			statistics.put(entry.getKey(), entry.getValue().getStatistics());
+		}
+		return statistics;
+	}
+}
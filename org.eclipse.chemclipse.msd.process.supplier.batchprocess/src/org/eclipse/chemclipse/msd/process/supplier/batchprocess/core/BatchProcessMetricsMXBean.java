@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Lablicate GmbH.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * Lablicate GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.chemclipse.msd.process.supplier.batchprocess.core;
+
+import java.util.Map;
+
+/**
+ * The metrics of a running batch process, registered as an MXBean under the domain
+ * "org.eclipse.chemclipse.msd.process.supplier.batchprocess" while the job runs.
+ * 
+ */
+public interface BatchProcessMetricsMXBean {
+
+	/**
+	 * Returns the number of finished files, including the failed ones.
+	 * 
+	 * @return long
+	 */
+	long getFileCount();
+
+	/**
+	 * Returns the number of files that have failed.
+	 * 
+	 * @return long
+	 */
+	long getFailedFileCount();
+
+	/**
+	 * Returns the number of processed scans.
+	 * 
+	 * @return long
+	 */
+	long getScanCount();
+
+	/**
+	 * Returns the size of the finished input files in bytes.
+	 * 
+	 * @return long
+	 */
+	long getByteCount();
+
+	/**
+	 * Returns the number of files whose processed mass spectra have been found in the cache.
+	 * 
+	 * @return long
+	 */
+	long getCacheHitCount();
+
+	/**
+	 * Returns the number of files that have been processed, because they were not cached.
+	 * 
+	 * @return long
+	 */
+	long getCacheMissCount();
+
+	/**
+	 * Returns the time since the start of the job in seconds.
+	 * 
+	 * @return double
+	 */
+	double getElapsedSeconds();
+
+	double getFilesPerSecond();
+
+	double getScansPerSecond();
+
+	double getMegabytesPerSecond();
+
+	/**
+	 * Returns the timings per stage (load, process, write, report, stream).
+	 * 
+	 * @return Map
+	 */
+	Map<String, TimerStatistics> getStageStatistics();
+
+	/**
+	 * Returns the timings per processor id, measured per scan.
+	 * 
+	 * @return Map
+	 */
+	Map<String, TimerStatistics> getProcessorStatistics();
+
+	/**
+	 * Returns a human readable summary of all metrics.
+	 * 
+	 * @return String
+	 */
+	String getSummary();
+}
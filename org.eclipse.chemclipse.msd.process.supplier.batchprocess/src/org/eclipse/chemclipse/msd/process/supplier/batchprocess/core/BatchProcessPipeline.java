@@ -0,0 +1,315 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Lablicate GmbH.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * Lablicate GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.chemclipse.msd.process.supplier.batchprocess.core;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.eclipse.chemclipse.logging.core.Logger;
+import org.eclipse.chemclipse.msd.model.core.IMassSpectra;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.internal.support.BatchProcessThreadFactory;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IBatchProcessJob;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IMassSpectrumInputEntry;
+import org.eclipse.chemclipse.processing.core.IProcessingInfo;
+import org.eclipse.chemclipse.processing.core.MessageType;
+import org.eclipse.chemclipse.processing.core.ProcessingInfo;
+import org.eclipse.chemclipse.processing.core.ProcessingMessage;
+import org.eclipse.chemclipse.processing.core.exceptions.TypeCastException;
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * Executes the batch process job in three stages, connected by bounded queues:
+ * 
+ * load (1 thread) -> process (n threads) -> write and report (1 thread)
+ * 
+ * A full queue blocks the previous stage, hence at most
+ * 2 * queueCapacity + numberOfThreads + 2 files are held in memory.
+ * If a heap budget is set, the load stage additionally waits until the next file fits into it.
+ * 
+ */
+class BatchProcessPipeline {
+
+	private static final Logger logger = Logger.getLogger(BatchProcessPipeline.class);
+	private static final String DESCRIPTION = "Batch Processor";
+	private static final String THREAD_PREFIX = "BatchProcess-Pipeline";
+	/*
+	 * Marks the end of the input.
+	 */
+	private static final PipelineItem END_OF_INPUT = new PipelineItem(-1, null, null);
+	//
+	private final BatchProcess batchProcess;
+	private final BatchProcessContext context;
+	private final IBatchProcessJob batchProcessJob;
+	private final HeapAdmissionController admissionController;
+	private final int numberOfThreads;
+	private final BlockingQueue<PipelineItem> loadedQueue;
+	private final BlockingQueue<PipelineItem> processedQueue;
+	private volatile IProcessingInfo discoveryInfo = new ProcessingInfo();
+
+	BatchProcessPipeline(BatchProcess batchProcess, BatchProcessContext context, int numberOfThreads, int queueCapacity) {
+		this.batchProcess = batchProcess;
+		this.context = context;
+		this.batchProcessJob = context.getBatchProcessJob();
+		this.admissionController = context.getAdmissionController();
+		this.numberOfThreads = Math.max(1, numberOfThreads);
+		loadedQueue = new ArrayBlockingQueue<PipelineItem>(Math.max(1, queueCapacity));
+		processedQueue = new ArrayBlockingQueue<PipelineItem>(Math.max(1, queueCapacity));
+	}
+
+	/**
+	 * Runs all input entries through the pipeline. The processing infos of the
+	 * files are merged in the order of the input entries, as soon as all files
+	 * before have been written, and are dropped afterwards.
+	 * 
+	 * @param batchProcessingInfo
+	 */
+	void execute(IProcessingInfo batchProcessingInfo) {
+
+		List<IMassSpectrumInputEntry> massSpectrumInputs = context.getMassSpectrumInputEntries();
+		ExecutorService executorService = Executors.newFixedThreadPool(numberOfThreads + 2, new BatchProcessThreadFactory(THREAD_PREFIX));
+		CompletionService<Void> completionService = new ExecutorCompletionService<Void>(executorService);
+		try {
+			int numberOfStages = 0;
+			completionService.submit(() -> load(massSpectrumInputs));
+			numberOfStages++;
+			for(int i = 0; i < numberOfThreads; i++) {
+				completionService.submit(() -> process());
+				numberOfStages++;
+			}
+			completionService.submit(() -> write(batchProcessingInfo));
+			numberOfStages++;
+			/*
+			 * Fail fast, a dead stage would block the others otherwise.
+			 */
+			for(int i = 0; i < numberOfStages; i++) {
+				completionService.take().get();
+			}
+		} catch(ExecutionException e) {
+			logger.warn(e);
+			batchProcessingInfo.addErrorMessage(DESCRIPTION, "A failure occurred in the batch process pipeline.");
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			batchProcessingInfo.addErrorMessage(DESCRIPTION, "The batch process has been interrupted.");
+		} finally {
+			executorService.shutdownNow();
+		}
+		batchProcessingInfo.addMessages(discoveryInfo);
+	}
+
+	private Void load(List<IMassSpectrumInputEntry> massSpectrumInputs) throws InterruptedException {
+
+		try {
+			/*
+			 * The items keep the index of their input entry, even if they are loaded in another order.
+			 */
+			for(int index : batchProcess.getOrder(context)) {
+				load(new PipelineItem(index, massSpectrumInputs.get(index), context.createProcessingInfo()));
+			}
+			try (InputSourceDiscovery inputSourceDiscovery = new InputSourceDiscovery(context)) {
+				/*
+				 * The pending and discovered entries follow the listed ones.
+				 */
+				int index = massSpectrumInputs.size();
+				while(inputSourceDiscovery.hasNext()) {
+					load(new PipelineItem(index++, inputSourceDiscovery.next(), context.createProcessingInfo()));
+				}
+				discoveryInfo = inputSourceDiscovery.getProcessingInfo();
+			}
+		} finally {
+			/*
+			 * Each processing thread consumes one end marker.
+			 */
+			for(int i = 0; i < numberOfThreads; i++) {
+				loadedQueue.put(END_OF_INPUT);
+			}
+		}
+		return null;
+	}
+
+	private void load(PipelineItem item) throws InterruptedException {
+
+		item.fileDeadline = batchProcess.createDeadline(context);
+		File massSpectrumInputFile = new File(item.massSpectrumInput.getInputFile());
+		if(batchProcess.skipInputEntry(massSpectrumInputFile, context, item.processingInfo)) {
+			item.skipped = true;
+		} else {
+			try {
+				/*
+				 * The outputs of a file that has been processed before are restored without loading it.
+				 */
+				if(context.getCache() != null) {
+					item.fileDeadline.enterStage(FileDeadline.STAGE_CACHE);
+					item.cacheKey = batchProcess.getCacheKey(massSpectrumInputFile, context, item.processingInfo);
+					item.restoredName = batchProcess.restoreOutputs(item.cacheKey, context);
+					item.fileDeadline.leaveStage();
+				}
+				if(item.restoredName == null) {
+					if(admissionController != null) {
+						item.admission = admissionController.admit(massSpectrumInputFile);
+					}
+					item.fileDeadline.enterStage(FileDeadline.STAGE_LOAD);
+					item.massSpectra = batchProcess.loadMassSpectra(massSpectrumInputFile, item.processingInfo, item.fileDeadline.getMonitor());
+					if(item.massSpectra == null) {
+						item.processingInfo.addErrorMessage(DESCRIPTION, "The chromatogram must be not null.");
+					} else if(item.admission != null) {
+						admissionController.update(item.admission, item.massSpectra);
+					}
+				}
+			} catch(TypeCastException e) {
+				item.processingInfo.addErrorMessage(DESCRIPTION, "A failure occurred fetching the chromatogram: " + massSpectrumInputFile);
+			} catch(RuntimeException e) {
+				logger.warn(e);
+				item.processingInfo.addErrorMessage(DESCRIPTION, "A failure occurred loading the file: " + massSpectrumInputFile);
+			} finally {
+				item.fileDeadline.leaveStage();
+			}
+		}
+		loadedQueue.put(item);
+	}
+
+	private Void process() throws InterruptedException {
+
+		try {
+			PipelineItem item;
+			while((item = loadedQueue.take()) != END_OF_INPUT) {
+				if(item.massSpectra != null && !item.fileDeadline.isCanceled()) {
+					IProgressMonitor fileMonitor = item.fileDeadline.getMonitor();
+					try {
+						item.fileDeadline.enterStage(FileDeadline.STAGE_PROCESS);
+						batchProcess.processMassSpectrumEntry(item.massSpectra, context, item.processingInfo, fileMonitor);
+					} catch(RuntimeException e) {
+						logger.warn(e);
+						item.processingInfo.addErrorMessage(DESCRIPTION, "A failure occurred processing the file: " + item.massSpectrumInput.getInputFile());
+						item.massSpectra = null;
+					} finally {
+						item.fileDeadline.leaveStage();
+					}
+				}
+				processedQueue.put(item);
+			}
+		} finally {
+			processedQueue.put(END_OF_INPUT);
+		}
+		return null;
+	}
+
+	private Void write(IProcessingInfo batchProcessingInfo) throws InterruptedException {
+
+		/*
+		 * The files that have been written before a file with a lower index.
+		 */
+		Map<Integer, IProcessingInfo> processingInfos = new HashMap<Integer, IProcessingInfo>();
+		int nextIndex = 0;
+		int finishedThreads = 0;
+		while(finishedThreads < numberOfThreads) {
+			PipelineItem item = processedQueue.take();
+			if(item == END_OF_INPUT) {
+				finishedThreads++;
+				continue;
+			}
+			File massSpectrumInputFile = new File(item.massSpectrumInput.getInputFile());
+			boolean completed = false;
+			if(item.massSpectra != null && !item.fileDeadline.isCanceled()) {
+				IProgressMonitor fileMonitor = item.fileDeadline.getMonitor();
+				try {
+					item.fileDeadline.enterStage(FileDeadline.STAGE_WRITE);
+					batchProcess.writeMassSpectrumOutputEntries(item.massSpectra, context, item.processingInfo, fileMonitor);
+					if(!item.fileDeadline.isCanceled()) {
+						if(item.cacheKey != null) {
+							item.fileDeadline.enterStage(FileDeadline.STAGE_CACHE);
+							batchProcess.storeOutputs(item.cacheKey, item.massSpectra.getName(), context, item.processingInfo);
+						}
+						item.fileDeadline.enterStage(FileDeadline.STAGE_REPORT);
+						batchProcess.processMassSpectrumReportEntries(item.massSpectra, batchProcessJob, item.processingInfo, fileMonitor);
+					}
+					completed = !item.fileDeadline.isCanceled();
+					if(completed) {
+						item.processingInfo.addMessage(new ProcessingMessage(MessageType.INFO, DESCRIPTION, "The file has been processed successfully: " + massSpectrumInputFile));
+					}
+				} catch(RuntimeException e) {
+					logger.warn(e);
+					item.processingInfo.addErrorMessage(DESCRIPTION, "A failure occurred writing the file: " + massSpectrumInputFile);
+				} catch(InterruptedException e) {
+					if(!item.fileDeadline.isTimedOut()) {
+						throw e;
+					}
+				}
+			}
+			if(item.massSpectra != null && !completed) {
+				batchProcess.addCanceledMessage(massSpectrumInputFile, item.fileDeadline, item.processingInfo);
+			}
+			if(item.restoredName != null) {
+				item.processingInfo.addMessage(new ProcessingMessage(MessageType.INFO, DESCRIPTION, "The file has been restored from the cache: " + massSpectrumInputFile));
+			}
+			item.fileDeadline.close();
+			batchProcess.checkDeadline(massSpectrumInputFile, item.fileDeadline, item.processingInfo);
+			if(!item.skipped) {
+				batchProcess.completeInputEntry(massSpectrumInputFile, item.massSpectra != null ? item.massSpectra.getName() : item.restoredName, context, item.processingInfo);
+			}
+			/*
+			 * Release the mass spectra as early as possible.
+			 */
+			item.massSpectra = null;
+			if(item.admission != null) {
+				admissionController.release(item.admission);
+			}
+			/*
+			 * Merge the results deterministically in input order.
+			 */
+			processingInfos.put(item.index, item.processingInfo);
+			IProcessingInfo processingInfo;
+			while((processingInfo = processingInfos.remove(nextIndex)) != null) {
+				batchProcessingInfo.addMessages(processingInfo);
+				nextIndex++;
+			}
+		}
+		/*
+		 * The files after a file that has never reached this stage.
+		 */
+		for(IProcessingInfo processingInfo : new TreeMap<Integer, IProcessingInfo>(processingInfos).values()) {
+			batchProcessingInfo.addMessages(processingInfo);
+		}
+		return null;
+	}
+
+	/**
+	 * A file on its way through the pipeline.
+	 */
+	private static class PipelineItem {
+
+		private final int index;
+		private final IMassSpectrumInputEntry massSpectrumInput;
+		private final IProcessingInfo processingInfo;
+		private IMassSpectra massSpectra;
+		private HeapAdmissionController.Admission admission;
+		private FileDeadline fileDeadline;
+		private boolean skipped;
+		private String cacheKey;
+		private String restoredName;
+
+		private PipelineItem(int index, IMassSpectrumInputEntry massSpectrumInput, IProcessingInfo processingInfo) {
+			this.index = index;
+			this.massSpectrumInput = massSpectrumInput;
+			this.processingInfo = processingInfo;
+		}
+	}
+}
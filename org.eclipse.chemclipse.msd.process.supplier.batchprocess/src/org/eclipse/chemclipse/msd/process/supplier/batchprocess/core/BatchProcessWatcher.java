@@ -0,0 +1,406 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Lablicate GmbH.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * Lablicate GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.chemclipse.msd.process.supplier.batchprocess.core;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.chemclipse.logging.core.Logger;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.internal.support.BatchProcessThreadFactory;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IMassSpectrumInputEntry;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IMassSpectrumInputSource;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.MassSpectrumInputEntry;
+import org.eclipse.chemclipse.processing.core.IProcessingInfo;
+import org.eclipse.chemclipse.processing.core.IProcessingMessage;
+
+/**
+ * Watches the directories of the input sources and processes each new file, until the
+ * batch process is canceled. A file is processed once its size and modification time
+ * haven't changed for the settle time, hence files that are still written are not picked up.
+ * The files that exist when the watch starts are handled the same way.
+ * Only the files that are processed at the moment are remembered, hence the files of the
+ * directories listed again after lost events or a restart are submitted again. They are
+ * skipped by the journal, which records the size and modification time of the completed
+ * files and is kept in the watch mode; a file that has been replaced is processed again.
+ * Without a journal, only the incremental mode skips them.
+ * The workers and the context of the batch process are kept for the whole watch.
+ * The results of the files are logged, since the watch doesn't end by itself.
+ * 
+ */
+class BatchProcessWatcher {
+
+	private static final Logger logger = Logger.getLogger(BatchProcessWatcher.class);
+	private static final String DESCRIPTION = "Batch Processor";
+	private static final String THREAD_PREFIX = "BatchProcess-Watch";
+	private static final long POLL_INTERVAL = 100;
+	//
+	private final BatchProcess batchProcess;
+	private final BatchProcessContext context;
+	private final int numberOfThreads;
+	private final long settleTime;
+	private final Map<WatchKey, WatchedDirectory> watchedDirectories = new HashMap<WatchKey, WatchedDirectory>();
+	private final Map<Path, PendingFile> pendingFiles = new LinkedHashMap<Path, PendingFile>();
+	/*
+	 * The size and modification time of the files that are processed at the moment,
+	 * to ignore events that don't change the file. An entry is removed once the file
+	 * has been processed, deleted or modified.
+	 */
+	private final ConcurrentMap<Path, String> submittedFiles = new ConcurrentHashMap<Path, String>();
+
+	BatchProcessWatcher(BatchProcess batchProcess, BatchProcessContext context, int numberOfThreads) {
+		this.batchProcess = batchProcess;
+		this.context = context;
+		this.numberOfThreads = Math.max(1, numberOfThreads);
+		this.settleTime = context.getBatchProcessSettings().getWatchSettleTime();
+	}
+
+	/**
+	 * Processes the input entries and watches the input sources until the monitor is canceled.
+	 * 
+	 * @param batchProcessingInfo
+	 */
+	void watch(IProcessingInfo batchProcessingInfo) {
+
+		if(context.getBatchProcessJob().getMassSpectrumInputSources().isEmpty()) {
+			batchProcessingInfo.addErrorMessage(DESCRIPTION, "The watch mode requires at least one input source.");
+			return;
+		}
+		ExecutorService executorService = Executors.newFixedThreadPool(numberOfThreads, new BatchProcessThreadFactory(THREAD_PREFIX));
+		try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
+			for(IMassSpectrumInputEntry massSpectrumInput : context.getMassSpectrumInputEntries()) {
+				submit(executorService, massSpectrumInput);
+			}
+			submitPendingInputEntries(executorService, batchProcessingInfo);
+			for(IMassSpectrumInputSource inputSource : context.getBatchProcessJob().getMassSpectrumInputSources()) {
+				register(watchService, inputSource, batchProcessingInfo);
+			}
+			logger.info("Watching " + watchedDirectories.size() + " directories for new files.");
+			while(!context.getMonitor().isCanceled()) {
+				WatchKey watchKey = watchService.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+				while(watchKey != null) {
+					handleEvents(watchService, watchKey);
+					watchKey = watchService.poll();
+				}
+				submitSettledFiles(executorService);
+			}
+			/*
+			 * Let the files that are processed already finish.
+			 */
+			executorService.shutdown();
+			while(!executorService.awaitTermination(POLL_INTERVAL, TimeUnit.MILLISECONDS)) {
+				// wait
+			}
+		} catch(IOException e) {
+			logger.warn(e);
+			batchProcessingInfo.addErrorMessage(DESCRIPTION, "The input sources couldn't be watched.");
+		} catch(ClosedWatchServiceException e) {
+			logger.warn(e);
+			batchProcessingInfo.addErrorMessage(DESCRIPTION, "The watch of the input sources has been closed.");
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			batchProcessingInfo.addWarnMessage(DESCRIPTION, "The watch of the input sources has been interrupted.");
+		} finally {
+			executorService.shutdownNow();
+		}
+	}
+
+	private void submitPendingInputEntries(ExecutorService executorService, IProcessingInfo batchProcessingInfo) {
+
+		try {
+			Iterator<IMassSpectrumInputEntry> pendingInputEntries = context.getBatchProcessJob().getPendingMassSpectrumInputEntries();
+			while(pendingInputEntries.hasNext()) {
+				IMassSpectrumInputEntry massSpectrumInput = pendingInputEntries.next();
+				if(context.isSelected(massSpectrumInput)) {
+					submit(executorService, massSpectrumInput);
+				}
+			}
+		} catch(UncheckedIOException e) {
+			logger.warn(e);
+			batchProcessingInfo.addErrorMessage(DESCRIPTION, "The input entries of the job couldn't be read completely: " + e.getCause().getMessage());
+		}
+	}
+
+	private void register(WatchService watchService, IMassSpectrumInputSource inputSource, IProcessingInfo batchProcessingInfo) {
+
+		WatchedDirectory watchedDirectory;
+		try {
+			Path directory = Paths.get(inputSource.getDirectory()).toAbsolutePath();
+			InputSourceMatcher include = new InputSourceMatcher(directory, inputSource.getInclude());
+			InputSourceMatcher exclude = inputSource.getExclude().isEmpty() ? null : new InputSourceMatcher(directory, inputSource.getExclude());
+			watchedDirectory = new WatchedDirectory(directory, inputSource.isRecursive(), include, exclude);
+		} catch(IllegalArgumentException e) {
+			logger.warn(e);
+			batchProcessingInfo.addWarnMessage(DESCRIPTION, "The input source is invalid and won't be watched: " + inputSource.getDirectory());
+			return;
+		}
+		try {
+			register(watchService, watchedDirectory, watchedDirectory.root);
+		} catch(IOException e) {
+			logger.warn(e);
+			batchProcessingInfo.addWarnMessage(DESCRIPTION, "The input source couldn't be watched: " + inputSource.getDirectory());
+		}
+	}
+
+	/**
+	 * Registers the directory (and its sub directories if the source is recursive) and
+	 * marks the existing files as pending. The files are listed after the registration,
+	 * hence no file is missed in between.
+	 * 
+	 * @param watchService
+	 * @param source
+	 * @param directory
+	 * @throws IOException
+	 */
+	private void register(WatchService watchService, WatchedDirectory source, Path directory) throws IOException {
+
+		int maxDepth = source.recursive ? Integer.MAX_VALUE : 1;
+		Files.walkFileTree(directory, Collections.<FileVisitOption> emptySet(), maxDepth, new SimpleFileVisitor<Path>() {
+
+			@Override
+			public FileVisitResult preVisitDirectory(Path path, BasicFileAttributes attributes) throws IOException {
+
+				if(!path.equals(source.root) && source.isExcluded(path)) {
+					return FileVisitResult.SKIP_SUBTREE;
+				}
+				WatchKey watchKey = path.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+				watchedDirectories.put(watchKey, source.forDirectory(path));
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFile(Path path, BasicFileAttributes attributes) throws IOException {
+
+				if(attributes.isRegularFile()) {
+					markPending(source, path);
+				}
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFileFailed(Path path, IOException e) throws IOException {
+
+				logger.warn(e);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	private void handleEvents(WatchService watchService, WatchKey watchKey) {
+
+		WatchedDirectory watchedDirectory = watchedDirectories.get(watchKey);
+		if(watchedDirectory == null) {
+			watchKey.cancel();
+			return;
+		}
+		for(WatchEvent<?> event : watchKey.pollEvents()) {
+			WatchEvent.Kind<?> kind = event.kind();
+			if(kind == StandardWatchEventKinds.OVERFLOW) {
+				/*
+				 * Events have been lost, list the directory again.
+				 */
+				rescan(watchService, watchedDirectory);
+				continue;
+			}
+			Path path = watchedDirectory.directory.resolve((Path)event.context());
+			if(kind == StandardWatchEventKinds.ENTRY_DELETE) {
+				pendingFiles.remove(path);
+				submittedFiles.remove(path);
+			} else if(Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+				if(kind == StandardWatchEventKinds.ENTRY_CREATE && watchedDirectory.recursive && !watchedDirectory.isExcluded(path)) {
+					rescanDirectory(watchService, watchedDirectory, path);
+				}
+			} else {
+				markPending(watchedDirectory, path);
+			}
+		}
+		if(!watchKey.reset()) {
+			/*
+			 * The directory has been deleted.
+			 */
+			watchedDirectories.remove(watchKey);
+		}
+	}
+
+	private void rescan(WatchService watchService, WatchedDirectory watchedDirectory) {
+
+		rescanDirectory(watchService, watchedDirectory, watchedDirectory.directory);
+	}
+
+	private void rescanDirectory(WatchService watchService, WatchedDirectory watchedDirectory, Path directory) {
+
+		try {
+			register(watchService, watchedDirectory, directory);
+		} catch(IOException e) {
+			logger.warn(e);
+		}
+	}
+
+	private void markPending(WatchedDirectory watchedDirectory, Path path) {
+
+		if(watchedDirectory.isIncluded(path) && !pendingFiles.containsKey(path)) {
+			/*
+			 * The files of other shards are processed by other nodes.
+			 */
+			if(context.isSelected(new MassSpectrumInputEntry(path.toString()))) {
+				pendingFiles.put(path, new PendingFile());
+			}
+		}
+	}
+
+	/**
+	 * Submits the pending files that haven't changed for the settle time.
+	 * 
+	 * @param executorService
+	 */
+	private void submitSettledFiles(ExecutorService executorService) {
+
+		long now = System.currentTimeMillis();
+		Iterator<Map.Entry<Path, PendingFile>> iterator = pendingFiles.entrySet().iterator();
+		while(iterator.hasNext()) {
+			Map.Entry<Path, PendingFile> entry = iterator.next();
+			Path path = entry.getKey();
+			PendingFile pendingFile = entry.getValue();
+			String state;
+			try {
+				state = Files.size(path) + ";" + Files.getLastModifiedTime(path).toMillis();
+			} catch(IOException e) {
+				/*
+				 * The file has been removed in between.
+				 */
+				iterator.remove();
+				continue;
+			}
+			if(!state.equals(pendingFile.state)) {
+				pendingFile.state = state;
+				pendingFile.changed = now;
+			} else if(now - pendingFile.changed >= settleTime) {
+				iterator.remove();
+				String submittedState = submittedFiles.put(path, state);
+				if(!state.equals(submittedState)) {
+					submit(executorService, new MassSpectrumInputEntry(path.toString()), path, state);
+				}
+			}
+		}
+	}
+
+	private void submit(ExecutorService executorService, IMassSpectrumInputEntry massSpectrumInput) {
+
+		submit(executorService, massSpectrumInput, null, null);
+	}
+
+	private void submit(ExecutorService executorService, IMassSpectrumInputEntry massSpectrumInput, Path path, String state) {
+
+		executorService.submit(() -> {
+			try {
+				log(batchProcess.processInputEntry(massSpectrumInput, context));
+			} catch(RuntimeException e) {
+				logger.warn(e);
+			} finally {
+				if(path != null) {
+					/*
+					 * Keep the entry if the file has been modified and submitted again in between.
+					 */
+					submittedFiles.remove(path, state);
+				}
+			}
+		});
+	}
+
+	private void log(IProcessingInfo processingInfo) {
+
+		for(IProcessingMessage message : processingInfo.getMessages()) {
+			switch(message.getMessageType()) {
+				case ERROR:
+					logger.error(message.getMessage());
+					break;
+				case WARN:
+					logger.warn(message.getMessage());
+					break;
+				default:
+					logger.info(message.getMessage());
+					break;
+			}
+		}
+	}
+
+	/**
+	 * A directory that is watched, with the settings of its input source.
+	 */
+	private static class WatchedDirectory {
+
+		private final Path root;
+		private final Path directory;
+		private final boolean recursive;
+		private final InputSourceMatcher include;
+		private final InputSourceMatcher exclude;
+
+		private WatchedDirectory(Path root, boolean recursive, InputSourceMatcher include, InputSourceMatcher exclude) {
+			this(root, root, recursive, include, exclude);
+		}
+
+		private WatchedDirectory(Path root, Path directory, boolean recursive, InputSourceMatcher include, InputSourceMatcher exclude) {
+			this.root = root;
+			this.directory = directory;
+			this.recursive = recursive;
+			this.include = include;
+			this.exclude = exclude;
+		}
+
+		private WatchedDirectory forDirectory(Path path) {
+
+			return new WatchedDirectory(root, path, recursive, include, exclude);
+		}
+
+		private boolean isIncluded(Path path) {
+
+			return include.matches(path) && !isExcluded(path);
+		}
+
+		private boolean isExcluded(Path path) {
+
+			return exclude != null && exclude.matches(path);
+		}
+	}
+
+	/**
+	 * A file that waits for the settle time.
+	 */
+	private static class PendingFile {
+
+		private String state;
+		private long changed;
+	}
+}
@@ -0,0 +1,193 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Lablicate GmbH.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * Lablicate GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.chemclipse.msd.process.supplier.batchprocess.core;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.internal.support.CancelableProgressMonitor;
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * Bounds and measures the time that is spent on a file and on each of its stages.
+ * When a timeout expires, the monitor of the file is canceled and the thread that
+ * currently works on the file is interrupted. The stages of a file may run on
+ * different threads, as in the pipeline mode. The file timeout only counts the time in which
+ * a stage works on the file, hence the time the file waits in the queues of the pipeline or
+ * for the admission to the heap budget doesn't count. A stage must be left before its thread
+ * works on something else, which also clears an interrupt caused by the deadline.
+ * Code that neither checks the monitor nor reacts to interrupts can't be stopped.
+ * 
+ */
+class FileDeadline implements AutoCloseable {
+
+	static final String STAGE_LOAD = "load";
+	static final String STAGE_PROCESS = "process";
+	static final String STAGE_WRITE = "write";
+	static final String STAGE_REPORT = "report";
+	static final String STAGE_STREAM = "stream";
+	/*
+	 * Hashing the input, restoring and storing the outputs of the cache.
+	 */
+	static final String STAGE_CACHE = "cache";
+	private static final String STAGE_NONE = "wait";
+	//
+	private final ScheduledExecutorService watchdog;
+	private final CancelableProgressMonitor monitor;
+	private final long stageTimeout;
+	private final BatchProcessMetrics metrics;
+	private long remainingFileTime;
+	private ScheduledFuture<?> fileTimer;
+	private ScheduledFuture<?> stageTimer;
+	private Thread worker;
+	private String stage = STAGE_NONE;
+	private int stageCount = 0;
+	private long stageStart;
+	private String timedOutStage;
+	private boolean interrupted = false;
+
+	/**
+	 * @param watchdog
+	 *            schedules the timeouts, null if there are no timeouts
+	 * @param monitor
+	 * @param fileTimeout
+	 *            in milliseconds, 0 for no timeout
+	 * @param stageTimeout
+	 *            in milliseconds, 0 for no timeout
+	 * @param metrics
+	 *            records the duration of the stages
+	 */
+	FileDeadline(ScheduledExecutorService watchdog, IProgressMonitor monitor, long fileTimeout, long stageTimeout, BatchProcessMetrics metrics) {
+		this.watchdog = watchdog;
+		this.monitor = new CancelableProgressMonitor(monitor);
+		this.stageTimeout = watchdog != null ? stageTimeout : 0;
+		this.metrics = metrics;
+		this.remainingFileTime = watchdog != null && fileTimeout > 0 ? TimeUnit.MILLISECONDS.toNanos(fileTimeout) : -1;
+	}
+
+	/**
+	 * Returns the monitor of the file, which is canceled when a timeout expires.
+	 * 
+	 * @return {@link IProgressMonitor}
+	 */
+	IProgressMonitor getMonitor() {
+
+		return monitor;
+	}
+
+	/**
+	 * The current thread starts to work on the given stage of the file.
+	 * 
+	 * @param stage
+	 */
+	synchronized void enterStage(String stage) {
+
+		leaveStage();
+		this.worker = Thread.currentThread();
+		this.stage = stage;
+		this.stageStart = System.nanoTime();
+		int count = stageCount;
+		if(stageTimeout > 0) {
+			stageTimer = watchdog.schedule(() -> expire(count), stageTimeout, TimeUnit.MILLISECONDS);
+		}
+		if(remainingFileTime >= 0) {
+			/*
+			 * The clock of the file runs while a stage works on it.
+			 */
+			fileTimer = watchdog.schedule(() -> expire(count), remainingFileTime, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	/**
+	 * The current thread stops to work on the file.
+	 */
+	synchronized void leaveStage() {
+
+		if(stageTimer != null) {
+			stageTimer.cancel(false);
+			stageTimer = null;
+		}
+		if(fileTimer != null) {
+			fileTimer.cancel(false);
+			fileTimer = null;
+			remainingFileTime = Math.max(0, remainingFileTime - (System.nanoTime() - stageStart));
+		}
+		if(interrupted && worker == Thread.currentThread()) {
+			/*
+			 * Don't let the interrupt leak into the next file.
+			 */
+			Thread.interrupted();
+			interrupted = false;
+		}
+		if(!STAGE_NONE.equals(stage)) {
+			metrics.getStage(stage).record(System.nanoTime() - stageStart);
+		}
+		worker = null;
+		stage = STAGE_NONE;
+		stageCount++;
+	}
+
+	/**
+	 * Returns true if a timeout of the file has expired.
+	 * 
+	 * @return boolean
+	 */
+	synchronized boolean isTimedOut() {
+
+		return timedOutStage != null;
+	}
+
+	/**
+	 * Returns true if a timeout of the file has expired or the batch process has been canceled.
+	 * The following stages of the file must not be started then.
+	 * 
+	 * @return boolean
+	 */
+	boolean isCanceled() {
+
+		return isTimedOut() || monitor.isCanceled();
+	}
+
+	/**
+	 * Returns the stage in which the timeout has expired or null.
+	 * 
+	 * @return String
+	 */
+	synchronized String getTimedOutStage() {
+
+		return timedOutStage;
+	}
+
+	@Override
+	public synchronized void close() {
+
+		leaveStage();
+	}
+
+	/**
+	 * @param count
+	 *            the stage in which the stage or file timeout has expired
+	 */
+	private synchronized void expire(int count) {
+
+		if(timedOutStage != null || count != stageCount) {
+			return;
+		}
+		timedOutStage = stage;
+		monitor.setCanceled(true);
+		if(worker != null) {
+			worker.interrupt();
+			interrupted = true;
+		}
+	}
+}
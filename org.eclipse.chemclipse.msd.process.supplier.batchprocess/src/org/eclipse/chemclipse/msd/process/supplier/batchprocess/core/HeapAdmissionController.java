@@ -0,0 +1,139 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Lablicate GmbH.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * Lablicate GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.chemclipse.msd.process.supplier.batchprocess.core;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.chemclipse.msd.model.core.IMassSpectra;
+import org.eclipse.chemclipse.msd.model.core.IScanMSD;
+
+/**
+ * Admits input files to be loaded only if their estimated in-memory footprint fits
+ * into the heap budget, together with the files that are already held in memory.
+ * The footprint is estimated from the file size and the ratio of heap to file size
+ * that has been observed for files of the same format (extension) before.
+ * A file that exceeds the budget on its own is admitted when no other file is held.
+ * 
+ */
+class HeapAdmissionController {
+
+	/*
+	 * Assumed bytes on the heap per byte on disk, until a file of the format has been loaded.
+	 */
+	static final double DEFAULT_LOAD_RATIO = 4.0d;
+	/*
+	 * The observed ratios are smoothed, so that a single odd file doesn't dominate.
+	 */
+	private static final double SMOOTHING = 0.3d;
+	/*
+	 * Rough shallow sizes of a scan and an ion including the references to them.
+	 */
+	private static final long SCAN_BYTES = 160;
+	private static final long ION_BYTES = 48;
+	//
+	private final long budget;
+	private final Map<String, Double> loadRatios = new HashMap<String, Double>();
+	private long admitted = 0;
+
+	/**
+	 * @param budget
+	 *            the heap budget in bytes
+	 */
+	HeapAdmissionController(long budget) {
+		this.budget = budget;
+	}
+
+	/**
+	 * Blocks until the estimated footprint of the file fits into the budget.
+	 * The returned admission must be released when the file is not held anymore.
+	 * 
+	 * @param massSpectrumInputFile
+	 * @return {@link Admission}
+	 * @throws InterruptedException
+	 */
+	synchronized Admission admit(File massSpectrumInputFile) throws InterruptedException {
+
+		String format = InputEntryScheduler.getFormat(massSpectrumInputFile);
+		long fileSize = Math.max(1, massSpectrumInputFile.length());
+		long estimate = (long)(fileSize * getLoadRatio(format));
+		while(admitted > 0 && admitted + estimate > budget) {
+			wait();
+		}
+		admitted += estimate;
+		return new Admission(format, fileSize, estimate);
+	}
+
+	/**
+	 * Replaces the estimate of the admission by the footprint of the loaded mass spectra
+	 * and refines the load ratio of the format.
+	 * 
+	 * @param admission
+	 * @param massSpectra
+	 */
+	synchronized void update(Admission admission, IMassSpectra massSpectra) {
+
+		long footprint = getFootprint(massSpectra);
+		double observedRatio = (double)footprint / admission.fileSize;
+		Double loadRatio = loadRatios.get(admission.format);
+		loadRatios.put(admission.format, loadRatio == null ? observedRatio : loadRatio + SMOOTHING * (observedRatio - loadRatio));
+		admitted += footprint - admission.bytes;
+		if(footprint < admission.bytes) {
+			notifyAll();
+		}
+		admission.bytes = footprint;
+	}
+
+	/**
+	 * Releases the footprint of the admission.
+	 * 
+	 * @param admission
+	 */
+	synchronized void release(Admission admission) {
+
+		admitted -= admission.bytes;
+		admission.bytes = 0;
+		notifyAll();
+	}
+
+	private double getLoadRatio(String format) {
+
+		Double loadRatio = loadRatios.get(format);
+		return loadRatio != null ? loadRatio : DEFAULT_LOAD_RATIO;
+	}
+
+	private long getFootprint(IMassSpectra massSpectra) {
+
+		long footprint = 0;
+		for(IScanMSD scan : massSpectra.getList()) {
+			footprint += SCAN_BYTES + ION_BYTES * scan.getNumberOfIons();
+		}
+		return footprint;
+	}
+
+	/**
+	 * The heap that is reserved for a file.
+	 */
+	static class Admission {
+
+		private final String format;
+		private final long fileSize;
+		private long bytes;
+
+		private Admission(String format, long fileSize, long bytes) {
+			this.format = format;
+			this.fileSize = fileSize;
+			this.bytes = bytes;
+		}
+	}
+}
@@ -0,0 +1,185 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Lablicate GmbH.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * Lablicate GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.chemclipse.msd.process.supplier.batchprocess.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Properties;
+
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IBatchProcessJob;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IBatchProcessSettings;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IMassSpectrumOutputEntry;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IMassSpectrumProcessEntry;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IMassSpectrumReportSupplierEntry;
+import org.eclipse.chemclipse.msd.process.support.ProcessTypeSupport;
+
+/**
+ * Records for each successfully processed input its size, its modification time
+ * and a fingerprint of the process entries with their settings and of the output and report entries of the job.
+ * Inputs whose record still matches don't need to be processed again.
+ * The manifest is stored in the folder of the first output entry.
+ * 
+ */
+class IncrementalManifest {
+
+	static final String FILE_NAME = ".batchprocess-manifest.properties";
+	/*
+	 * The shards of a job may share the output folder, hence each one has its own manifest.
+	 */
+	private static final String SHARD_FILE_NAME = ".batchprocess-manifest.shard-%d-of-%d.properties";
+	private static final String SEPARATOR = ";";
+	//
+	private final File file;
+	private final String jobFingerprint;
+	private final Properties entries = new Properties();
+	private boolean modified = false;
+
+	private IncrementalManifest(File file, String jobFingerprint) {
+		this.file = file;
+		this.jobFingerprint = jobFingerprint;
+	}
+
+	/**
+	 * Loads the manifest of the given job. Returns null if the job has no output entries.
+	 * 
+	 * @param batchProcessJob
+	 * @param processTypeSupport
+	 * @return {@link IncrementalManifest}
+	 * @throws IOException
+	 */
+	static IncrementalManifest load(IBatchProcessJob batchProcessJob, ProcessTypeSupport processTypeSupport) throws IOException {
+
+		if(batchProcessJob.getMassSpectrumOutputEntries().isEmpty()) {
+			return null;
+		}
+		File folder = new File(batchProcessJob.getMassSpectrumOutputEntries().get(0).getOutputFolder());
+		IBatchProcessSettings batchProcessSettings = batchProcessJob.getBatchProcessSettings();
+		String fileName = FILE_NAME;
+		if(batchProcessSettings.getShardCount() > 1) {
+			fileName = String.format(SHARD_FILE_NAME, batchProcessSettings.getShardIndex(), batchProcessSettings.getShardCount());
+		}
+		IncrementalManifest manifest = new IncrementalManifest(new File(folder, fileName), getFingerprint(batchProcessJob, processTypeSupport));
+		if(manifest.file.exists()) {
+			try (InputStream inputStream = new BufferedInputStream(new FileInputStream(manifest.file))) {
+				manifest.entries.load(inputStream);
+			}
+		}
+		return manifest;
+	}
+
+	/**
+	 * Returns true if the input has been processed successfully with the same job settings before
+	 * and hasn't been modified since.
+	 * 
+	 * @param massSpectrumInputFile
+	 * @return boolean
+	 */
+	boolean isUpToDate(File massSpectrumInputFile) {
+
+		String value = entries.getProperty(massSpectrumInputFile.getAbsolutePath());
+		return value != null && value.equals(getRecord(massSpectrumInputFile));
+	}
+
+	/**
+	 * Marks the input as processed successfully.
+	 * 
+	 * @param massSpectrumInputFile
+	 */
+	synchronized void update(File massSpectrumInputFile) {
+
+		entries.setProperty(massSpectrumInputFile.getAbsolutePath(), getRecord(massSpectrumInputFile));
+		modified = true;
+	}
+
+	/**
+	 * Writes the manifest atomically, if it has been modified.
+	 * 
+	 * @throws IOException
+	 */
+	synchronized void save() throws IOException {
+
+		if(!modified) {
+			return;
+		}
+		File folder = file.getParentFile();
+		if(folder != null && !folder.exists()) {
+			folder.mkdirs();
+		}
+		File temporaryFile = new File(file.getPath() + ".tmp");
+		try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(temporaryFile))) {
+			entries.store(outputStream, "Batch Process Manifest");
+		}
+		Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		modified = false;
+	}
+
+	private String getRecord(File massSpectrumInputFile) {
+
+		return massSpectrumInputFile.length() + SEPARATOR + massSpectrumInputFile.lastModified() + SEPARATOR + jobFingerprint;
+	}
+
+	/**
+	 * Returns a hash of all entries and settings that influence the outputs of an input file.
+	 * 
+	 * @param batchProcessJob
+	 * @param processTypeSupport
+	 * @return String
+	 */
+	static String getFingerprint(IBatchProcessJob batchProcessJob, ProcessTypeSupport processTypeSupport) {
+
+		StringBuilder builder = new StringBuilder();
+		for(IMassSpectrumProcessEntry processEntry : batchProcessJob.getMassSpectrumProcessEntries()) {
+			builder.append("P").append(SEPARATOR).append(processEntry.getProcessCategory()).append(SEPARATOR).append(processEntry.getProcessorId()).append("\n");
+			builder.append("S").append(SEPARATOR).append(processTypeSupport.getSettingsFingerprint(processEntry)).append("\n");
+		}
+		for(IMassSpectrumOutputEntry outputEntry : batchProcessJob.getMassSpectrumOutputEntries()) {
+			builder.append("O").append(SEPARATOR).append(outputEntry.getOutputFolder()).append(SEPARATOR).append(outputEntry.getConverterId()).append("\n");
+		}
+		for(IMassSpectrumReportSupplierEntry reportEntry : batchProcessJob.getMassSpectrumReportEntries()) {
+			builder.append("R").append(SEPARATOR).append(reportEntry.getReportFolderOrFile()).append(SEPARATOR).append(reportEntry.getReportSupplierId()).append("\n");
+		}
+		return toHex(sha256(builder.toString().getBytes(StandardCharsets.UTF_8)));
+	}
+
+	static byte[] sha256(byte[] data) {
+
+		try {
+			return MessageDigest.getInstance("SHA-256").digest(data);
+		} catch(NoSuchAlgorithmException e) {
+			/*
+			 * Each JVM must support SHA-256.
+			 */
+			throw new IllegalStateException(e);
+		}
+	}
+
+	static String toHex(byte[] data) {
+
+		StringBuilder builder = new StringBuilder(data.length * 2);
+		for(byte b : data) {
+			builder.append(Character.forDigit((b >> 4) & 0xF, 16));
+			builder.append(Character.forDigit(b & 0xF, 16));
+		}
+		return builder.toString();
+	}
+}
@@ -0,0 +1,206 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Lablicate GmbH.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * Lablicate GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.chemclipse.msd.process.supplier.batchprocess.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IBatchProcessJob;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IMassSpectrumInputEntry;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.SchedulingPolicy;
+
+/**
+ * Determines the order in which the input entries are started.
+ * The cost of an input is estimated by its file size, weighted by the processing time
+ * per byte that has been observed for files of the same format (extension) before.
+ * The observed timings are stored next to the manifest of the incremental mode, in the
+ * folder of the first output entry, hence they are used by the following runs as well.
+ * 
+ */
+class InputEntryScheduler {
+
+	static final String FILE_NAME = ".batchprocess-timings.properties";
+	private static final String UNKNOWN_FORMAT = "";
+	/*
+	 * The observed timings are smoothed, so that a single odd file doesn't dominate.
+	 */
+	private static final double SMOOTHING = 0.3d;
+	//
+	private final Map<String, Double> nanosPerByte = new ConcurrentHashMap<String, Double>();
+
+	/**
+	 * Returns the indices of the input entries in the order in which they shall be started.
+	 * 
+	 * @param massSpectrumInputs
+	 * @param schedulingPolicy
+	 * @return List
+	 */
+	List<Integer> getOrder(List<IMassSpectrumInputEntry> massSpectrumInputs, SchedulingPolicy schedulingPolicy) {
+
+		int size = massSpectrumInputs.size();
+		List<Integer> order = new ArrayList<Integer>(size);
+		for(int index = 0; index < size; index++) {
+			order.add(index);
+		}
+		if(schedulingPolicy == SchedulingPolicy.LARGEST_FIRST) {
+			double defaultNanosPerByte = getDefaultNanosPerByte();
+			double[] costs = new double[size];
+			for(int index = 0; index < size; index++) {
+				File file = new File(massSpectrumInputs.get(index).getInputFile());
+				Double rate = nanosPerByte.get(getFormat(file));
+				costs[index] = file.length() * (rate != null ? rate : defaultNanosPerByte);
+			}
+			/*
+			 * The sort is stable, hence entries of equal cost keep their order.
+			 */
+			Collections.sort(order, Comparator.comparingDouble((Integer index) -> costs[index]).reversed());
+		}
+		return order;
+	}
+
+	/**
+	 * Records the time that has been needed to process the given file.
+	 * 
+	 * @param massSpectrumInputFile
+	 * @param nanos
+	 */
+	void record(File massSpectrumInputFile, long nanos) {
+
+		long fileSize = massSpectrumInputFile.length();
+		if(fileSize <= 0 || nanos <= 0) {
+			return;
+		}
+		double observed = (double)nanos / fileSize;
+		nanosPerByte.merge(getFormat(massSpectrumInputFile), observed, (rate, value) -> rate + SMOOTHING * (value - rate));
+	}
+
+	/**
+	 * Returns the file of the observed timings of the given job or null if the job has no output entries.
+	 * 
+	 * @param batchProcessJob
+	 * @return {@link File}
+	 */
+	static File getFile(IBatchProcessJob batchProcessJob) {
+
+		if(batchProcessJob.getMassSpectrumOutputEntries().isEmpty()) {
+			return null;
+		}
+		return new File(batchProcessJob.getMassSpectrumOutputEntries().get(0).getOutputFolder(), FILE_NAME);
+	}
+
+	/**
+	 * Loads the timings that have been observed by previous runs.
+	 * Timings that have been observed by this instance already take precedence.
+	 * 
+	 * @param file
+	 * @throws IOException
+	 */
+	void load(File file) throws IOException {
+
+		if(!file.exists()) {
+			return;
+		}
+		Properties timings = new Properties();
+		try (InputStream inputStream = new BufferedInputStream(new FileInputStream(file))) {
+			timings.load(inputStream);
+		}
+		for(String format : timings.stringPropertyNames()) {
+			try {
+				double rate = Double.parseDouble(timings.getProperty(format));
+				if(rate > 0) {
+					nanosPerByte.putIfAbsent(format, rate);
+				}
+			} catch(NumberFormatException e) {
+				/*
+				 * Skip the damaged entry.
+				 */
+			}
+		}
+	}
+
+	/**
+	 * Writes the observed timings atomically.
+	 * 
+	 * @param file
+	 * @throws IOException
+	 */
+	void save(File file) throws IOException {
+
+		if(nanosPerByte.isEmpty()) {
+			return;
+		}
+		Properties timings = new Properties();
+		for(Map.Entry<String, Double> entry : nanosPerByte.entrySet()) {
+			timings.setProperty(entry.getKey(), Double.toString(entry.getValue()));
+		}
+		File folder = file.getAbsoluteFile().getParentFile();
+		if(!folder.exists()) {
+			folder.mkdirs();
+		}
+		/*
+		 * The shards of a job may share the folder, hence each one writes its own temporary file.
+		 */
+		File temporaryFile = File.createTempFile(file.getName(), ".tmp", folder);
+		try {
+			try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(temporaryFile))) {
+				timings.store(outputStream, "Batch Process Timings (nanoseconds per byte)");
+			}
+			Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temporaryFile.toPath());
+		}
+	}
+
+	/**
+	 * Returns the lower case extension of the file.
+	 * 
+	 * @param file
+	 * @return String
+	 */
+	static String getFormat(File file) {
+
+		String name = file.getName();
+		int index = name.lastIndexOf('.');
+		return index >= 0 ? name.substring(index + 1).toLowerCase() : UNKNOWN_FORMAT;
+	}
+
+	/**
+	 * Formats without timings are assumed to be as expensive as the average of the known formats.
+	 * 
+	 * @return double
+	 */
+	private double getDefaultNanosPerByte() {
+
+		double sum = 0;
+		int count = 0;
+		for(double rate : nanosPerByte.values()) {
+			sum += rate;
+			count++;
+		}
+		return count > 0 ? sum / count : 1.0d;
+	}
+}
@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Lablicate GmbH.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * Lablicate GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.chemclipse.msd.process.supplier.batchprocess.core;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IMassSpectrumInputEntry;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.ShardingPolicy;
+
+/**
+ * Selects the input entries of one shard, when the same job is executed on several nodes.
+ * The selection depends only on the job and on the file sizes, hence all nodes agree on
+ * the shards without any coordination.
+ * 
+ */
+class InputEntrySharding {
+
+	/*
+	 * 64 bit FNV-1a, a stable and well distributed hash of the path.
+	 */
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+	//
+	private final int shardIndex;
+	private final int shardCount;
+	private final ShardingPolicy shardingPolicy;
+
+	InputEntrySharding(int shardIndex, int shardCount, ShardingPolicy shardingPolicy) {
+		this.shardIndex = shardIndex;
+		this.shardCount = shardCount;
+		this.shardingPolicy = shardingPolicy;
+	}
+
+	/**
+	 * Returns the input entries of the shard in the order of the job.
+	 * 
+	 * @param massSpectrumInputs
+	 * @return List
+	 */
+	List<IMassSpectrumInputEntry> select(List<IMassSpectrumInputEntry> massSpectrumInputs) {
+
+		List<IMassSpectrumInputEntry> selected = new ArrayList<IMassSpectrumInputEntry>();
+		if(shardingPolicy == ShardingPolicy.SIZE) {
+			int[] shards = assignBySize(massSpectrumInputs);
+			for(int index = 0; index < shards.length; index++) {
+				if(shards[index] == shardIndex) {
+					selected.add(massSpectrumInputs.get(index));
+				}
+			}
+		} else {
+			for(IMassSpectrumInputEntry massSpectrumInput : massSpectrumInputs) {
+				if(isSelected(massSpectrumInput)) {
+					selected.add(massSpectrumInput);
+				}
+			}
+		}
+		return selected;
+	}
+
+	/**
+	 * Returns true if the input entry belongs to the shard by the hash of its path.
+	 * This is used for the input entries that are not known in advance.
+	 * 
+	 * @param massSpectrumInput
+	 * @return boolean
+	 */
+	boolean isSelected(IMassSpectrumInputEntry massSpectrumInput) {
+
+		return getShard(massSpectrumInput.getInputFile(), shardCount) == shardIndex;
+	}
+
+	/**
+	 * Returns the shard of the given path.
+	 * 
+	 * @param path
+	 * @param shardCount
+	 * @return int
+	 */
+	static int getShard(String path, int shardCount) {
+
+		long hash = FNV_OFFSET_BASIS;
+		for(byte value : path.getBytes(StandardCharsets.UTF_8)) {
+			hash ^= value & 0xff;
+			hash *= FNV_PRIME;
+		}
+		return (int)Long.remainderUnsigned(hash, shardCount);
+	}
+
+	/**
+	 * Assigns the largest files first, each to the shard with the least data so far.
+	 * Files of equal size are assigned in the order of the job, ties between shards
+	 * are resolved by the number of files and then by the lower shard index.
+	 * 
+	 * @param massSpectrumInputs
+	 * @return int[] the shard of each input entry
+	 */
+	private int[] assignBySize(List<IMassSpectrumInputEntry> massSpectrumInputs) {
+
+		int size = massSpectrumInputs.size();
+		long[] fileSizes = new long[size];
+		List<Integer> order = new ArrayList<Integer>(size);
+		for(int index = 0; index < size; index++) {
+			fileSizes[index] = new File(massSpectrumInputs.get(index).getInputFile()).length();
+			order.add(index);
+		}
+		Collections.sort(order, Comparator.comparingLong((Integer index) -> fileSizes[index]).reversed());
+		long[] shardSizes = new long[shardCount];
+		int[] shardFiles = new int[shardCount];
+		int[] shards = new int[size];
+		for(int index : order) {
+			int shard = 0;
+			for(int i = 1; i < shardCount; i++) {
+				if(shardSizes[i] < shardSizes[shard] || (shardSizes[i] == shardSizes[shard] && shardFiles[i] < shardFiles[shard])) {
+					shard = i;
+				}
+			}
+			shards[index] = shard;
+			shardSizes[shard] += fileSizes[index];
+			shardFiles[shard]++;
+		}
+		return shards;
+	}
+}
@@ -0,0 +1,199 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Lablicate GmbH.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * Lablicate GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.chemclipse.msd.process.supplier.batchprocess.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.eclipse.chemclipse.logging.core.Logger;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IMassSpectrumInputEntry;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IMassSpectrumInputSource;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.MassSpectrumInputEntry;
+import org.eclipse.chemclipse.processing.core.IProcessingInfo;
+import org.eclipse.chemclipse.processing.core.ProcessingInfo;
+
+/**
+ * Returns the pending input entries of the job while they are read, followed by the
+ * files of the input sources. If the job is sharded, only the entries of the shard are returned.
+ * The files of the input sources are discovered lazily. Only one directory stream per
+ * directory level is open at a time, hence the first file is returned without
+ * listing the whole tree. Symbolic links to directories are not followed.
+ * Directories that can't be read are reported as warnings.
+ * 
+ */
+class InputSourceDiscovery implements Iterator<IMassSpectrumInputEntry>, Closeable {
+
+	private static final Logger logger = Logger.getLogger(InputSourceDiscovery.class);
+	private static final String DESCRIPTION = "Batch Processor";
+	//
+	private final BatchProcessContext context;
+	private final Iterator<IMassSpectrumInputEntry> pendingInputEntries;
+	private final Iterator<IMassSpectrumInputSource> inputSources;
+	private final Deque<DirectoryStream<Path>> directoryStreams = new ArrayDeque<DirectoryStream<Path>>();
+	private final Deque<Iterator<Path>> directoryIterators = new ArrayDeque<Iterator<Path>>();
+	private final IProcessingInfo processingInfo = new ProcessingInfo();
+	private Path directory;
+	private boolean recursive;
+	private InputSourceMatcher include;
+	private InputSourceMatcher exclude;
+	private IMassSpectrumInputEntry next;
+	private boolean pending = true;
+
+	InputSourceDiscovery(BatchProcessContext context) {
+		this.context = context;
+		this.pendingInputEntries = context.getBatchProcessJob().getPendingMassSpectrumInputEntries();
+		this.inputSources = context.getBatchProcessJob().getMassSpectrumInputSources().iterator();
+	}
+
+	@Override
+	public boolean hasNext() {
+
+		while(next == null) {
+			IMassSpectrumInputEntry inputEntry = discover();
+			if(inputEntry == null) {
+				return false;
+			}
+			if(context.isSelected(inputEntry)) {
+				next = inputEntry;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public IMassSpectrumInputEntry next() {
+
+		if(!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		IMassSpectrumInputEntry inputEntry = next;
+		next = null;
+		return inputEntry;
+	}
+
+	/**
+	 * Returns the warnings of the discovery and the errors of reading the pending input entries.
+	 * 
+	 * @return {@link IProcessingInfo}
+	 */
+	IProcessingInfo getProcessingInfo() {
+
+		return processingInfo;
+	}
+
+	@Override
+	public void close() {
+
+		while(!directoryStreams.isEmpty()) {
+			closeDirectory();
+		}
+	}
+
+	private IMassSpectrumInputEntry discover() {
+
+		if(pending) {
+			try {
+				if(pendingInputEntries.hasNext()) {
+					return pendingInputEntries.next();
+				}
+			} catch(UncheckedIOException e) {
+				logger.warn(e);
+				processingInfo.addErrorMessage(DESCRIPTION, "The input entries of the job couldn't be read completely: " + e.getCause().getMessage());
+			}
+			pending = false;
+		}
+		while(true) {
+			if(directoryIterators.isEmpty()) {
+				if(!inputSources.hasNext()) {
+					return null;
+				}
+				openInputSource(inputSources.next());
+				continue;
+			}
+			Path path;
+			try {
+				Iterator<Path> iterator = directoryIterators.peek();
+				if(!iterator.hasNext()) {
+					closeDirectory();
+					continue;
+				}
+				path = iterator.next();
+			} catch(DirectoryIteratorException e) {
+				logger.warn(e);
+				processingInfo.addWarnMessage(DESCRIPTION, "The directory couldn't be read completely: " + e.getCause().getMessage());
+				closeDirectory();
+				continue;
+			}
+			if(exclude != null && exclude.matches(path)) {
+				continue;
+			}
+			if(Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+				if(recursive) {
+					openDirectory(path);
+				}
+			} else if(include.matches(path) && Files.isRegularFile(path)) {
+				return new MassSpectrumInputEntry(path.toString());
+			}
+		}
+	}
+
+	private void openInputSource(IMassSpectrumInputSource inputSource) {
+
+		try {
+			directory = Paths.get(inputSource.getDirectory());
+			recursive = inputSource.isRecursive();
+			include = new InputSourceMatcher(directory, inputSource.getInclude());
+			exclude = inputSource.getExclude().isEmpty() ? null : new InputSourceMatcher(directory, inputSource.getExclude());
+		} catch(IllegalArgumentException e) {
+			/*
+			 * Invalid path or glob.
+			 */
+			logger.warn(e);
+			processingInfo.addWarnMessage(DESCRIPTION, "The input source is invalid and has been skipped: " + inputSource.getDirectory());
+			return;
+		}
+		openDirectory(directory);
+	}
+
+	private void openDirectory(Path path) {
+
+		try {
+			DirectoryStream<Path> directoryStream = Files.newDirectoryStream(path);
+			directoryStreams.push(directoryStream);
+			directoryIterators.push(directoryStream.iterator());
+		} catch(IOException e) {
+			logger.warn(e);
+			processingInfo.addWarnMessage(DESCRIPTION, "The directory couldn't be read: " + path);
+		}
+	}
+
+	private void closeDirectory() {
+
+		directoryIterators.pop();
+		try {
+			directoryStreams.pop().close();
+		} catch(IOException e) {
+			logger.warn(e);
+		}
+	}
+}
@@ -0,0 +1,47 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Lablicate GmbH.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * Lablicate GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.chemclipse.msd.process.supplier.batchprocess.core;
+
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+
+/**
+ * Matches a glob of an input source against the file name or,
+ * if the glob contains a "/", against the path relative to the directory.
+ * 
+ */
+class InputSourceMatcher {
+
+	private static final String SEPARATOR = "/";
+	//
+	private final Path directory;
+	private final PathMatcher pathMatcher;
+	private final boolean relative;
+
+	/**
+	 * @param directory
+	 * @param glob
+	 * @throws IllegalArgumentException
+	 *             if the glob is invalid
+	 */
+	InputSourceMatcher(Path directory, String glob) {
+		this.directory = directory;
+		pathMatcher = directory.getFileSystem().getPathMatcher("glob:" + glob);
+		relative = glob.contains(SEPARATOR);
+	}
+
+	boolean matches(Path path) {
+
+		Path candidate = relative ? directory.relativize(path) : path.getFileName();
+		return candidate != null && pathMatcher.matches(candidate);
+	}
+}
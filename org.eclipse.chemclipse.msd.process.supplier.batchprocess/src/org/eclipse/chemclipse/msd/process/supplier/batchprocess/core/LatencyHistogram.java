@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Lablicate GmbH.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * Lablicate GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.chemclipse.msd.process.supplier.batchprocess.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free latency histogram with power of two buckets, i.e. the percentiles
+ * are accurate up to a factor of two, which is sufficient to find the hot stage.
+ * 
+ */
+class LatencyHistogram {
+
+	private static final int BUCKETS = 64;
+	//
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder totalNanos = new LongAdder();
+	private final AtomicLong maxNanos = new AtomicLong();
+
+	void record(long nanos) {
+
+		long value = Math.max(0, nanos);
+		buckets.incrementAndGet(63 - Long.numberOfLeadingZeros(value | 1));
+		count.increment();
+		totalNanos.add(value);
+		long max;
+		while(value > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, value)) {
+			// retry
+		}
+	}
+
+	long getCount() {
+
+		return count.sum();
+	}
+
+	long getTotalNanos() {
+
+		return totalNanos.sum();
+	}
+
+	long getMaxNanos() {
+
+		return maxNanos.get();
+	}
+
+	/**
+	 * Returns the upper bound of the bucket that contains the given percentile.
+	 * 
+	 * @param percentile
+	 *            0 - 100
+	 * @return long
+	 */
+	long getPercentileNanos(double percentile) {
+
+		long total = 0;
+		long[] counts = new long[BUCKETS];
+		for(int i = 0; i < BUCKETS; i++) {
+			counts[i] = buckets.get(i);
+			total += counts[i];
+		}
+		if(total == 0) {
+			return 0;
+		}
+		long rank = (long)Math.ceil(total * percentile / 100.0d);
+		long cumulated = 0;
+		for(int i = 0; i < BUCKETS; i++) {
+			cumulated += counts[i];
+			if(cumulated >= rank) {
+				long upperBound = i < 62 ? (1L << (i + 1)) - 1 : Long.MAX_VALUE;
+				return Math.min(upperBound, getMaxNanos());
+			}
+		}
+		return getMaxNanos();
+	}
+
+	TimerStatistics getStatistics() {
+
+		return new TimerStatistics(getCount(), getTotalNanos(), getPercentileNanos(50), getPercentileNanos(95), getPercentileNanos(99), getMaxNanos());
+	}
+}
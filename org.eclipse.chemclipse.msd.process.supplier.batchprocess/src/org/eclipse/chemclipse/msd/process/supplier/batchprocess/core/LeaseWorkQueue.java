@@ -0,0 +1,305 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Lablicate GmbH.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * Lablicate GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.chemclipse.msd.process.supplier.batchprocess.core;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.chemclipse.logging.core.Logger;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.internal.support.BatchProcessThreadFactory;
+
+/**
+ * Distributes the input entries of a job dynamically among several processes that share a directory.
+ * A process claims an input by creating its lease file atomically, renews the lease while the input
+ * is processed and leaves a done marker afterwards. The lease of a process that has died expires
+ * and is claimed by another process, hence each input is processed at least once.
+ * The files of an input are keyed by its path and the fingerprint of the job, hence
+ * the done markers of another job don't apply, even if the queue directory is reused.
+ * The clocks of the nodes must agree within a fraction of the lease timeout.
+ * 
+ */
+class LeaseWorkQueue implements Closeable {
+
+	/**
+	 * The result of a claim.
+	 */
+	enum Claim {
+		CLAIMED, //
+		LEASED, //
+		DONE;
+	}
+
+	private static final Logger logger = Logger.getLogger(LeaseWorkQueue.class);
+	static final String LEASE_EXTENSION = ".lease";
+	static final String DONE_EXTENSION = ".done";
+	private static final String STALE_EXTENSION = ".stale-";
+	private static final String HEARTBEAT_THREAD_PREFIX = "BatchProcess-Lease";
+	//
+	private final File directory;
+	private final long leaseTimeout;
+	private final String jobFingerprint;
+	private final String owner;
+	private final AtomicLong counter = new AtomicLong();
+	private final Map<File, String> leases = new ConcurrentHashMap<File, String>();
+	private final Set<File> foreignLeases = ConcurrentHashMap.<File> newKeySet();
+	private final ScheduledExecutorService heartbeat;
+
+	/**
+	 * Opens the queue in the given directory. The leases are renewed three times per timeout.
+	 * 
+	 * @param directory
+	 * @param leaseTimeout
+	 *            in milliseconds
+	 * @param jobFingerprint
+	 *            identifies the job whose inputs are distributed, see {@link IncrementalManifest#getFingerprint(org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IBatchProcessJob, org.eclipse.chemclipse.msd.process.support.ProcessTypeSupport)}
+	 * @throws IOException
+	 */
+	LeaseWorkQueue(File directory, long leaseTimeout, String jobFingerprint) throws IOException {
+		Files.createDirectories(directory.toPath());
+		this.directory = directory;
+		this.leaseTimeout = leaseTimeout;
+		this.jobFingerprint = jobFingerprint;
+		this.owner = ManagementFactory.getRuntimeMXBean().getName() + "-" + UUID.randomUUID();
+		long period = Math.max(1L, leaseTimeout / 3L);
+		heartbeat = Executors.newSingleThreadScheduledExecutor(new BatchProcessThreadFactory(HEARTBEAT_THREAD_PREFIX));
+		heartbeat.scheduleAtFixedRate(this::renewLeases, period, period, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Tries to claim the input for this process.
+	 * An input that is leased by another process is remembered, see {@link #getForeignLeases()}.
+	 * 
+	 * @param massSpectrumInputFile
+	 * @return {@link Claim}
+	 * @throws IOException
+	 */
+	Claim claim(File massSpectrumInputFile) throws IOException {
+
+		File input = massSpectrumInputFile.getAbsoluteFile();
+		if(leases.containsKey(input)) {
+			return Claim.CLAIMED;
+		}
+		Path done = getPath(input, DONE_EXTENSION);
+		if(Files.exists(done)) {
+			foreignLeases.remove(input);
+			return Claim.DONE;
+		}
+		Path lease = getPath(input, LEASE_EXTENSION);
+		String token = owner + "-" + counter.incrementAndGet();
+		/*
+		 * A second attempt is made if an expired lease has been broken.
+		 */
+		for(int attempt = 0; attempt < 2; attempt++) {
+			try {
+				Files.write(lease, token.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+			} catch(FileAlreadyExistsException e) {
+				if(isExpired(lease) && breakLease(lease)) {
+					continue;
+				}
+				break;
+			}
+			leases.put(input, token);
+			foreignLeases.remove(input);
+			/*
+			 * Another process may have completed the input after the done marker has been checked.
+			 */
+			if(Files.exists(done)) {
+				leases.remove(input);
+				deleteLease(lease, token);
+				return Claim.DONE;
+			}
+			return Claim.CLAIMED;
+		}
+		foreignLeases.add(input);
+		return Claim.LEASED;
+	}
+
+	/**
+	 * Marks the claimed input as done and releases its lease.
+	 * 
+	 * @param massSpectrumInputFile
+	 * @throws IOException
+	 */
+	void complete(File massSpectrumInputFile) throws IOException {
+
+		File input = massSpectrumInputFile.getAbsoluteFile();
+		Files.write(getPath(input, DONE_EXTENSION), input.getPath().getBytes(StandardCharsets.UTF_8));
+		String token = leases.remove(input);
+		if(token != null) {
+			deleteLease(getPath(input, LEASE_EXTENSION), token);
+		}
+	}
+
+	/**
+	 * Returns true if the lease of the input has expired or doesn't exist anymore.
+	 * 
+	 * @param massSpectrumInputFile
+	 * @return boolean
+	 * @throws IOException
+	 */
+	boolean isExpired(File massSpectrumInputFile) throws IOException {
+
+		return isExpired(getPath(massSpectrumInputFile.getAbsoluteFile(), LEASE_EXTENSION));
+	}
+
+	/**
+	 * Returns the inputs that have been leased by other processes when they were claimed
+	 * and that are not done yet.
+	 * 
+	 * @return List<File>
+	 */
+	List<File> getForeignLeases() {
+
+		List<File> inputs = new ArrayList<File>();
+		for(File input : foreignLeases) {
+			if(Files.exists(getPath(input, DONE_EXTENSION))) {
+				foreignLeases.remove(input);
+			} else {
+				inputs.add(input);
+			}
+		}
+		return inputs;
+	}
+
+	/**
+	 * Stops the renewal and releases the leases that are still held,
+	 * so that other processes don't need to wait until they expire.
+	 */
+	@Override
+	public void close() {
+
+		heartbeat.shutdownNow();
+		for(Map.Entry<File, String> entry : leases.entrySet()) {
+			try {
+				deleteLease(getPath(entry.getKey(), LEASE_EXTENSION), entry.getValue());
+			} catch(IOException e) {
+				logger.warn(e);
+			}
+		}
+		leases.clear();
+	}
+
+	private void renewLeases() {
+
+		FileTime now = FileTime.fromMillis(System.currentTimeMillis());
+		for(Map.Entry<File, String> entry : leases.entrySet()) {
+			Path lease = getPath(entry.getKey(), LEASE_EXTENSION);
+			try {
+				if(entry.getValue().equals(readToken(lease))) {
+					Files.setLastModifiedTime(lease, now);
+				} else {
+					/*
+					 * The lease has been broken, e.g. because the renewal has been delayed too long.
+					 * The input may be processed twice.
+					 */
+					logger.warn("The lease has been taken over by another process: " + entry.getKey());
+					leases.remove(entry.getKey(), entry.getValue());
+				}
+			} catch(IOException e) {
+				logger.warn(e);
+			}
+		}
+	}
+
+	/**
+	 * Removes an expired lease. The lease is renamed first, so that only one of the
+	 * processes that found it expired removes it. Returns false if the renamed lease
+	 * has been renewed in the meantime.
+	 * 
+	 * @param lease
+	 * @return boolean
+	 * @throws IOException
+	 */
+	private boolean breakLease(Path lease) throws IOException {
+
+		Path stale = lease.resolveSibling(lease.getFileName() + STALE_EXTENSION + UUID.randomUUID());
+		try {
+			Files.move(lease, stale, StandardCopyOption.ATOMIC_MOVE);
+		} catch(NoSuchFileException e) {
+			/*
+			 * Another process has broken or released it.
+			 */
+			return true;
+		}
+		if(isExpired(stale)) {
+			Files.deleteIfExists(stale);
+			return true;
+		}
+		try {
+			Files.move(stale, lease);
+		} catch(FileAlreadyExistsException e) {
+			Files.deleteIfExists(stale);
+		}
+		return false;
+	}
+
+	private boolean isExpired(Path lease) throws IOException {
+
+		try {
+			return System.currentTimeMillis() - Files.getLastModifiedTime(lease).toMillis() > leaseTimeout;
+		} catch(NoSuchFileException e) {
+			return true;
+		}
+	}
+
+	private void deleteLease(Path lease, String token) throws IOException {
+
+		try {
+			if(token.equals(readToken(lease))) {
+				Files.deleteIfExists(lease);
+			}
+		} catch(NoSuchFileException e) {
+			/*
+			 * Already broken by another process.
+			 */
+		}
+	}
+
+	private String readToken(Path lease) throws IOException {
+
+		return new String(Files.readAllBytes(lease), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * The files of an input are named by the hash of its absolute path and the job fingerprint.
+	 * 
+	 * @param input
+	 * @param extension
+	 * @return Path
+	 */
+	private Path getPath(File input, String extension) {
+
+		String key = input.getPath() + "\n" + jobFingerprint;
+		String name = IncrementalManifest.toHex(IncrementalManifest.sha256(key.getBytes(StandardCharsets.UTF_8)));
+		return new File(directory, name + extension).toPath();
+	}
+}
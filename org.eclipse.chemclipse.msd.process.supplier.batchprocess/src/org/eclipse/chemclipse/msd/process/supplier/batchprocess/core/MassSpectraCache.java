@@ -0,0 +1,373 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Lablicate GmbH.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * Lablicate GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.chemclipse.msd.process.supplier.batchprocess.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.eclipse.chemclipse.logging.core.Logger;
+
+/**
+ * Caches the outputs of processed mass spectra on disk, so that jobs which process the same input with the same
+ * process entries and output converters reuse them. An entry is addressed by the hash of the input bytes, the file name,
+ * the ordered process entries, the fingerprints of their settings and the output converters. The output files are
+ * stored as they have been written, hence a restored output is identical to the output of a fresh run. The least
+ * recently used entries are removed if the cache exceeds its size. The cache may be shared by several processes.
+ * 
+ * <pre>
+ * magic number, version
+ * name: byte length or -1 for null, UTF-8 bytes
+ * outputs: count, (byte length, bytes)*
+ * </pre>
+ * 
+ */
+class MassSpectraCache {
+
+	private static final Logger logger = Logger.getLogger(MassSpectraCache.class);
+	/*
+	 * "CBPC"
+	 */
+	private static final int MAGIC_NUMBER = 0x43425043;
+	private static final int VERSION = 2;
+	private static final int NO_STRING = -1;
+	private static final String FILE_EXTENSION = ".outputs";
+	private static final String TEMPORARY_EXTENSION = ".tmp";
+	private static final int BUFFER_SIZE = 65536;
+	//
+	private final File directory;
+	private final long maximumSize;
+	private final byte[] jobFingerprint;
+	/*
+	 * The entries in access order, the eldest entry is removed first.
+	 */
+	private final LinkedHashMap<String, Long> entries = new LinkedHashMap<String, Long>(16, 0.75f, true);
+	private long size;
+	private long evictions;
+
+	/**
+	 * Opens the cache in the given directory. The entries written by earlier runs are
+	 * ordered by their modification time, which is updated whenever an entry is used.
+	 * 
+	 * @param directory
+	 * @param maximumSize
+	 *            in bytes
+	 * @param jobFingerprint
+	 *            the process entries, their settings and the output converters
+	 * @throws IOException
+	 */
+	MassSpectraCache(File directory, long maximumSize, String jobFingerprint) throws IOException {
+		Files.createDirectories(directory.toPath());
+		this.directory = directory;
+		this.maximumSize = maximumSize;
+		this.jobFingerprint = jobFingerprint.getBytes(StandardCharsets.UTF_8);
+		File[] files = directory.listFiles((dir, name) -> name.endsWith(FILE_EXTENSION));
+		if(files == null) {
+			throw new IOException("The cache directory couldn't be listed: " + directory);
+		}
+		Map<File, Long> modified = new HashMap<File, Long>();
+		for(File file : files) {
+			modified.put(file, file.lastModified());
+		}
+		Arrays.sort(files, Comparator.comparingLong(modified::get));
+		synchronized(this) {
+			for(File file : files) {
+				String fileName = file.getName();
+				add(fileName.substring(0, fileName.length() - FILE_EXTENSION.length()), file.length());
+			}
+			evict();
+		}
+	}
+
+	/**
+	 * Returns the key of the processed input.
+	 * The file name is part of the key, because the outputs are named after the mass spectra.
+	 * 
+	 * @param massSpectrumInputFile
+	 * @return String
+	 * @throws IOException
+	 */
+	String getKey(File massSpectrumInputFile) throws IOException {
+
+		MessageDigest inputDigest = getDigest();
+		byte[] buffer = new byte[BUFFER_SIZE];
+		try (InputStream inputStream = Files.newInputStream(massSpectrumInputFile.toPath())) {
+			int length;
+			while((length = inputStream.read(buffer)) != -1) {
+				inputDigest.update(buffer, 0, length);
+			}
+		}
+		MessageDigest keyDigest = getDigest();
+		keyDigest.update(inputDigest.digest());
+		keyDigest.update(massSpectrumInputFile.getName().getBytes(StandardCharsets.UTF_8));
+		keyDigest.update((byte)0);
+		keyDigest.update(jobFingerprint);
+		return IncrementalManifest.toHex(keyDigest.digest());
+	}
+
+	/**
+	 * Restores the cached outputs and returns the name of the mass spectra or null if the key is not cached.
+	 * Each output is written to a temporary file first, so that no partial output is left behind.
+	 * 
+	 * @param key
+	 * @param getOutputFiles
+	 *            returns the output files of the mass spectra with the given name
+	 * @return String
+	 */
+	String restore(String key, Function<String, List<File>> getOutputFiles) {
+
+		Path file = getPath(key);
+		synchronized(this) {
+			/*
+			 * The lookup marks the entry as recently used.
+			 */
+			if(entries.get(key) == null && !Files.exists(file)) {
+				return null;
+			}
+		}
+		List<Path> temporaryFiles = new ArrayList<Path>();
+		try {
+			String name;
+			List<File> outputFiles;
+			try (DataInputStream inputStream = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE))) {
+				if(inputStream.readInt() != MAGIC_NUMBER || inputStream.readInt() != VERSION) {
+					throw new IOException("The cache entry is not supported.");
+				}
+				name = readString(inputStream);
+				outputFiles = name != null ? getOutputFiles.apply(name) : null;
+				if(outputFiles == null || inputStream.readInt() != outputFiles.size()) {
+					throw new IOException("The cache entry doesn't match the outputs.");
+				}
+				for(File outputFile : outputFiles) {
+					Path outputFolder = Files.createDirectories(outputFile.getAbsoluteFile().getParentFile().toPath());
+					Path temporaryFile = Files.createTempFile(outputFolder, outputFile.getName(), TEMPORARY_EXTENSION);
+					temporaryFiles.add(temporaryFile);
+					try (OutputStream outputStream = Files.newOutputStream(temporaryFile)) {
+						copy(inputStream, outputStream, inputStream.readLong());
+					}
+				}
+			}
+			/*
+			 * The converters replace existing outputs as well.
+			 */
+			for(int index = 0; index < outputFiles.size(); index++) {
+				Files.move(temporaryFiles.get(index), outputFiles.get(index).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}
+			synchronized(this) {
+				if(!entries.containsKey(key)) {
+					/*
+					 * Written by another process.
+					 */
+					add(key, Files.size(file));
+					evict();
+				}
+			}
+			Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+			return name;
+		} catch(IOException e) {
+			/*
+			 * Evicted meanwhile or corrupt.
+			 */
+			logger.warn(e);
+			remove(key);
+			return null;
+		} finally {
+			for(Path temporaryFile : temporaryFiles) {
+				try {
+					Files.deleteIfExists(temporaryFile);
+				} catch(IOException e) {
+					logger.warn(e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Stores the outputs of the processed mass spectra and removes the least recently used entries if the cache is full.
+	 * 
+	 * @param key
+	 * @param name
+	 *            the name of the mass spectra
+	 * @param outputFiles
+	 *            the written outputs in the order of the output entries
+	 * @throws IOException
+	 */
+	void put(String key, String name, List<File> outputFiles) throws IOException {
+
+		Path file = getPath(key);
+		Path temporaryFile = Files.createTempFile(directory.toPath(), key, TEMPORARY_EXTENSION);
+		try {
+			try (DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile), BUFFER_SIZE))) {
+				outputStream.writeInt(MAGIC_NUMBER);
+				outputStream.writeInt(VERSION);
+				writeString(outputStream, name);
+				outputStream.writeInt(outputFiles.size());
+				for(File outputFile : outputFiles) {
+					try (InputStream inputStream = Files.newInputStream(outputFile.toPath())) {
+						long length = Files.size(outputFile.toPath());
+						outputStream.writeLong(length);
+						copy(inputStream, outputStream, length);
+					}
+				}
+			}
+			Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temporaryFile);
+		}
+		synchronized(this) {
+			add(key, Files.size(file));
+			evict();
+		}
+	}
+
+	/**
+	 * Returns the number of entries that have been removed to bound the size of the cache.
+	 * 
+	 * @return long
+	 */
+	synchronized long getEvictions() {
+
+		return evictions;
+	}
+
+	/**
+	 * Returns the size of the cached entries in bytes.
+	 * 
+	 * @return long
+	 */
+	synchronized long getSize() {
+
+		return size;
+	}
+
+	/**
+	 * Returns the number of cached entries.
+	 * 
+	 * @return int
+	 */
+	synchronized int getEntryCount() {
+
+		return entries.size();
+	}
+
+	private void add(String key, long length) {
+
+		Long previous = entries.put(key, length);
+		if(previous != null) {
+			size -= previous;
+		}
+		size += length;
+	}
+
+	private synchronized void remove(String key) {
+
+		Long length = entries.remove(key);
+		if(length != null) {
+			size -= length;
+		}
+		try {
+			Files.deleteIfExists(getPath(key));
+		} catch(IOException e) {
+			logger.warn(e);
+		}
+	}
+
+	private void evict() {
+
+		Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+		while(size > maximumSize && iterator.hasNext()) {
+			Map.Entry<String, Long> entry = iterator.next();
+			iterator.remove();
+			size -= entry.getValue();
+			evictions++;
+			try {
+				Files.deleteIfExists(getPath(entry.getKey()));
+			} catch(IOException e) {
+				logger.warn(e);
+			}
+		}
+	}
+
+	private void copy(InputStream inputStream, OutputStream outputStream, long length) throws IOException {
+
+		byte[] buffer = new byte[BUFFER_SIZE];
+		long remaining = length;
+		while(remaining > 0) {
+			int read = inputStream.read(buffer, 0, (int)Math.min(buffer.length, remaining));
+			if(read == -1) {
+				throw new IOException("The cached output is truncated.");
+			}
+			outputStream.write(buffer, 0, read);
+			remaining -= read;
+		}
+	}
+
+	private void writeString(DataOutputStream outputStream, String value) throws IOException {
+
+		if(value == null) {
+			outputStream.writeInt(NO_STRING);
+		} else {
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			outputStream.writeInt(bytes.length);
+			outputStream.write(bytes);
+		}
+	}
+
+	private String readString(DataInputStream inputStream) throws IOException {
+
+		int length = inputStream.readInt();
+		if(length == NO_STRING) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		inputStream.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private Path getPath(String key) {
+
+		return new File(directory, key + FILE_EXTENSION).toPath();
+	}
+
+	private MessageDigest getDigest() {
+
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch(NoSuchAlgorithmException e) {
+			/*
+			 * Each JVM must support SHA-256.
+			 */
+			throw new IllegalStateException(e);
+		}
+	}
+}
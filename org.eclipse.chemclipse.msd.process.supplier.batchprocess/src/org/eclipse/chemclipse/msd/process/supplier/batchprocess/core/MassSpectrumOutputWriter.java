@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Lablicate GmbH.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * Lablicate GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.chemclipse.msd.process.supplier.batchprocess.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import org.eclipse.chemclipse.logging.core.Logger;
+import org.eclipse.chemclipse.msd.model.core.IMassSpectra;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.internal.support.BatchProcessThreadFactory;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IMassSpectrumOutputEntry;
+import org.eclipse.chemclipse.processing.core.IProcessingInfo;
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * Writes the output entries of a file concurrently.
+ * The mass spectra are only read by the converters, hence they are shared between the writers.
+ * The number of concurrent writers is bounded per volume, so that a slow volume
+ * doesn't get more requests than it can handle while the other volumes are written in parallel.
+ * 
+ */
+class MassSpectrumOutputWriter {
+
+	private static final Logger logger = Logger.getLogger(MassSpectrumOutputWriter.class);
+	private static final String DESCRIPTION = "Batch Processor";
+	private static final String THREAD_PREFIX = "BatchProcess-Writer";
+	//
+	private final BatchProcess batchProcess;
+	private final int threadsPerVolume;
+	private final ConcurrentMap<String, Semaphore> volumePermits = new ConcurrentHashMap<String, Semaphore>();
+	private final ConcurrentMap<String, String> volumes = new ConcurrentHashMap<String, String>();
+	private ExecutorService executorService;
+
+	MassSpectrumOutputWriter(BatchProcess batchProcess, int threadsPerVolume) {
+		this.batchProcess = batchProcess;
+		this.threadsPerVolume = threadsPerVolume;
+	}
+
+	/**
+	 * Writes the mass spectra to each output entry and merges the results in the order of the entries.
+	 * 
+	 * @param massSpectra
+	 * @param massSpectrumOutputs
+	 * @param batchProcessingInfo
+	 * @param monitor
+	 * @throws InterruptedException
+	 */
+	void write(IMassSpectra massSpectra, List<IMassSpectrumOutputEntry> massSpectrumOutputs, IProcessingInfo batchProcessingInfo, IProgressMonitor monitor) throws InterruptedException {
+
+		if(massSpectrumOutputs.size() <= 1) {
+			for(IMassSpectrumOutputEntry massSpectrumOutput : massSpectrumOutputs) {
+				batchProcessingInfo.addMessages(write(massSpectra, massSpectrumOutput, monitor));
+			}
+			return;
+		}
+		List<Future<IProcessingInfo>> futures = new ArrayList<Future<IProcessingInfo>>(massSpectrumOutputs.size());
+		try {
+			for(IMassSpectrumOutputEntry massSpectrumOutput : massSpectrumOutputs) {
+				futures.add(getExecutorService().submit(() -> write(massSpectra, massSpectrumOutput, monitor)));
+			}
+			for(int index = 0; index < futures.size(); index++) {
+				try {
+					batchProcessingInfo.addMessages(futures.get(index).get());
+				} catch(ExecutionException e) {
+					logger.warn(e);
+					batchProcessingInfo.addErrorMessage(DESCRIPTION, "A failure occurred writing the output: " + massSpectrumOutputs.get(index).getOutputFolder());
+				}
+			}
+		} finally {
+			/*
+			 * Don't leave writers behind if the file has been interrupted.
+			 */
+			for(Future<IProcessingInfo> future : futures) {
+				future.cancel(true);
+			}
+		}
+	}
+
+	/**
+	 * Stops the writer threads.
+	 */
+	synchronized void shutdown() {
+
+		if(executorService != null) {
+			executorService.shutdownNow();
+			executorService = null;
+		}
+	}
+
+	private IProcessingInfo write(IMassSpectra massSpectra, IMassSpectrumOutputEntry massSpectrumOutput, IProgressMonitor monitor) throws InterruptedException {
+
+		Semaphore permits = getVolumePermits(massSpectrumOutput.getOutputFolder());
+		permits.acquire();
+		try {
+			/*
+			 * A canceled writer deletes its partial output.
+			 */
+			return batchProcess.writeMassSpectrumOutputEntry(massSpectra, massSpectrumOutput, monitor);
+		} finally {
+			permits.release();
+		}
+	}
+
+	private synchronized ExecutorService getExecutorService() {
+
+		if(executorService == null) {
+			/*
+			 * The threads are bounded by the volume permits, hence the pool may grow.
+			 */
+			executorService = Executors.newCachedThreadPool(new BatchProcessThreadFactory(THREAD_PREFIX));
+		}
+		return executorService;
+	}
+
+	private Semaphore getVolumePermits(String outputFolder) {
+
+		String volume = volumes.computeIfAbsent(outputFolder, folder -> getVolume(folder));
+		return volumePermits.computeIfAbsent(volume, key -> new Semaphore(threadsPerVolume));
+	}
+
+	/**
+	 * Returns a key that identifies the file store of the folder.
+	 * The folder may not exist yet, hence its nearest existing parent is used.
+	 * 
+	 * @param outputFolder
+	 * @return String
+	 */
+	private String getVolume(String outputFolder) {
+
+		Path path = new File(outputFolder).getAbsoluteFile().toPath();
+		Path existing = path;
+		while(existing != null && !Files.exists(existing)) {
+			existing = existing.getParent();
+		}
+		if(existing != null) {
+			try {
+				FileStore fileStore = Files.getFileStore(existing);
+				return fileStore.name() + File.pathSeparator + fileStore.toString();
+			} catch(IOException e) {
+				logger.warn(e);
+			}
+		}
+		Path root = path.getRoot();
+		return root != null ? root.toString() : outputFolder;
+	}
+}
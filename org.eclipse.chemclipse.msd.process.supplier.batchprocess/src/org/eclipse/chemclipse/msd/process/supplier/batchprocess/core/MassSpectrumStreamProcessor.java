@@ -0,0 +1,168 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Lablicate GmbH.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * Lablicate GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.chemclipse.msd.process.supplier.batchprocess.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.chemclipse.logging.core.Logger;
+import org.eclipse.chemclipse.msd.model.core.IMassSpectra;
+import org.eclipse.chemclipse.msd.model.core.IScanMSD;
+import org.eclipse.chemclipse.msd.model.implementation.MassSpectra;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.io.IMassSpectrumStreamConverter;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.io.IMassSpectrumStreamReader;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.io.IMassSpectrumStreamWriter;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.io.MassSpectrumStreamConverterSupport;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IBatchProcessJob;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IMassSpectrumOutputEntry;
+import org.eclipse.chemclipse.processing.core.IProcessingInfo;
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * Streams the scans of a file through the process entries to the outputs.
+ * Only a window of scans is held in memory at any time.
+ * 
+ */
+class MassSpectrumStreamProcessor {
+
+	private static final Logger logger = Logger.getLogger(MassSpectrumStreamProcessor.class);
+	private static final String DESCRIPTION = "Batch Processor";
+	//
+	private final BatchProcess batchProcess;
+	private final MassSpectrumStreamConverterSupport streamConverterSupport;
+
+	MassSpectrumStreamProcessor(BatchProcess batchProcess, MassSpectrumStreamConverterSupport streamConverterSupport) {
+		this.batchProcess = batchProcess;
+		this.streamConverterSupport = streamConverterSupport;
+	}
+
+	/**
+	 * Returns whether the input file and all outputs can be streamed.
+	 * Reports need the whole mass spectra, hence jobs with report entries are not streamed.
+	 * 
+	 * @param massSpectrumInputFile
+	 * @param batchProcessJob
+	 * @return boolean
+	 */
+	boolean canStream(File massSpectrumInputFile, IBatchProcessJob batchProcessJob) {
+
+		if(!batchProcessJob.getMassSpectrumReportEntries().isEmpty()) {
+			return false;
+		}
+		if(streamConverterSupport.getReader(massSpectrumInputFile) == null) {
+			return false;
+		}
+		for(IMassSpectrumOutputEntry massSpectrumOutput : batchProcessJob.getMassSpectrumOutputEntries()) {
+			if(streamConverterSupport.getWriter(massSpectrumOutput.getConverterId()) == null) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Reads, processes and writes the file window by window.
+	 * 
+	 * @param massSpectrumInputFile
+	 * @param context
+	 * @param processingInfo
+	 * @param monitor
+	 * @return String the name of the mass spectra
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	String process(File massSpectrumInputFile, BatchProcessContext context, IProcessingInfo processingInfo, IProgressMonitor monitor) throws IOException, InterruptedException {
+
+		IBatchProcessJob batchProcessJob = context.getBatchProcessJob();
+		int windowSize = batchProcessJob.getBatchProcessSettings().getStreamWindowSize();
+		IMassSpectrumStreamConverter readerConverter = streamConverterSupport.getReader(massSpectrumInputFile);
+		try (IMassSpectrumStreamReader reader = readerConverter.openReader(massSpectrumInputFile, monitor)) {
+			List<IMassSpectrumStreamWriter> writers = new ArrayList<IMassSpectrumStreamWriter>();
+			List<File> massSpectrumOutputFiles = new ArrayList<File>();
+			boolean completed = false;
+			try {
+				try {
+					for(IMassSpectrumOutputEntry massSpectrumOutput : batchProcessJob.getMassSpectrumOutputEntries()) {
+						String converterId = massSpectrumOutput.getConverterId();
+						File massSpectrumOutputFile = batchProcess.getOutputFile(massSpectrumOutput, reader.getName());
+						massSpectrumOutputFiles.add(massSpectrumOutputFile);
+						writers.add(streamConverterSupport.getWriter(converterId).openWriter(massSpectrumOutputFile, converterId, monitor));
+					}
+					IMassSpectra window = new MassSpectra();
+					IScanMSD massSpectrum;
+					while(!monitor.isCanceled() && (massSpectrum = reader.next()) != null) {
+						window.addMassSpectrum(massSpectrum);
+						if(window.size() >= windowSize) {
+							processWindow(window, context, writers, processingInfo, monitor);
+							window = new MassSpectra();
+						}
+					}
+					if(window.size() > 0 && !monitor.isCanceled()) {
+						processWindow(window, context, writers, processingInfo, monitor);
+					}
+				} finally {
+					close(writers);
+				}
+				completed = !monitor.isCanceled() && !Thread.currentThread().isInterrupted();
+			} finally {
+				if(!completed) {
+					/*
+					 * The streamed outputs are incomplete and must not be taken for valid results.
+					 */
+					for(File massSpectrumOutputFile : massSpectrumOutputFiles) {
+						batchProcess.deletePartialOutput(massSpectrumOutputFile);
+					}
+				}
+			}
+			if(!completed) {
+				processingInfo.addErrorMessage(DESCRIPTION, "The streaming has been canceled, the partial outputs have been deleted: " + massSpectrumInputFile);
+			}
+			return reader.getName();
+		}
+	}
+
+	private void processWindow(IMassSpectra window, BatchProcessContext context, List<IMassSpectrumStreamWriter> writers, IProcessingInfo processingInfo, IProgressMonitor monitor) throws IOException, InterruptedException {
+
+		/*
+		 * Only the processing is bounded, reading and writing the windows is not.
+		 */
+		batchProcess.acquire(context);
+		try {
+			batchProcess.processMassSpectrumEntry(window, context, processingInfo, monitor);
+		} finally {
+			batchProcess.release(context);
+		}
+		for(IScanMSD massSpectrum : window.getList()) {
+			for(IMassSpectrumStreamWriter writer : writers) {
+				writer.write(massSpectrum);
+			}
+		}
+	}
+
+	private void close(List<IMassSpectrumStreamWriter> writers) throws IOException {
+
+		IOException exception = null;
+		for(IMassSpectrumStreamWriter writer : writers) {
+			try {
+				writer.close();
+			} catch(IOException e) {
+				logger.warn(e);
+				exception = e;
+			}
+		}
+		if(exception != null) {
+			throw exception;
+		}
+	}
+}
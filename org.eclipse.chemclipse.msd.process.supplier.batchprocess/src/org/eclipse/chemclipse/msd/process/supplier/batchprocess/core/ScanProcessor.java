@@ -0,0 +1,181 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Lablicate GmbH.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * Lablicate GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.chemclipse.msd.process.supplier.batchprocess.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import org.eclipse.chemclipse.msd.model.core.IMassSpectra;
+import org.eclipse.chemclipse.msd.model.core.IScanMSD;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.internal.support.SynchronizedProgressMonitor;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IMassSpectrumProcessEntry;
+import org.eclipse.chemclipse.msd.process.support.ProcessTypeSupport;
+import org.eclipse.chemclipse.processing.core.IProcessingInfo;
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * Applies the process entries to the scans of the mass spectra.
+ * 
+ */
+class ScanProcessor {
+
+	private static final String DESCRIPTION = "Batch Processor";
+	/*
+	 * Smaller chunks don't pay off the fork/join overhead.
+	 */
+	private static final int MIN_CHUNK_SIZE = 64;
+	private static final int CHUNKS_PER_THREAD = 4;
+	//
+	private final ProcessTypeSupport processTypeSupport;
+
+	ScanProcessor(ProcessTypeSupport processTypeSupport) {
+		this.processTypeSupport = processTypeSupport;
+	}
+
+	/**
+	 * Applies each process entry to all scans, one scan after the other.
+	 * 
+	 * @param massSpectra
+	 * @param processEntries
+	 * @param metrics
+	 *            records the duration of each processor per scan
+	 * @param processingInfo
+	 * @param monitor
+	 */
+	void processSequential(IMassSpectra massSpectra, List<IMassSpectrumProcessEntry> processEntries, BatchProcessMetrics metrics, IProcessingInfo processingInfo, IProgressMonitor monitor) {
+
+		for(IMassSpectrumProcessEntry processEntry : processEntries) {
+			LatencyHistogram timer = metrics.getProcessor(processEntry.getProcessorId());
+			for(IScanMSD massSpectrum : massSpectra.getList()) {
+				processScan(massSpectrum, processEntry, timer, processingInfo, monitor);
+			}
+		}
+	}
+
+	/**
+	 * Applies the whole chain of process entries to one scan before moving to the next scan.
+	 * 
+	 * @param massSpectra
+	 * @param processEntries
+	 * @param metrics
+	 *            records the duration of each processor per scan
+	 * @param processingInfo
+	 * @param monitor
+	 */
+	void processFused(IMassSpectra massSpectra, List<IMassSpectrumProcessEntry> processEntries, BatchProcessMetrics metrics, IProcessingInfo processingInfo, IProgressMonitor monitor) {
+
+		LatencyHistogram[] timers = new LatencyHistogram[processEntries.size()];
+		for(int i = 0; i < timers.length; i++) {
+			timers[i] = metrics.getProcessor(processEntries.get(i).getProcessorId());
+		}
+		for(IScanMSD massSpectrum : massSpectra.getList()) {
+			for(int i = 0; i < timers.length; i++) {
+				processScan(massSpectrum, processEntries.get(i), timers[i], processingInfo, monitor);
+			}
+		}
+	}
+
+	/**
+	 * Applies each process entry to chunks of the scans on all cores.
+	 * The scan order and the order of the messages is preserved.
+	 * Processors that are not thread safe are applied sequentially.
+	 * 
+	 * @param massSpectra
+	 * @param processEntries
+	 * @param metrics
+	 *            records the duration of each processor per scan
+	 * @param processingInfo
+	 * @param monitor
+	 */
+	void processParallel(IMassSpectra massSpectra, List<IMassSpectrumProcessEntry> processEntries, BatchProcessMetrics metrics, IProcessingInfo processingInfo, IProgressMonitor monitor) {
+
+		List<IScanMSD> scans = new ArrayList<IScanMSD>(massSpectra.getList());
+		ForkJoinPool forkJoinPool = ForkJoinPool.commonPool();
+		int chunkSize = Math.max(MIN_CHUNK_SIZE, scans.size() / (forkJoinPool.getParallelism() * CHUNKS_PER_THREAD));
+		IProgressMonitor sharedMonitor = (monitor instanceof SynchronizedProgressMonitor) ? monitor : new SynchronizedProgressMonitor(monitor);
+		for(IMassSpectrumProcessEntry processEntry : processEntries) {
+			LatencyHistogram timer = metrics.getProcessor(processEntry.getProcessorId());
+			if(scans.size() > chunkSize && processTypeSupport.isThreadSafe(processEntry)) {
+				processingInfo.addMessages(forkJoinPool.invoke(new ScanTask(scans, 0, scans.size(), chunkSize, processEntry, timer, processingInfo, sharedMonitor)));
+			} else {
+				for(IScanMSD massSpectrum : scans) {
+					processScan(massSpectrum, processEntry, timer, processingInfo, monitor);
+				}
+			}
+		}
+	}
+
+	private void processScan(IScanMSD massSpectrum, IMassSpectrumProcessEntry processEntry, LatencyHistogram timer, IProcessingInfo processingInfo, IProgressMonitor monitor) {
+
+		if(massSpectrum == null) {
+			processingInfo.addErrorMessage(DESCRIPTION, "The mass spectrum must not be null.");
+		} else {
+			long start = System.nanoTime();
+			IProcessingInfo scanProcessingInfo = processTypeSupport.applyProcessor(massSpectrum, processEntry, monitor);
+			timer.record(System.nanoTime() - start);
+			processingInfo.addMessages(scanProcessingInfo);
+		}
+	}
+
+	/**
+	 * Processes the scans [from, to) and returns the merged processing info.
+	 */
+	private class ScanTask extends RecursiveTask<IProcessingInfo> {
+
+		private static final long serialVersionUID = 1L;
+		//
+		private final List<IScanMSD> scans;
+		private final int from;
+		private final int to;
+		private final int chunkSize;
+		private final IMassSpectrumProcessEntry processEntry;
+		private final LatencyHistogram timer;
+		private final IProcessingInfo parentProcessingInfo;
+		private final IProgressMonitor monitor;
+
+		private ScanTask(List<IScanMSD> scans, int from, int to, int chunkSize, IMassSpectrumProcessEntry processEntry, LatencyHistogram timer, IProcessingInfo parentProcessingInfo, IProgressMonitor monitor) {
+			this.scans = scans;
+			this.from = from;
+			this.to = to;
+			this.chunkSize = chunkSize;
+			this.processEntry = processEntry;
+			this.timer = timer;
+			this.parentProcessingInfo = parentProcessingInfo;
+			this.monitor = monitor;
+		}
+
+		@Override
+		protected IProcessingInfo compute() {
+
+			if(to - from <= chunkSize) {
+				/*
+				 * The chunk is bounded like the processing info of the file.
+				 */
+				IProcessingInfo processingInfo = AggregatingProcessingInfo.createPart(parentProcessingInfo);
+				for(int index = from; index < to; index++) {
+					processScan(scans.get(index), processEntry, timer, processingInfo, monitor);
+				}
+				return processingInfo;
+			}
+			int middle = (from + to) >>> 1;
+			ScanTask left = new ScanTask(scans, from, middle, chunkSize, processEntry, timer, parentProcessingInfo, monitor);
+			ScanTask right = new ScanTask(scans, middle, to, chunkSize, processEntry, timer, parentProcessingInfo, monitor);
+			left.fork();
+			IProcessingInfo rightInfo = right.compute();
+			IProcessingInfo leftInfo = left.join();
+			leftInfo.addMessages(rightInfo);
+			return leftInfo;
+		}
+	}
+}
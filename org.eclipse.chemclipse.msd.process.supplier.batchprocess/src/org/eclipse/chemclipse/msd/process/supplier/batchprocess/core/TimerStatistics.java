@@ -0,0 +1,78 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Lablicate GmbH.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * Lablicate GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.chemclipse.msd.process.supplier.batchprocess.core;
+
+/**
+ * A snapshot of the timings of a stage or a processor, in milliseconds.
+ * 
+ */
+public class TimerStatistics {
+
+	private static final double NANOS_PER_MILLI = 1000000.0d;
+	//
+	private final long count;
+	private final double totalMillis;
+	private final double p50Millis;
+	private final double p95Millis;
+	private final double p99Millis;
+	private final double maxMillis;
+
+	TimerStatistics(long count, long totalNanos, long p50Nanos, long p95Nanos, long p99Nanos, long maxNanos) {
+		this.count = count;
+		this.totalMillis = totalNanos / NANOS_PER_MILLI;
+		this.p50Millis = p50Nanos / NANOS_PER_MILLI;
+		this.p95Millis = p95Nanos / NANOS_PER_MILLI;
+		this.p99Millis = p99Nanos / NANOS_PER_MILLI;
+		this.maxMillis = maxNanos / NANOS_PER_MILLI;
+	}
+
+	public long getCount() {
+
+		return count;
+	}
+
+	public double getTotalMillis() {
+
+		return totalMillis;
+	}
+
+	public double getMeanMillis() {
+
+		return count > 0 ? totalMillis / count : 0.0d;
+	}
+
+	public double getP50Millis() {
+
+		return p50Millis;
+	}
+
+	public double getP95Millis() {
+
+		return p95Millis;
+	}
+
+	public double getP99Millis() {
+
+		return p99Millis;
+	}
+
+	public double getMaxMillis() {
+
+		return maxMillis;
+	}
+
+	@Override
+	public String toString() {
+
+		return String.format("count=%d total=%.1fms mean=%.3fms p50<=%.3fms p95<=%.3fms p99<=%.3fms max=%.3fms", count, totalMillis, getMeanMillis(), p50Millis, p95Millis, p99Millis, maxMillis);
+	}
+}
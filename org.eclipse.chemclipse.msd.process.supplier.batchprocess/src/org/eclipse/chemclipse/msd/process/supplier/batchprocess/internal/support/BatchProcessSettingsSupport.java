@@ -0,0 +1,207 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Lablicate GmbH.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * Lablicate GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.chemclipse.msd.process.supplier.batchprocess.internal.support;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.BatchProcessSettings;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.ExecutionMode;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.ExecutorType;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IBatchProcessSettings;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.ScanProcessingMode;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.SchedulingPolicy;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.ShardingPolicy;
+
+/**
+ * Maps the settings to the header tags and back, so that all job formats store the same settings.
+ * Invalid values are replaced by the defaults.
+ * 
+ */
+public class BatchProcessSettingsSupport {
+
+	private static final Set<String> HEADER_TAGS = Collections.unmodifiableSet(getHeaderValues(new BatchProcessSettings()).keySet());
+
+	/**
+	 * This class has only static methods.
+	 */
+	private BatchProcessSettingsSupport() {
+	}
+
+	/**
+	 * Returns the settings as values by header tag, in the order of the header.
+	 * 
+	 * @param batchProcessSettings
+	 * @return {@link Map}
+	 */
+	public static Map<String, String> getHeaderValues(IBatchProcessSettings batchProcessSettings) {
+
+		Map<String, String> headerValues = new LinkedHashMap<String, String>();
+		headerValues.put(IBatchProcessJobTags.EXECUTION_MODE, batchProcessSettings.getExecutionMode().name());
+		headerValues.put(IBatchProcessJobTags.NUMBER_OF_THREADS, Integer.toString(batchProcessSettings.getNumberOfThreads()));
+		headerValues.put(IBatchProcessJobTags.QUEUE_CAPACITY, Integer.toString(batchProcessSettings.getQueueCapacity()));
+		headerValues.put(IBatchProcessJobTags.SCAN_PROCESSING_MODE, batchProcessSettings.getScanProcessingMode().name());
+		headerValues.put(IBatchProcessJobTags.STREAMING, Boolean.toString(batchProcessSettings.isStreaming()));
+		headerValues.put(IBatchProcessJobTags.STREAM_WINDOW_SIZE, Integer.toString(batchProcessSettings.getStreamWindowSize()));
+		headerValues.put(IBatchProcessJobTags.EXECUTOR_TYPE, batchProcessSettings.getExecutorType().name());
+		headerValues.put(IBatchProcessJobTags.INCREMENTAL, Boolean.toString(batchProcessSettings.isIncremental()));
+		headerValues.put(IBatchProcessJobTags.JOURNAL_FILE, batchProcessSettings.getJournalFile());
+		headerValues.put(IBatchProcessJobTags.RESUME, Boolean.toString(batchProcessSettings.isResume()));
+		headerValues.put(IBatchProcessJobTags.PARALLEL_OUTPUT, Boolean.toString(batchProcessSettings.isParallelOutput()));
+		headerValues.put(IBatchProcessJobTags.OUTPUT_THREADS_PER_VOLUME, Integer.toString(batchProcessSettings.getOutputThreadsPerVolume()));
+		headerValues.put(IBatchProcessJobTags.HEAP_BUDGET, Integer.toString(batchProcessSettings.getHeapBudget()));
+		headerValues.put(IBatchProcessJobTags.SCHEDULING_POLICY, batchProcessSettings.getSchedulingPolicy().name());
+		headerValues.put(IBatchProcessJobTags.WATCH, Boolean.toString(batchProcessSettings.isWatch()));
+		headerValues.put(IBatchProcessJobTags.WATCH_SETTLE_TIME, Integer.toString(batchProcessSettings.getWatchSettleTime()));
+		headerValues.put(IBatchProcessJobTags.FILE_TIMEOUT, Integer.toString(batchProcessSettings.getFileTimeout()));
+		headerValues.put(IBatchProcessJobTags.STAGE_TIMEOUT, Integer.toString(batchProcessSettings.getStageTimeout()));
+		headerValues.put(IBatchProcessJobTags.MESSAGE_LIMIT, Integer.toString(batchProcessSettings.getMessageLimit()));
+		headerValues.put(IBatchProcessJobTags.MESSAGE_LOG_FILE, batchProcessSettings.getMessageLogFile());
+		headerValues.put(IBatchProcessJobTags.SHARD_INDEX, Integer.toString(batchProcessSettings.getShardIndex()));
+		headerValues.put(IBatchProcessJobTags.SHARD_COUNT, Integer.toString(batchProcessSettings.getShardCount()));
+		headerValues.put(IBatchProcessJobTags.SHARDING_POLICY, batchProcessSettings.getShardingPolicy().name());
+		headerValues.put(IBatchProcessJobTags.WORK_QUEUE_DIRECTORY, batchProcessSettings.getWorkQueueDirectory());
+		headerValues.put(IBatchProcessJobTags.LEASE_TIMEOUT, Integer.toString(batchProcessSettings.getLeaseTimeout()));
+		headerValues.put(IBatchProcessJobTags.CACHE_DIRECTORY, batchProcessSettings.getCacheDirectory());
+		headerValues.put(IBatchProcessJobTags.CACHE_SIZE, Integer.toString(batchProcessSettings.getCacheSize()));
+		return headerValues;
+	}
+
+	/**
+	 * Sets the value of the given header tag. Unknown tags are ignored.
+	 * 
+	 * @param batchProcessSettings
+	 * @param headerTag
+	 * @param value
+	 * @return boolean true if the tag is a known header tag
+	 */
+	public static boolean setHeaderValue(IBatchProcessSettings batchProcessSettings, String headerTag, String value) {
+
+		switch(headerTag) {
+			case IBatchProcessJobTags.EXECUTION_MODE:
+				batchProcessSettings.setExecutionMode(readEnum(value, ExecutionMode.SEQUENTIAL));
+				break;
+			case IBatchProcessJobTags.NUMBER_OF_THREADS:
+				batchProcessSettings.setNumberOfThreads(readInteger(value, IBatchProcessSettings.DEFAULT_NUMBER_OF_THREADS));
+				break;
+			case IBatchProcessJobTags.QUEUE_CAPACITY:
+				batchProcessSettings.setQueueCapacity(readInteger(value, IBatchProcessSettings.DEFAULT_QUEUE_CAPACITY));
+				break;
+			case IBatchProcessJobTags.SCAN_PROCESSING_MODE:
+				batchProcessSettings.setScanProcessingMode(readEnum(value, ScanProcessingMode.SEQUENTIAL));
+				break;
+			case IBatchProcessJobTags.STREAMING:
+				batchProcessSettings.setStreaming(Boolean.parseBoolean(value.trim()));
+				break;
+			case IBatchProcessJobTags.STREAM_WINDOW_SIZE:
+				batchProcessSettings.setStreamWindowSize(readInteger(value, IBatchProcessSettings.DEFAULT_STREAM_WINDOW_SIZE));
+				break;
+			case IBatchProcessJobTags.EXECUTOR_TYPE:
+				batchProcessSettings.setExecutorType(readEnum(value, ExecutorType.PLATFORM));
+				break;
+			case IBatchProcessJobTags.INCREMENTAL:
+				batchProcessSettings.setIncremental(Boolean.parseBoolean(value.trim()));
+				break;
+			case IBatchProcessJobTags.JOURNAL_FILE:
+				batchProcessSettings.setJournalFile(value.trim());
+				break;
+			case IBatchProcessJobTags.RESUME:
+				batchProcessSettings.setResume(Boolean.parseBoolean(value.trim()));
+				break;
+			case IBatchProcessJobTags.PARALLEL_OUTPUT:
+				batchProcessSettings.setParallelOutput(Boolean.parseBoolean(value.trim()));
+				break;
+			case IBatchProcessJobTags.OUTPUT_THREADS_PER_VOLUME:
+				batchProcessSettings.setOutputThreadsPerVolume(readInteger(value, IBatchProcessSettings.DEFAULT_OUTPUT_THREADS_PER_VOLUME));
+				break;
+			case IBatchProcessJobTags.HEAP_BUDGET:
+				batchProcessSettings.setHeapBudget(readInteger(value, IBatchProcessSettings.DEFAULT_HEAP_BUDGET));
+				break;
+			case IBatchProcessJobTags.SCHEDULING_POLICY:
+				batchProcessSettings.setSchedulingPolicy(readEnum(value, SchedulingPolicy.INPUT_ORDER));
+				break;
+			case IBatchProcessJobTags.WATCH:
+				batchProcessSettings.setWatch(Boolean.parseBoolean(value.trim()));
+				break;
+			case IBatchProcessJobTags.WATCH_SETTLE_TIME:
+				batchProcessSettings.setWatchSettleTime(readInteger(value, IBatchProcessSettings.DEFAULT_WATCH_SETTLE_TIME));
+				break;
+			case IBatchProcessJobTags.FILE_TIMEOUT:
+				batchProcessSettings.setFileTimeout(readInteger(value, IBatchProcessSettings.DEFAULT_FILE_TIMEOUT));
+				break;
+			case IBatchProcessJobTags.STAGE_TIMEOUT:
+				batchProcessSettings.setStageTimeout(readInteger(value, IBatchProcessSettings.DEFAULT_STAGE_TIMEOUT));
+				break;
+			case IBatchProcessJobTags.MESSAGE_LIMIT:
+				batchProcessSettings.setMessageLimit(readInteger(value, IBatchProcessSettings.DEFAULT_MESSAGE_LIMIT));
+				break;
+			case IBatchProcessJobTags.MESSAGE_LOG_FILE:
+				batchProcessSettings.setMessageLogFile(value.trim());
+				break;
+			case IBatchProcessJobTags.SHARD_INDEX:
+				batchProcessSettings.setShardIndex(readInteger(value, IBatchProcessSettings.DEFAULT_SHARD_INDEX));
+				break;
+			case IBatchProcessJobTags.SHARD_COUNT:
+				batchProcessSettings.setShardCount(readInteger(value, IBatchProcessSettings.DEFAULT_SHARD_COUNT));
+				break;
+			case IBatchProcessJobTags.SHARDING_POLICY:
+				batchProcessSettings.setShardingPolicy(readEnum(value, ShardingPolicy.HASH));
+				break;
+			case IBatchProcessJobTags.WORK_QUEUE_DIRECTORY:
+				batchProcessSettings.setWorkQueueDirectory(value.trim());
+				break;
+			case IBatchProcessJobTags.LEASE_TIMEOUT:
+				batchProcessSettings.setLeaseTimeout(readInteger(value, IBatchProcessSettings.DEFAULT_LEASE_TIMEOUT));
+				break;
+			case IBatchProcessJobTags.CACHE_DIRECTORY:
+				batchProcessSettings.setCacheDirectory(value.trim());
+				break;
+			case IBatchProcessJobTags.CACHE_SIZE:
+				batchProcessSettings.setCacheSize(readInteger(value, IBatchProcessSettings.DEFAULT_CACHE_SIZE));
+				break;
+			default:
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns true if the given element is a header tag that holds a setting.
+	 * 
+	 * @param headerTag
+	 * @return boolean
+	 */
+	public static boolean isHeaderTag(String headerTag) {
+
+		return HEADER_TAGS.contains(headerTag);
+	}
+
+	private static <E extends Enum<E>> E readEnum(String value, E defaultValue) {
+
+		try {
+			return Enum.valueOf(defaultValue.getDeclaringClass(), value.trim().toUpperCase());
+		} catch(IllegalArgumentException e) {
+			return defaultValue;
+		}
+	}
+
+	private static int readInteger(String value, int defaultValue) {
+
+		try {
+			return Integer.parseInt(value.trim());
+		} catch(NumberFormatException e) {
+			return defaultValue;
+		}
+	}
+}
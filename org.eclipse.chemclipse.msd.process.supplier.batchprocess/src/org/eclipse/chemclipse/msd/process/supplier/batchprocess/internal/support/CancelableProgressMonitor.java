@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Lablicate GmbH.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * Lablicate GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.chemclipse.msd.process.supplier.batchprocess.internal.support;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * Delegates to the given monitor, but can be canceled on its own, e.g. to cancel
+ * a single file without canceling the whole batch process.
+ * 
+ */
+public class CancelableProgressMonitor implements IProgressMonitor {
+
+	private final IProgressMonitor monitor;
+	private volatile boolean canceled = false;
+
+	public CancelableProgressMonitor(IProgressMonitor monitor) {
+		this.monitor = monitor;
+	}
+
+	@Override
+	public void beginTask(String name, int totalWork) {
+
+		monitor.beginTask(name, totalWork);
+	}
+
+	@Override
+	public void done() {
+
+		monitor.done();
+	}
+
+	@Override
+	public void internalWorked(double work) {
+
+		monitor.internalWorked(work);
+	}
+
+	@Override
+	public boolean isCanceled() {
+
+		return canceled || monitor.isCanceled();
+	}
+
+	@Override
+	public void setCanceled(boolean value) {
+
+		canceled = value;
+	}
+
+	@Override
+	public void setTaskName(String name) {
+
+		monitor.setTaskName(name);
+	}
+
+	@Override
+	public void subTask(String name) {
+
+		monitor.subTask(name);
+	}
+
+	@Override
+	public void worked(int work) {
+
+		monitor.worked(work);
+	}
+}
@@ -0,0 +1,43 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Lablicate GmbH.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * Lablicate GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.chemclipse.msd.process.supplier.batchprocess.internal.support;
+
+/**
+ * The binary job format. All numbers are big endian ints, strings are stored once in
+ * a string table and referenced by their index. Input files are split into the directory
+ * and the file name, hence the directories shared by many files are stored only once.
+ * 
+ * <pre>
+ * magic number, version
+ * string table: count, (byte length, UTF-8 bytes)*
+ * header: count, (tag, value)*
+ * input entries: count, (directory, file name)*
+ * input sources: count, (directory, include, exclude, recursive byte)*
+ * process entries: count, (category, processor id)*
+ * output entries: count, (folder, converter id)*
+ * report entries: count, (folder or file, report supplier id)*
+ * </pre>
+ * 
+ */
+public interface IBatchProcessJobBinaryFormat {
+
+	/*
+	 * "CBPJ"
+	 */
+	int MAGIC_NUMBER = 0x4350424A;
+	int VERSION = 1;
+	/*
+	 * The index of a null string.
+	 */
+	int NO_STRING = -1;
+	String FILE_EXTENSION = ".bpj";
+}
@@ -29,11 +29,46 @@ public interface IBatchProcessJobTags {
 	String HEADER = "Header";
 	String REPORT_FOLDER = "ReportFolder";
 	String OVERRIDE_REPORT = "OverrideReport";
+	String EXECUTION_MODE = "ExecutionMode";
+	String NUMBER_OF_THREADS = "NumberOfThreads";
+	String QUEUE_CAPACITY = "QueueCapacity";
+	String SCAN_PROCESSING_MODE = "ScanProcessingMode";
+	String STREAMING = "Streaming";
+	String STREAM_WINDOW_SIZE = "StreamWindowSize";
+	String EXECUTOR_TYPE = "ExecutorType";
+	String INCREMENTAL = "Incremental";
+	String JOURNAL_FILE = "JournalFile";
+	String RESUME = "Resume";
+	String PARALLEL_OUTPUT = "ParallelOutput";
+	String OUTPUT_THREADS_PER_VOLUME = "OutputThreadsPerVolume";
+	String HEAP_BUDGET = "HeapBudget";
+	String SCHEDULING_POLICY = "SchedulingPolicy";
+	String WATCH = "Watch";
+	String WATCH_SETTLE_TIME = "WatchSettleTime";
+	String FILE_TIMEOUT = "FileTimeout";
+	String STAGE_TIMEOUT = "StageTimeout";
+	String MESSAGE_LIMIT = "MessageLimit";
+	String MESSAGE_LOG_FILE = "MessageLogFile";
+	String SHARD_INDEX = "ShardIndex";
+	String SHARD_COUNT = "ShardCount";
+	String SHARDING_POLICY = "ShardingPolicy";
+	String WORK_QUEUE_DIRECTORY = "WorkQueueDirectory";
+	String LEASE_TIMEOUT = "LeaseTimeout";
+	String CACHE_DIRECTORY = "CacheDirectory";
+	String CACHE_SIZE = "CacheSize";
 	/*
 	 * Mass Spectrum Input Entries
 	 */
 	String MASSSPECTRUM_INPUT_ENTRIES = "InputEntries";
 	String MASSSPECTRUM_INPUT_ENTRY = "InputEntry";
+	/*
+	 * Mass Spectrum Input Sources
+	 */
+	String MASSSPECTRUM_INPUT_SOURCES = "InputSources";
+	String MASSSPECTRUM_INPUT_SOURCE = "InputSource";
+	String INCLUDE = "include";
+	String EXCLUDE = "exclude";
+	String RECURSIVE = "recursive";
 	/*
 	 * Mass Spectrum Process Entries
 	 */
@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Lablicate GmbH.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * Lablicate GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.chemclipse.msd.process.supplier.batchprocess.internal.support;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * Progress monitors are not thread safe in general. This delegate
+ * serializes all calls to the given monitor, so that it can be shared
+ * between the workers of a batch process.
+ * 
+ */
+public class SynchronizedProgressMonitor implements IProgressMonitor {
+
+	private final IProgressMonitor monitor;
+
+	public SynchronizedProgressMonitor(IProgressMonitor monitor) {
+		this.monitor = monitor;
+	}
+
+	@Override
+	public synchronized void beginTask(String name, int totalWork) {
+
+		monitor.beginTask(name, totalWork);
+	}
+
+	@Override
+	public synchronized void done() {
+
+		monitor.done();
+	}
+
+	@Override
+	public synchronized void internalWorked(double work) {
+
+		monitor.internalWorked(work);
+	}
+
+	@Override
+	public synchronized boolean isCanceled() {
+
+		return monitor.isCanceled();
+	}
+
+	@Override
+	public synchronized void setCanceled(boolean value) {
+
+		monitor.setCanceled(value);
+	}
+
+	@Override
+	public synchronized void setTaskName(String name) {
+
+		monitor.setTaskName(name);
+	}
+
+	@Override
+	public synchronized void subTask(String name) {
+
+		monitor.subTask(name);
+	}
+
+	@Override
+	public synchronized void worked(int work) {
+
+		monitor.worked(work);
+	}
+}
@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Lablicate GmbH.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * Lablicate GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.chemclipse.msd.process.supplier.batchprocess.internal.support;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.eclipse.chemclipse.logging.core.Logger;
+
+/**
+ * The bundle requires JavaSE-1.8, hence virtual threads are looked up by reflection.
+ * 
+ */
+public class VirtualThreadSupport {
+
+	private static final Logger logger = Logger.getLogger(VirtualThreadSupport.class);
+	private static final String METHOD_NAME = "newVirtualThreadPerTaskExecutor";
+
+	/**
+	 * This class has only static methods.
+	 */
+	private VirtualThreadSupport() {
+	}
+
+	/**
+	 * Returns an executor that starts a new virtual thread for each task
+	 * or null if the JVM doesn't support virtual threads.
+	 * 
+	 * @return {@link ExecutorService}
+	 */
+	public static ExecutorService newVirtualThreadPerTaskExecutor() {
+
+		try {
+			Method method = Executors.class.getMethod(METHOD_NAME);
+			return (ExecutorService)method.invoke(null);
+		} catch(NoSuchMethodException e) {
+			return null;
+		} catch(ReflectiveOperationException | RuntimeException e) {
+			/*
+			 * E.g. preview features not enabled.
+			 */
+			logger.warn(e);
+			return null;
+		}
+	}
+}
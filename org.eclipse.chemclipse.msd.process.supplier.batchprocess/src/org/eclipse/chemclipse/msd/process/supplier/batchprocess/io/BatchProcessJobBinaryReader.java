@@ -0,0 +1,198 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Lablicate GmbH.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * Lablicate GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.chemclipse.msd.process.supplier.batchprocess.io;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.eclipse.chemclipse.converter.exceptions.FileIsEmptyException;
+import org.eclipse.chemclipse.converter.exceptions.FileIsNotReadableException;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.internal.support.BatchProcessSettingsSupport;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.internal.support.IBatchProcessJobBinaryFormat;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.BatchProcessJob;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IBatchProcessJob;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IBatchProcessSettings;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IMassSpectrumInputEntry;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IMassSpectrumInputSource;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IMassSpectrumOutputEntry;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IMassSpectrumProcessEntry;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IMassSpectrumReportSupplierEntry;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.MassSpectrumInputEntry;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.MassSpectrumInputSource;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.MassSpectrumOutputEntry;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.MassSpectrumProcessEntry;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.MassSpectrumReportSupplierEntry;
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * Reads a job in the binary format, see {@link IBatchProcessJobBinaryFormat}.
+ * The file is memory mapped, hence it is not copied into the heap.
+ * 
+ */
+public class BatchProcessJobBinaryReader implements IBatchProcessJobReader {
+
+	/*
+	 * The smallest number of bytes of each element, used to reject corrupt counts before allocating.
+	 */
+	private static final int STRING_SIZE = 4;
+	private static final int PAIR_SIZE = 8;
+	private static final int INPUT_SOURCE_SIZE = 13;
+
+	@Override
+	public IBatchProcessJob read(File file, IProgressMonitor monitor) throws FileNotFoundException, FileIsNotReadableException, FileIsEmptyException, IOException {
+
+		if(!file.exists()) {
+			throw new FileNotFoundException("The job file doesn't exist: " + file);
+		}
+		if(!file.canRead()) {
+			throw new FileIsNotReadableException("The job file is not readable: " + file);
+		}
+		if(file.length() == 0) {
+			throw new FileIsEmptyException("The job file is empty: " + file);
+		}
+		try (FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long size = fileChannel.size();
+			if(size > Integer.MAX_VALUE) {
+				throw new IOException("The job file is too large to be mapped: " + file);
+			}
+			ByteBuffer buffer = fileChannel.map(MapMode.READ_ONLY, 0, size);
+			return readBatchProcessJob(buffer, file);
+		} catch(BufferUnderflowException | IndexOutOfBoundsException e) {
+			throw new IOException("The job file is corrupt: " + file, e);
+		}
+	}
+
+	private IBatchProcessJob readBatchProcessJob(ByteBuffer buffer, File file) throws IOException {
+
+		if(buffer.getInt() != IBatchProcessJobBinaryFormat.MAGIC_NUMBER) {
+			throw new IOException("The file is not a binary job file: " + file);
+		}
+		int version = buffer.getInt();
+		if(version != IBatchProcessJobBinaryFormat.VERSION) {
+			throw new IOException("The version " + version + " of the binary job file is not supported: " + file);
+		}
+		String[] strings = readStrings(buffer, file);
+		IBatchProcessJob batchProcessJob = new BatchProcessJob();
+		/*
+		 * Header
+		 */
+		IBatchProcessSettings batchProcessSettings = batchProcessJob.getBatchProcessSettings();
+		int count = readCount(buffer, PAIR_SIZE, file);
+		for(int i = 0; i < count; i++) {
+			String headerTag = getString(strings, buffer.getInt(), file);
+			String value = getString(strings, buffer.getInt(), file);
+			if(headerTag != null && value != null) {
+				BatchProcessSettingsSupport.setHeaderValue(batchProcessSettings, headerTag, value);
+			}
+		}
+		/*
+		 * Entries
+		 */
+		List<IMassSpectrumInputEntry> inputEntries = batchProcessJob.getMassSpectrumInputEntries();
+		count = readCount(buffer, PAIR_SIZE, file);
+		for(int i = 0; i < count; i++) {
+			String directory = getString(strings, buffer.getInt(), file);
+			String fileName = getString(strings, buffer.getInt(), file);
+			if(directory == null || fileName == null) {
+				throw new IOException("The job file is corrupt, an input entry has no path: " + file);
+			}
+			inputEntries.add(new MassSpectrumInputEntry(directory.concat(fileName)));
+		}
+		List<IMassSpectrumInputSource> inputSources = batchProcessJob.getMassSpectrumInputSources();
+		count = readCount(buffer, INPUT_SOURCE_SIZE, file);
+		for(int i = 0; i < count; i++) {
+			IMassSpectrumInputSource inputSource = new MassSpectrumInputSource(getString(strings, buffer.getInt(), file));
+			inputSource.setInclude(getString(strings, buffer.getInt(), file));
+			inputSource.setExclude(getString(strings, buffer.getInt(), file));
+			inputSource.setRecursive(buffer.get() != 0);
+			inputSources.add(inputSource);
+		}
+		List<IMassSpectrumProcessEntry> processEntries = batchProcessJob.getMassSpectrumProcessEntries();
+		count = readCount(buffer, PAIR_SIZE, file);
+		for(int i = 0; i < count; i++) {
+			String processCategory = getString(strings, buffer.getInt(), file);
+			String processorId = getString(strings, buffer.getInt(), file);
+			processEntries.add(new MassSpectrumProcessEntry(processCategory, processorId));
+		}
+		List<IMassSpectrumOutputEntry> outputEntries = batchProcessJob.getMassSpectrumOutputEntries();
+		count = readCount(buffer, PAIR_SIZE, file);
+		for(int i = 0; i < count; i++) {
+			String outputFolder = getString(strings, buffer.getInt(), file);
+			String converterId = getString(strings, buffer.getInt(), file);
+			outputEntries.add(new MassSpectrumOutputEntry(outputFolder, converterId));
+		}
+		List<IMassSpectrumReportSupplierEntry> reportEntries = batchProcessJob.getMassSpectrumReportEntries();
+		count = readCount(buffer, PAIR_SIZE, file);
+		for(int i = 0; i < count; i++) {
+			String reportFolderOrFile = getString(strings, buffer.getInt(), file);
+			String reportSupplierId = getString(strings, buffer.getInt(), file);
+			reportEntries.add(new MassSpectrumReportSupplierEntry(reportFolderOrFile, reportSupplierId));
+		}
+		return batchProcessJob;
+	}
+
+	private String[] readStrings(ByteBuffer buffer, File file) throws IOException {
+
+		String[] strings = new String[readCount(buffer, STRING_SIZE, file)];
+		byte[] bytes = new byte[0];
+		for(int i = 0; i < strings.length; i++) {
+			int length = buffer.getInt();
+			if(length < 0 || length > buffer.remaining()) {
+				throw new IOException("The job file is corrupt, a string has the length " + length + ": " + file);
+			}
+			if(bytes.length < length) {
+				bytes = new byte[length];
+			}
+			buffer.get(bytes, 0, length);
+			strings[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+		}
+		return strings;
+	}
+
+	/**
+	 * Reads the number of elements that follow. It can't exceed the remaining bytes.
+	 * 
+	 * @param buffer
+	 * @param elementSize
+	 *            the smallest number of bytes of an element
+	 * @param file
+	 * @return int
+	 * @throws IOException
+	 */
+	private int readCount(ByteBuffer buffer, int elementSize, File file) throws IOException {
+
+		int count = buffer.getInt();
+		if(count < 0 || count > buffer.remaining() / elementSize) {
+			throw new IOException("The job file is corrupt, it can't contain " + count + " elements: " + file);
+		}
+		return count;
+	}
+
+	private String getString(String[] strings, int index, File file) throws IOException {
+
+		if(index == IBatchProcessJobBinaryFormat.NO_STRING) {
+			return null;
+		}
+		if(index < 0 || index >= strings.length) {
+			throw new IOException("The job file is corrupt, the string " + index + " doesn't exist: " + file);
+		}
+		return strings[index];
+	}
+}
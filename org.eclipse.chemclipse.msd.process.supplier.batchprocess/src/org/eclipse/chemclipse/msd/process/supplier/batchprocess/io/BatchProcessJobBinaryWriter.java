@@ -0,0 +1,177 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Lablicate GmbH.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * Lablicate GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.chemclipse.msd.process.supplier.batchprocess.io;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.eclipse.chemclipse.converter.exceptions.FileIsNotWriteableException;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.internal.support.BatchProcessSettingsSupport;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.internal.support.IBatchProcessJobBinaryFormat;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IBatchProcessJob;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IMassSpectrumInputEntry;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IMassSpectrumInputSource;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IMassSpectrumOutputEntry;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IMassSpectrumProcessEntry;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IMassSpectrumReportSupplierEntry;
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * Writes the job in the binary format, see {@link IBatchProcessJobBinaryFormat}.
+ * 
+ */
+public class BatchProcessJobBinaryWriter implements IBatchProcessJobWriter {
+
+	private static final int BUFFER_SIZE = 65536;
+
+	@Override
+	public void writeBatchProcessJob(File file, IBatchProcessJob batchProcessJob, IProgressMonitor monitor) throws FileNotFoundException, FileIsNotWriteableException, IOException, XMLStreamException {
+
+		/*
+		 * The string table precedes the entries, hence all strings are collected first.
+		 */
+		StringTable stringTable = new StringTable();
+		Map<String, String> headerValues = BatchProcessSettingsSupport.getHeaderValues(batchProcessJob.getBatchProcessSettings());
+		for(Map.Entry<String, String> headerValue : headerValues.entrySet()) {
+			stringTable.add(headerValue.getKey());
+			stringTable.add(headerValue.getValue());
+		}
+		for(IMassSpectrumInputEntry inputEntry : batchProcessJob.getMassSpectrumInputEntries()) {
+			String inputFile = inputEntry.getInputFile();
+			int separator = getSeparator(inputFile);
+			stringTable.add(inputFile.substring(0, separator));
+			stringTable.add(inputFile.substring(separator));
+		}
+		for(IMassSpectrumInputSource inputSource : batchProcessJob.getMassSpectrumInputSources()) {
+			stringTable.add(inputSource.getDirectory());
+			stringTable.add(inputSource.getInclude());
+			stringTable.add(inputSource.getExclude());
+		}
+		for(IMassSpectrumProcessEntry processEntry : batchProcessJob.getMassSpectrumProcessEntries()) {
+			stringTable.add(processEntry.getProcessCategory());
+			stringTable.add(processEntry.getProcessorId());
+		}
+		for(IMassSpectrumOutputEntry outputEntry : batchProcessJob.getMassSpectrumOutputEntries()) {
+			stringTable.add(outputEntry.getOutputFolder());
+			stringTable.add(outputEntry.getConverterId());
+		}
+		for(IMassSpectrumReportSupplierEntry reportEntry : batchProcessJob.getMassSpectrumReportEntries()) {
+			stringTable.add(reportEntry.getReportFolderOrFile());
+			stringTable.add(reportEntry.getReportSupplierId());
+		}
+		/*
+		 * Write the job.
+		 */
+		try (DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE))) {
+			outputStream.writeInt(IBatchProcessJobBinaryFormat.MAGIC_NUMBER);
+			outputStream.writeInt(IBatchProcessJobBinaryFormat.VERSION);
+			stringTable.write(outputStream);
+			outputStream.writeInt(headerValues.size());
+			for(Map.Entry<String, String> headerValue : headerValues.entrySet()) {
+				outputStream.writeInt(stringTable.get(headerValue.getKey()));
+				outputStream.writeInt(stringTable.get(headerValue.getValue()));
+			}
+			List<IMassSpectrumInputEntry> inputEntries = batchProcessJob.getMassSpectrumInputEntries();
+			outputStream.writeInt(inputEntries.size());
+			for(IMassSpectrumInputEntry inputEntry : inputEntries) {
+				String inputFile = inputEntry.getInputFile();
+				int separator = getSeparator(inputFile);
+				outputStream.writeInt(stringTable.get(inputFile.substring(0, separator)));
+				outputStream.writeInt(stringTable.get(inputFile.substring(separator)));
+			}
+			List<IMassSpectrumInputSource> inputSources = batchProcessJob.getMassSpectrumInputSources();
+			outputStream.writeInt(inputSources.size());
+			for(IMassSpectrumInputSource inputSource : inputSources) {
+				outputStream.writeInt(stringTable.get(inputSource.getDirectory()));
+				outputStream.writeInt(stringTable.get(inputSource.getInclude()));
+				outputStream.writeInt(stringTable.get(inputSource.getExclude()));
+				outputStream.writeBoolean(inputSource.isRecursive());
+			}
+			List<IMassSpectrumProcessEntry> processEntries = batchProcessJob.getMassSpectrumProcessEntries();
+			outputStream.writeInt(processEntries.size());
+			for(IMassSpectrumProcessEntry processEntry : processEntries) {
+				outputStream.writeInt(stringTable.get(processEntry.getProcessCategory()));
+				outputStream.writeInt(stringTable.get(processEntry.getProcessorId()));
+			}
+			List<IMassSpectrumOutputEntry> outputEntries = batchProcessJob.getMassSpectrumOutputEntries();
+			outputStream.writeInt(outputEntries.size());
+			for(IMassSpectrumOutputEntry outputEntry : outputEntries) {
+				outputStream.writeInt(stringTable.get(outputEntry.getOutputFolder()));
+				outputStream.writeInt(stringTable.get(outputEntry.getConverterId()));
+			}
+			List<IMassSpectrumReportSupplierEntry> reportEntries = batchProcessJob.getMassSpectrumReportEntries();
+			outputStream.writeInt(reportEntries.size());
+			for(IMassSpectrumReportSupplierEntry reportEntry : reportEntries) {
+				outputStream.writeInt(stringTable.get(reportEntry.getReportFolderOrFile()));
+				outputStream.writeInt(stringTable.get(reportEntry.getReportSupplierId()));
+			}
+		}
+	}
+
+	/**
+	 * Returns the index after the last separator, i.e. the start of the file name.
+	 * Both separators are accepted, as the job may have been created on another system.
+	 * 
+	 * @param inputFile
+	 * @return int
+	 */
+	private int getSeparator(String inputFile) {
+
+		return Math.max(inputFile.lastIndexOf('/'), inputFile.lastIndexOf('\\')) + 1;
+	}
+
+	/**
+	 * Assigns an index to each distinct string.
+	 */
+	private static class StringTable {
+
+		private final Map<String, Integer> indices = new HashMap<String, Integer>();
+		private final List<String> strings = new ArrayList<String>();
+
+		private void add(String value) {
+
+			if(value != null && !indices.containsKey(value)) {
+				indices.put(value, strings.size());
+				strings.add(value);
+			}
+		}
+
+		private int get(String value) {
+
+			if(value == null) {
+				return IBatchProcessJobBinaryFormat.NO_STRING;
+			}
+			return indices.get(value);
+		}
+
+		private void write(DataOutputStream outputStream) throws IOException {
+
+			outputStream.writeInt(strings.size());
+			for(String value : strings) {
+				byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+				outputStream.writeInt(bytes.length);
+				outputStream.write(bytes);
+			}
+		}
+	}
+}
@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Lablicate GmbH.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * Lablicate GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.chemclipse.msd.process.supplier.batchprocess.io;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+
+import org.eclipse.chemclipse.converter.exceptions.FileIsEmptyException;
+import org.eclipse.chemclipse.converter.exceptions.FileIsNotReadableException;
+
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.internal.support.IBatchProcessJobBinaryFormat;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IBatchProcessJob;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.LazyBatchProcessJob;
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * Selects the reader and writer of a job file. The format and compression of an existing file
+ * are detected by its content, those of a new file by its extension.
+ * 
+ */
+public class BatchProcessJobFormat {
+
+	/**
+	 * This class has only static methods.
+	 */
+	private BatchProcessJobFormat() {
+	}
+
+	/**
+	 * Returns the reader that is able to read the given job file.
+	 * 
+	 * @param file
+	 * @return {@link IBatchProcessJobReader}
+	 * @throws IOException
+	 */
+	public static IBatchProcessJobReader getReader(File file) throws IOException {
+
+		if(isBinary(file)) {
+			return new BatchProcessJobBinaryReader();
+		}
+		return new BatchProcessJobReader();
+	}
+
+	/**
+	 * Reads the job file for the execution. The input entries of XML job files are read
+	 * while the job is executed, see {@link BatchProcessJobReader#readLazy(File, IProgressMonitor)}.
+	 * Binary job files are mapped into memory and read completely.
+	 * The returned job must be closed after the execution if it is a {@link LazyBatchProcessJob}.
+	 * 
+	 * @param file
+	 * @param monitor
+	 * @return {@link IBatchProcessJob}
+	 * @throws FileNotFoundException
+	 * @throws FileIsNotReadableException
+	 * @throws FileIsEmptyException
+	 * @throws IOException
+	 */
+	public static IBatchProcessJob readLazy(File file, IProgressMonitor monitor) throws FileNotFoundException, FileIsNotReadableException, FileIsEmptyException, IOException {
+
+		if(isBinary(file)) {
+			return new BatchProcessJobBinaryReader().read(file, monitor);
+		}
+		return new BatchProcessJobReader().readLazy(file, monitor);
+	}
+
+	/**
+	 * Returns the writer for the given job file. Files with the extension
+	 * {@value IBatchProcessJobBinaryFormat#FILE_EXTENSION} are written in the binary format,
+	 * files with the extension {@value BatchProcessJobWriter#GZIP_FILE_EXTENSION} as compressed XML
+	 * and all others as XML.
+	 * 
+	 * @param file
+	 * @return {@link IBatchProcessJobWriter}
+	 */
+	public static IBatchProcessJobWriter getWriter(File file) {
+
+		String name = file.getName().toLowerCase();
+		if(name.endsWith(IBatchProcessJobBinaryFormat.FILE_EXTENSION)) {
+			return new BatchProcessJobBinaryWriter();
+		}
+		return new BatchProcessJobWriter(name.endsWith(BatchProcessJobWriter.GZIP_FILE_EXTENSION));
+	}
+
+	/**
+	 * Returns true if the file starts with the magic number of the binary format.
+	 * 
+	 * @param file
+	 * @return boolean
+	 * @throws IOException
+	 */
+	public static boolean isBinary(File file) throws IOException {
+
+		try (DataInputStream inputStream = new DataInputStream(new FileInputStream(file))) {
+			return inputStream.readInt() == IBatchProcessJobBinaryFormat.MAGIC_NUMBER;
+		} catch(EOFException e) {
+			return false;
+		}
+	}
+}
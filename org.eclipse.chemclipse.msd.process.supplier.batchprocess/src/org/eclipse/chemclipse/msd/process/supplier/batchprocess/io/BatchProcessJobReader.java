@@ -13,53 +13,67 @@
 package org.eclipse.chemclipse.msd.process.supplier.batchprocess.io;
 
 import java.io.BufferedInputStream;
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.Iterator;
-import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.zip.GZIPInputStream;
 
-import javax.xml.stream.EventFilter;
-import javax.xml.stream.XMLEventReader;
 import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
-import javax.xml.stream.events.Attribute;
-import javax.xml.stream.events.XMLEvent;
+import javax.xml.stream.XMLStreamReader;
 
 import org.eclipse.chemclipse.converter.exceptions.FileIsEmptyException;
 import org.eclipse.chemclipse.converter.exceptions.FileIsNotReadableException;
-import org.eclipse.chemclipse.msd.process.supplier.batchprocess.internal.filter.BatchProcessJobEventFilter;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.internal.support.BatchProcessSettingsSupport;
 import org.eclipse.chemclipse.msd.process.supplier.batchprocess.internal.support.IBatchProcessJobTags;
 import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.BatchProcessJob;
 import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IBatchProcessJob;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IBatchProcessSettings;
 import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IMassSpectrumInputEntry;
-import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IMassSpectrumOutputEntry;
-import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IMassSpectrumProcessEntry;
-import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IMassSpectrumReportSupplierEntry;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IMassSpectrumInputSource;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.LazyBatchProcessJob;
 import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.MassSpectrumInputEntry;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.MassSpectrumInputSource;
 import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.MassSpectrumOutputEntry;
 import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.MassSpectrumProcessEntry;
 import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.MassSpectrumReportSupplierEntry;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.SchedulingPolicy;
 import org.eclipse.core.runtime.IProgressMonitor;
 
 /**
+ * Reads the job file in a single pass. Each start element is dispatched once by its name.
+ * Job files compressed with gzip are detected by their content and decompressed while reading.
+ * 
  * @author Matthias Mailänder
  * 
  */
 public class BatchProcessJobReader implements IBatchProcessJobReader {
 
+	private static final int BUFFER_SIZE = 65536;
+	/*
+	 * Creating the factory looks up the implementation each time, hence it is cached.
+	 * A configured factory may be used to create readers concurrently.
+	 */
+	private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+
 	@Override
 	public IBatchProcessJob read(File file, IProgressMonitor monitor) throws FileNotFoundException, FileIsNotReadableException, FileIsEmptyException, IOException {
 
 		IBatchProcessJob batchProcessJob = new BatchProcessJob();
-		try {
-			readHeader(file, batchProcessJob);
-			readMassSpectrumInputEntries(file, batchProcessJob, monitor);
-			readMassSpectrumProcessEntries(file, batchProcessJob, monitor);
-			readMassSpectrumOutputEntries(file, batchProcessJob, monitor);
-			readMassSpectrumReportEntries(file, batchProcessJob, monitor);
+		try (InputStream inputStream = openInputStream(file)) {
+			XMLStreamReader streamReader = INPUT_FACTORY.createXMLStreamReader(inputStream, IBatchProcessJobTags.UTF8);
+			try {
+				readBatchProcessJob(streamReader, batchProcessJob, false);
+			} finally {
+				streamReader.close();
+			}
 		} catch(XMLStreamException e) {
 			throw new IOException(e);
 		}
@@ -67,258 +81,263 @@ public class BatchProcessJobReader implements IBatchProcessJobReader {
 	}
 
 	/**
-	 * Reads the header information.
+	 * Reads the job file up to the end of the report entries and returns the job.
+	 * The input entries that follow are read on demand while the job is executed,
+	 * see {@link LazyBatchProcessJob}. Input entries that precede the report entries
+	 * and jobs that start the largest files first are read completely.
 	 * 
+	 * @param file
+	 * @param monitor
+	 * @return {@link LazyBatchProcessJob}
+	 * @throws FileNotFoundException
 	 * @throws IOException
 	 */
-	private void readHeader(File file, IBatchProcessJob batchProcessJob) throws XMLStreamException, IOException {
+	public LazyBatchProcessJob readLazy(File file, IProgressMonitor monitor) throws FileNotFoundException, IOException {
 
-		/*
-		 * Open the streams.
-		 */
-		XMLEventReader eventReader;
-		XMLInputFactory.newInstance().setProperty(XMLInputFactory.IS_COALESCING, true);
-		XMLInputFactory inputFactory = XMLInputFactory.newInstance();
-		BufferedInputStream bufferedInputStream = new BufferedInputStream(new FileInputStream(file));
-		eventReader = inputFactory.createXMLEventReader(bufferedInputStream, IBatchProcessJobTags.UTF8);
-		XMLEvent event;
-		String elementName;
-		exitloop:
-		while(eventReader.hasNext()) {
-			event = eventReader.nextEvent();
-			if(event.isStartElement()) {
-				elementName = event.asStartElement().getName().getLocalPart();
-				/*
-				 * Read the header elements. There are none to read actually.
-				 */
-			} else {
-				/*
-				 * Check if it is the end of the header. If yes, break to not
-				 * run through all elements of the xml document.
-				 */
-				if(event.isEndElement()) {
-					elementName = event.asEndElement().getName().getLocalPart();
-					if(elementName.equals(IBatchProcessJobTags.HEADER)) {
-						break exitloop;
-					}
-				}
+		LazyBatchProcessJob batchProcessJob = new LazyBatchProcessJob();
+		InputStream inputStream = openInputStream(file);
+		XMLStreamReader streamReader = null;
+		boolean pending = false;
+		try {
+			streamReader = INPUT_FACTORY.createXMLStreamReader(inputStream, IBatchProcessJobTags.UTF8);
+			if(readBatchProcessJob(streamReader, batchProcessJob, true)) {
+				PendingInputEntries pendingInputEntries = new PendingInputEntries(inputStream, streamReader);
+				batchProcessJob.setPendingMassSpectrumInputEntries(pendingInputEntries, pendingInputEntries);
+				pending = true;
+			}
+		} catch(XMLStreamException e) {
+			throw new IOException(e);
+		} finally {
+			if(!pending) {
+				close(inputStream, streamReader);
 			}
 		}
-		/*
-		 * Close the streams.
-		 */
-		eventReader.close();
-		bufferedInputStream.close();
+		return batchProcessJob;
 	}
 
 	/**
-	 * Read the mass spectrum input entries.
+	 * Opens the job file and decompresses it if it starts with the gzip magic bytes.
 	 * 
 	 * @param file
-	 * @param batchProcessJob
-	 * @param monitor
-	 * @throws XMLStreamException
+	 * @return {@link InputStream}
+	 * @throws FileNotFoundException
 	 * @throws IOException
 	 */
-	private void readMassSpectrumInputEntries(File file, IBatchProcessJob batchProcessJob, IProgressMonitor monitor) throws XMLStreamException, IOException {
+	private static InputStream openInputStream(File file) throws FileNotFoundException, IOException {
 
-		IMassSpectrumInputEntry inputEntry;
-		XMLEvent event;
-		/*
-		 * Open the streams.
-		 */
-		XMLEventReader eventReader;
-		XMLInputFactory inputFactory = XMLInputFactory.newInstance();
-		BufferedInputStream bufferedInputStream = new BufferedInputStream(new FileInputStream(file));
-		eventReader = inputFactory.createXMLEventReader(bufferedInputStream, IBatchProcessJobTags.UTF8);
-		/*
-		 * Use event filters.
-		 */
-		List<String> acceptedElements = new ArrayList<String>();
-		acceptedElements.add(IBatchProcessJobTags.MASSSPECTRUM_INPUT_ENTRY);
-		EventFilter eventFilter = new BatchProcessJobEventFilter(acceptedElements);
-		XMLEventReader filteredEventReader = inputFactory.createFilteredReader(eventReader, eventFilter);
-		/*
-		 * Read all entries.
-		 */
-		while(filteredEventReader.hasNext()) {
-			event = filteredEventReader.nextEvent();
-			event = eventReader.nextEvent();
-			inputEntry = new MassSpectrumInputEntry(event.asCharacters().getData());
-			batchProcessJob.getMassSpectrumInputEntries().add(inputEntry);
+		InputStream inputStream = new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE);
+		try {
+			/*
+			 * The magic bytes are stored in little endian order.
+			 */
+			inputStream.mark(2);
+			int magic = inputStream.read() | (inputStream.read() << 8);
+			inputStream.reset();
+			if(magic == GZIPInputStream.GZIP_MAGIC) {
+				return new BufferedInputStream(new GZIPInputStream(inputStream, BUFFER_SIZE), BUFFER_SIZE);
+			}
+			return inputStream;
+		} catch(IOException e) {
+			inputStream.close();
+			throw e;
 		}
-		/*
-		 * Close the streams.
-		 */
-		eventReader.close();
-		bufferedInputStream.close();
 	}
 
-	@SuppressWarnings("unchecked")
-	private void readMassSpectrumProcessEntries(File file, IBatchProcessJob batchProcessJob, IProgressMonitor monitor) throws XMLStreamException, IOException {
+	private static XMLInputFactory createInputFactory() {
 
-		IMassSpectrumProcessEntry processEntry;
-		String processCategory = null;
-		String processorId = "";
-		XMLEvent event;
-		Attribute attribute;
-		String attributeName;
-		/*
-		 * Open the streams.
-		 */
-		XMLEventReader eventReader;
 		XMLInputFactory inputFactory = XMLInputFactory.newInstance();
-		BufferedInputStream bufferedInputStream = new BufferedInputStream(new FileInputStream(file));
-		eventReader = inputFactory.createXMLEventReader(bufferedInputStream, IBatchProcessJobTags.UTF8);
-		/*
-		 * Use event filters.
-		 */
-		List<String> acceptedElements = new ArrayList<String>();
-		acceptedElements.add(IBatchProcessJobTags.MASSSPECTRUM_PROCESS_ENTRY);
-		EventFilter eventFilter = new BatchProcessJobEventFilter(acceptedElements);
-		XMLEventReader filteredEventReader = inputFactory.createFilteredReader(eventReader, eventFilter);
-		/*
-		 * Read all entries.
-		 */
-		while(filteredEventReader.hasNext()) {
-			event = filteredEventReader.nextEvent();
-			Iterator<? extends Attribute> attributes = event.asStartElement().getAttributes();
-			while(attributes.hasNext()) {
-				attribute = attributes.next();
-				attributeName = attribute.getName().getLocalPart();
-				// Process type
-				if(attributeName.equals(IBatchProcessJobTags.PROCESSOR_TYPE)) {
-					processCategory = attribute.getValue();
-				}
-				// Processor id
-				if(attributeName.equals(IBatchProcessJobTags.PROCESSOR_ID)) {
-					processorId = attribute.getValue();
-				}
-			}
-			processEntry = new MassSpectrumProcessEntry(processCategory, processorId);
-			batchProcessJob.getMassSpectrumProcessEntries().add(processEntry);
-		}
-		/*
-		 * Close the streams.
-		 */
-		eventReader.close();
-		bufferedInputStream.close();
+		inputFactory.setProperty(XMLInputFactory.IS_COALESCING, true);
+		inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		return inputFactory;
 	}
 
 	/**
-	 * Reads the mass spectrum output entries.
+	 * Reads the header and all entries. If lazy is true, the reading stops at the end of
+	 * the report entries as long as the input entries don't need to be known in advance.
 	 * 
-	 * @param file
+	 * @param streamReader
 	 * @param batchProcessJob
-	 * @param monitor
+	 * @param lazy
+	 * @return boolean true if the reading has been stopped before the end of the file
 	 * @throws XMLStreamException
-	 * @throws IOException
 	 */
-	@SuppressWarnings("unchecked")
-	private void readMassSpectrumOutputEntries(File file, IBatchProcessJob batchProcessJob, IProgressMonitor monitor) throws XMLStreamException, IOException {
-
-		IMassSpectrumOutputEntry outputEntry;
-		String outputFolder;
-		String converterId = "";
-		XMLEvent event;
-		Attribute attribute;
-		String attributeName;
-		/*
-		 * Open the streams.
-		 */
-		XMLEventReader eventReader;
-		XMLInputFactory inputFactory = XMLInputFactory.newInstance();
-		BufferedInputStream bufferedInputStream = new BufferedInputStream(new FileInputStream(file));
-		eventReader = inputFactory.createXMLEventReader(bufferedInputStream, IBatchProcessJobTags.UTF8);
-		/*
-		 * Use event filters.
-		 */
-		List<String> acceptedElements = new ArrayList<String>();
-		acceptedElements.add(IBatchProcessJobTags.MASSSPECTRUM_OUTPUT_ENTRY);
-		EventFilter eventFilter = new BatchProcessJobEventFilter(acceptedElements);
-		XMLEventReader filteredEventReader = inputFactory.createFilteredReader(eventReader, eventFilter);
-		/*
-		 * Read all entries.
-		 */
-		while(filteredEventReader.hasNext()) {
-			event = filteredEventReader.nextEvent();
-			Iterator<? extends Attribute> attributes = event.asStartElement().getAttributes();
-			while(attributes.hasNext()) {
-				attribute = attributes.next();
-				attributeName = attribute.getName().getLocalPart();
-				// Get the converter id.
-				if(attributeName.equals(IBatchProcessJobTags.MASSSPECTRUM_CONVERTER_ID)) {
-					converterId = attribute.getValue();
+	private boolean readBatchProcessJob(XMLStreamReader streamReader, IBatchProcessJob batchProcessJob, boolean lazy) throws XMLStreamException {
+
+		IBatchProcessSettings batchProcessSettings = batchProcessJob.getBatchProcessSettings();
+		while(streamReader.hasNext()) {
+			int event = streamReader.next();
+			if(lazy && event == XMLStreamConstants.END_ELEMENT && IBatchProcessJobTags.MASSSPECTRUM_REPORT_ENTRIES.equals(streamReader.getLocalName())) {
+				/*
+				 * The largest files can only be started first if all files are known.
+				 */
+				if(batchProcessSettings.getSchedulingPolicy() != SchedulingPolicy.LARGEST_FIRST) {
+					return true;
 				}
 			}
-			// Get the output file.
-			event = eventReader.nextEvent();
-			outputFolder = event.asCharacters().getData();
-			outputEntry = new MassSpectrumOutputEntry(outputFolder, converterId);
-			batchProcessJob.getMassSpectrumOutputEntries().add(outputEntry);
+			if(event != XMLStreamConstants.START_ELEMENT) {
+				continue;
+			}
+			String elementName = streamReader.getLocalName();
+			switch(elementName) {
+				case IBatchProcessJobTags.MASSSPECTRUM_INPUT_ENTRY:
+					batchProcessJob.getMassSpectrumInputEntries().add(new MassSpectrumInputEntry(streamReader.getElementText()));
+					break;
+				case IBatchProcessJobTags.MASSSPECTRUM_INPUT_SOURCE:
+					batchProcessJob.getMassSpectrumInputSources().add(readMassSpectrumInputSource(streamReader));
+					break;
+				case IBatchProcessJobTags.MASSSPECTRUM_PROCESS_ENTRY:
+					String processCategory = streamReader.getAttributeValue(null, IBatchProcessJobTags.PROCESSOR_TYPE);
+					String processorId = getAttributeValue(streamReader, IBatchProcessJobTags.PROCESSOR_ID);
+					batchProcessJob.getMassSpectrumProcessEntries().add(new MassSpectrumProcessEntry(processCategory, processorId));
+					break;
+				case IBatchProcessJobTags.MASSSPECTRUM_OUTPUT_ENTRY:
+					String converterId = getAttributeValue(streamReader, IBatchProcessJobTags.MASSSPECTRUM_CONVERTER_ID);
+					batchProcessJob.getMassSpectrumOutputEntries().add(new MassSpectrumOutputEntry(streamReader.getElementText(), converterId));
+					break;
+				case IBatchProcessJobTags.MASSSPECTRUM_REPORT_ENTRY:
+					String reportSupplierId = getAttributeValue(streamReader, IBatchProcessJobTags.MASSSPECTRUM_REPORT_SUPPLIER_ID);
+					batchProcessJob.getMassSpectrumReportEntries().add(new MassSpectrumReportSupplierEntry(streamReader.getElementText(), reportSupplierId));
+					break;
+				default:
+					if(BatchProcessSettingsSupport.isHeaderTag(elementName)) {
+						BatchProcessSettingsSupport.setHeaderValue(batchProcessSettings, elementName, streamReader.getElementText());
+					}
+					break;
+			}
 		}
+		return false;
+	}
+
+	private IMassSpectrumInputSource readMassSpectrumInputSource(XMLStreamReader streamReader) throws XMLStreamException {
+
 		/*
-		 * Close the streams.
+		 * The attributes must be read before the element text.
 		 */
-		eventReader.close();
-		bufferedInputStream.close();
+		String include = streamReader.getAttributeValue(null, IBatchProcessJobTags.INCLUDE);
+		String exclude = streamReader.getAttributeValue(null, IBatchProcessJobTags.EXCLUDE);
+		boolean recursive = Boolean.parseBoolean(streamReader.getAttributeValue(null, IBatchProcessJobTags.RECURSIVE));
+		IMassSpectrumInputSource inputSource = new MassSpectrumInputSource(streamReader.getElementText().trim());
+		inputSource.setInclude(include);
+		inputSource.setExclude(exclude);
+		inputSource.setRecursive(recursive);
+		return inputSource;
 	}
 
 	/**
-	 * Reads the mass spectrum report entries.
+	 * Returns the value of the attribute or an empty string if it is missing.
 	 * 
-	 * @param file
-	 * @param batchProcessJob
-	 * @param monitor
-	 * @throws XMLStreamException
-	 * @throws IOException
+	 * @param streamReader
+	 * @param attributeName
+	 * @return String
 	 */
-	@SuppressWarnings("unchecked")
-	private void readMassSpectrumReportEntries(File file, IBatchProcessJob batchProcessJob, IProgressMonitor monitor) throws XMLStreamException, IOException {
-
-		IMassSpectrumReportSupplierEntry reportEntry;
-		String reportSupplierId = "";
-		XMLEvent event;
-		Attribute attribute;
-		String attributeName;
-		/*
-		 * Open the streams.
-		 */
-		XMLEventReader eventReader;
-		XMLInputFactory inputFactory = XMLInputFactory.newInstance();
-		BufferedInputStream bufferedInputStream = new BufferedInputStream(new FileInputStream(file));
-		eventReader = inputFactory.createXMLEventReader(bufferedInputStream, IBatchProcessJobTags.UTF8);
-		/*
-		 * Use event filters.
-		 */
-		List<String> acceptedElements = new ArrayList<String>();
-		acceptedElements.add(IBatchProcessJobTags.MASSSPECTRUM_REPORT_ENTRY);
-		EventFilter eventFilter = new BatchProcessJobEventFilter(acceptedElements);
-		XMLEventReader filteredEventReader = inputFactory.createFilteredReader(eventReader, eventFilter);
-		/*
-		 * Read all entries.
-		 */
-		while(filteredEventReader.hasNext()) {
-			event = filteredEventReader.nextEvent();
-			Iterator<? extends Attribute> attributes = event.asStartElement().getAttributes();
-			while(attributes.hasNext()) {
-				attribute = attributes.next();
-				attributeName = attribute.getName().getLocalPart();
-				// Get the report supplier id.
-				if(attributeName.equals(IBatchProcessJobTags.MASSSPECTRUM_REPORT_SUPPLIER_ID)) {
-					reportSupplierId = attribute.getValue();
+	private String getAttributeValue(XMLStreamReader streamReader, String attributeName) {
+
+		String value = streamReader.getAttributeValue(null, attributeName);
+		return value != null ? value : "";
+	}
+
+	private static void close(InputStream inputStream, XMLStreamReader streamReader) throws IOException {
+
+		try {
+			if(streamReader != null) {
+				streamReader.close();
+			}
+		} catch(XMLStreamException e) {
+			throw new IOException(e);
+		} finally {
+			inputStream.close();
+		}
+	}
+
+	/**
+	 * Reads the input entries that follow the report entries one by one.
+	 * Other elements must precede the input entries, otherwise the job file is rejected.
+	 * A read failure is thrown again by each following call.
+	 * The file is closed as soon as the last entry has been read.
+	 */
+	private static class PendingInputEntries implements Iterator<IMassSpectrumInputEntry>, Closeable {
+
+		private final InputStream inputStream;
+		private final XMLStreamReader streamReader;
+		private IMassSpectrumInputEntry next;
+		private UncheckedIOException failure;
+		private boolean closed;
+
+		PendingInputEntries(InputStream inputStream, XMLStreamReader streamReader) {
+			this.inputStream = inputStream;
+			this.streamReader = streamReader;
+		}
+
+		@Override
+		public boolean hasNext() {
+
+			if(failure != null) {
+				throw failure;
+			}
+			if(next == null && !closed) {
+				try {
+					next = readNext();
+					if(next == null) {
+						close();
+					}
+				} catch(XMLStreamException e) {
+					closeQuietly();
+					failure = new UncheckedIOException(new IOException(e));
+					throw failure;
+				} catch(IOException e) {
+					failure = new UncheckedIOException(e);
+					throw failure;
 				}
 			}
-			// Get the report folder.
-			event = eventReader.nextEvent();
-			String reportFolderOrFile = event.asCharacters().getData();
-			reportEntry = new MassSpectrumReportSupplierEntry(reportFolderOrFile, reportSupplierId);
-			batchProcessJob.getMassSpectrumReportEntries().add(reportEntry);
+			return next != null;
+		}
+
+		@Override
+		public IMassSpectrumInputEntry next() {
+
+			if(!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			IMassSpectrumInputEntry inputEntry = next;
+			next = null;
+			return inputEntry;
+		}
+
+		@Override
+		public void close() throws IOException {
+
+			if(!closed) {
+				closed = true;
+				BatchProcessJobReader.close(inputStream, streamReader);
+			}
+		}
+
+		private IMassSpectrumInputEntry readNext() throws XMLStreamException {
+
+			while(streamReader.hasNext()) {
+				if(streamReader.next() != XMLStreamConstants.START_ELEMENT) {
+					continue;
+				}
+				String elementName = streamReader.getLocalName();
+				if(IBatchProcessJobTags.MASSSPECTRUM_INPUT_ENTRY.equals(elementName)) {
+					return new MassSpectrumInputEntry(streamReader.getElementText());
+				} else if(!IBatchProcessJobTags.MASSSPECTRUM_INPUT_ENTRIES.equals(elementName)) {
+					throw new XMLStreamException("The element " + elementName + " must precede the input entries.", streamReader.getLocation());
+				}
+			}
+			return null;
+		}
+
+		private void closeQuietly() {
+
+			try {
+				close();
+			} catch(IOException e) {
+				/*
+				 * The read failure is reported instead.
+				 */
+			}
 		}
-		/*
-		 * Close the streams.
-		 */
-		eventReader.close();
-		bufferedInputStream.close();
 	}
 }
@@ -11,327 +11,238 @@
  *******************************************************************************/
 package org.eclipse.chemclipse.msd.process.supplier.batchprocess.io;
 
-import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
-import javax.xml.stream.XMLEventFactory;
-import javax.xml.stream.XMLEventWriter;
 import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLStreamException;
-import javax.xml.stream.events.Attribute;
-import javax.xml.stream.events.Characters;
-import javax.xml.stream.events.Comment;
-import javax.xml.stream.events.EndElement;
-import javax.xml.stream.events.StartElement;
+import javax.xml.stream.XMLStreamWriter;
 
 import org.eclipse.chemclipse.converter.exceptions.FileIsNotWriteableException;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.internal.support.BatchProcessSettingsSupport;
 import org.eclipse.chemclipse.msd.process.supplier.batchprocess.internal.support.IBatchProcessJobTags;
 import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IBatchProcessJob;
 import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IMassSpectrumInputEntry;
+import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IMassSpectrumInputSource;
 import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IMassSpectrumOutputEntry;
 import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IMassSpectrumProcessEntry;
 import org.eclipse.chemclipse.msd.process.supplier.batchprocess.model.IMassSpectrumReportSupplierEntry;
 import org.eclipse.core.runtime.IProgressMonitor;
 
 /**
+ * Writes the job file with a cursor, hence no objects are created per element.
+ * The file is optionally compressed with gzip, the reader detects this by its content.
+ * 
  * @author Dr. Philip Wenig
  * 
  */
 public class BatchProcessJobWriter implements IBatchProcessJobWriter {
 
+	/*
+	 * The files written with compression should carry this extension.
+	 */
+	public static final String GZIP_FILE_EXTENSION = ".gz";
+	//
+	private static final int BUFFER_SIZE = 65536;
+	/*
+	 * Creating the factory looks up the implementation each time, hence it is cached.
+	 */
+	private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+	//
+	private final boolean compress;
+
+	/**
+	 * Creates a writer for uncompressed job files.
+	 */
+	public BatchProcessJobWriter() {
+		this(false);
+	}
+
+	/**
+	 * Creates a writer that compresses the job file with gzip if compress is true.
+	 * 
+	 * @param compress
+	 */
+	public BatchProcessJobWriter(boolean compress) {
+		this.compress = compress;
+	}
+
 	@Override
 	public void writeBatchProcessJob(File file, IBatchProcessJob batchProcessJob, IProgressMonitor monitor) throws FileNotFoundException, FileIsNotWriteableException, IOException, XMLStreamException {
 
-		XMLOutputFactory xmlOutputFactory = XMLOutputFactory.newInstance();
-		BufferedOutputStream bufferedOutputStream = new BufferedOutputStream(new FileOutputStream(file));
-		XMLEventWriter eventWriter = xmlOutputFactory.createXMLEventWriter(bufferedOutputStream, IBatchProcessJobTags.UTF8);
-		XMLEventFactory eventFactory = XMLEventFactory.newInstance();
+		OutputStream fileOutputStream = new FileOutputStream(file);
+		if(compress) {
+			fileOutputStream = new GZIPOutputStream(fileOutputStream, BUFFER_SIZE);
+		}
+		/*
+		 * Given a byte stream, the stream writer encodes each character separately,
+		 * hence a buffered character writer is used.
+		 */
+		try (Writer writer = new BufferedWriter(new OutputStreamWriter(fileOutputStream, StandardCharsets.UTF_8), BUFFER_SIZE)) {
+			XMLStreamWriter streamWriter = OUTPUT_FACTORY.createXMLStreamWriter(writer);
+			try {
+				writeBatchProcessJob(streamWriter, batchProcessJob);
+				streamWriter.flush();
+			} finally {
+				streamWriter.close();
+			}
+		}
+	}
+
+	private void writeBatchProcessJob(XMLStreamWriter streamWriter, IBatchProcessJob batchProcessJob) throws XMLStreamException {
+
 		/*
 		 * Document
 		 */
-		eventWriter.add(eventFactory.createStartDocument());
-		StartElement chromatogramStart = eventFactory.createStartElement("", "", IBatchProcessJobTags.BATCH_PROCESS_JOB);
-		eventWriter.add(chromatogramStart);
+		streamWriter.writeStartDocument(IBatchProcessJobTags.UTF8, "1.0");
+		streamWriter.writeStartElement(IBatchProcessJobTags.BATCH_PROCESS_JOB);
 		/*
 		 * Write the header and the list informations.
 		 */
-		writeBatchProcessJobHeader(eventWriter, eventFactory, batchProcessJob);
-		writeComment(eventWriter, eventFactory, "Load the following mass spectrum.");
-		writeMassSpectrumInputEntries(eventWriter, eventFactory, batchProcessJob.getMassSpectrumInputEntries());
-		writeComment(eventWriter, eventFactory, "Process each chromatogram with the listed methods.");
-		writeMassSpectrumProcessEntries(eventWriter, eventFactory, batchProcessJob.getMassSpectrumProcessEntries());
-		writeComment(eventWriter, eventFactory, "Write each processed mass spectrum to the given output formats.");
-		writeMassSpectrumOutputEntries(eventWriter, eventFactory, batchProcessJob.getMassSpectrumOutputEntries());
-		writeComment(eventWriter, eventFactory, "Process each mass spectrum with the listed report suppliers.");
-		writeMassSpectrumReportEntries(eventWriter, eventFactory, batchProcessJob.getMassSpectrumReportEntries());
+		writeBatchProcessJobHeader(streamWriter, batchProcessJob);
+		if(!batchProcessJob.getMassSpectrumInputSources().isEmpty()) {
+			streamWriter.writeComment("Load the mass spectra found in the following directories.");
+			writeMassSpectrumInputSources(streamWriter, batchProcessJob.getMassSpectrumInputSources());
+		}
+		streamWriter.writeComment("Process each chromatogram with the listed methods.");
+		writeMassSpectrumProcessEntries(streamWriter, batchProcessJob.getMassSpectrumProcessEntries());
+		streamWriter.writeComment("Write each processed mass spectrum to the given output formats.");
+		writeMassSpectrumOutputEntries(streamWriter, batchProcessJob.getMassSpectrumOutputEntries());
+		streamWriter.writeComment("Process each mass spectrum with the listed report suppliers.");
+		writeMassSpectrumReportEntries(streamWriter, batchProcessJob.getMassSpectrumReportEntries());
 		/*
-		 * Close the document
+		 * The input entries are written last, so that they can be read while the job is executed.
 		 */
-		EndElement chromatogramEnd = eventFactory.createEndElement("", "", IBatchProcessJobTags.BATCH_PROCESS_JOB);
-		eventWriter.add(chromatogramEnd);
-		eventWriter.add(eventFactory.createEndDocument());
+		streamWriter.writeComment("Load the following mass spectrum.");
+		writeMassSpectrumInputEntries(streamWriter, batchProcessJob.getMassSpectrumInputEntries());
 		/*
-		 * Close the streams
-		 */
-		bufferedOutputStream.flush();
-		eventWriter.flush();
-		bufferedOutputStream.close();
-		eventWriter.close();
-	}
-
-	/**
-	 * Writes the comment.
-	 * 
-	 * @param eventWriter
-	 * @param eventFactory
-	 * @throws XMLStreamException
-	 */
-	private void writeComment(XMLEventWriter eventWriter, XMLEventFactory eventFactory, String comment) throws XMLStreamException {
-
-		/*
-		 * Comment
+		 * Close the document
 		 */
-		Comment batchJobInfo = eventFactory.createComment(comment);
-		eventWriter.add(batchJobInfo);
+		streamWriter.writeEndElement();
+		streamWriter.writeEndDocument();
 	}
 
 	/**
 	 * Writes the header.
 	 * 
-	 * @param eventWriter
-	 * @param eventFactory
+	 * @param streamWriter
 	 * @param batchProcessJob
 	 * @throws XMLStreamException
 	 */
-	private void writeBatchProcessJobHeader(XMLEventWriter eventWriter, XMLEventFactory eventFactory, IBatchProcessJob batchProcessJob) throws XMLStreamException {
+	private void writeBatchProcessJobHeader(XMLStreamWriter streamWriter, IBatchProcessJob batchProcessJob) throws XMLStreamException {
 
-		/*
-		 * Element and content definition.
-		 */
-		StartElement headerStart = eventFactory.createStartElement("", "", IBatchProcessJobTags.HEADER);
-		EndElement headerEnd = eventFactory.createEndElement("", "", IBatchProcessJobTags.HEADER);
-		/*
-		 * Write the elements.
-		 */
-		eventWriter.add(headerStart);
-		eventWriter.add(headerEnd);
+		streamWriter.writeStartElement(IBatchProcessJobTags.HEADER);
+		for(Map.Entry<String, String> headerValue : BatchProcessSettingsSupport.getHeaderValues(batchProcessJob.getBatchProcessSettings()).entrySet()) {
+			streamWriter.writeStartElement(headerValue.getKey());
+			streamWriter.writeCharacters(headerValue.getValue());
+			streamWriter.writeEndElement();
+		}
+		streamWriter.writeEndElement();
 	}
 
 	/**
-	 * Writes the chromatogram input entries.
+	 * Writes the mass spectrum input entries.
 	 * 
-	 * @param eventWriter
-	 * @param eventFactory
+	 * @param streamWriter
 	 * @param inputEntries
 	 * @throws XMLStreamException
 	 */
-	private void writeMassSpectrumInputEntries(XMLEventWriter eventWriter, XMLEventFactory eventFactory, List<IMassSpectrumInputEntry> inputEntries) throws XMLStreamException {
+	private void writeMassSpectrumInputEntries(XMLStreamWriter streamWriter, List<IMassSpectrumInputEntry> inputEntries) throws XMLStreamException {
 
-		/*
-		 * Element and content definition.
-		 */
-		StartElement entriesStart = eventFactory.createStartElement("", "", IBatchProcessJobTags.MASSSPECTRUM_INPUT_ENTRIES);
-		EndElement entriesEnd = eventFactory.createEndElement("", "", IBatchProcessJobTags.MASSSPECTRUM_INPUT_ENTRIES);
-		/*
-		 * Write the elements.
-		 */
-		eventWriter.add(entriesStart);
+		streamWriter.writeStartElement(IBatchProcessJobTags.MASSSPECTRUM_INPUT_ENTRIES);
 		for(IMassSpectrumInputEntry inputEntry : inputEntries) {
-			writeMassSpectrumInputEntry(eventWriter, eventFactory, inputEntry);
+			streamWriter.writeStartElement(IBatchProcessJobTags.MASSSPECTRUM_INPUT_ENTRY);
+			streamWriter.writeCData(inputEntry.getInputFile());
+			streamWriter.writeEndElement();
 		}
-		eventWriter.add(entriesEnd);
+		streamWriter.writeEndElement();
 	}
 
 	/**
-	 * Writes the mass spectrum input entry.
+	 * Writes the mass spectrum input sources.
 	 * 
-	 * @param eventWriter
-	 * @param eventFactory
-	 * @param inputEntry
+	 * @param streamWriter
+	 * @param inputSources
 	 * @throws XMLStreamException
 	 */
-	private void writeMassSpectrumInputEntry(XMLEventWriter eventWriter, XMLEventFactory eventFactory, IMassSpectrumInputEntry inputEntry) throws XMLStreamException {
-
-		/*
-		 * Element and content definition.
-		 */
-		StartElement entryStart = eventFactory.createStartElement("", "", IBatchProcessJobTags.MASSSPECTRUM_INPUT_ENTRY);
-		EndElement entryEnd = eventFactory.createEndElement("", "", IBatchProcessJobTags.MASSSPECTRUM_INPUT_ENTRY);
-		/*
-		 * Values.
-		 */
-		Characters inputFile = eventFactory.createCData(inputEntry.getInputFile());
-		/*
-		 * Write the elements.
-		 */
-		eventWriter.add(entryStart);
-		eventWriter.add(inputFile);
-		eventWriter.add(entryEnd);
+	private void writeMassSpectrumInputSources(XMLStreamWriter streamWriter, List<IMassSpectrumInputSource> inputSources) throws XMLStreamException {
+
+		streamWriter.writeStartElement(IBatchProcessJobTags.MASSSPECTRUM_INPUT_SOURCES);
+		for(IMassSpectrumInputSource inputSource : inputSources) {
+			streamWriter.writeStartElement(IBatchProcessJobTags.MASSSPECTRUM_INPUT_SOURCE);
+			streamWriter.writeAttribute(IBatchProcessJobTags.INCLUDE, inputSource.getInclude());
+			streamWriter.writeAttribute(IBatchProcessJobTags.EXCLUDE, inputSource.getExclude());
+			streamWriter.writeAttribute(IBatchProcessJobTags.RECURSIVE, Boolean.toString(inputSource.isRecursive()));
+			streamWriter.writeCData(inputSource.getDirectory());
+			streamWriter.writeEndElement();
+		}
+		streamWriter.writeEndElement();
 	}
 
 	/**
 	 * Writes the mass spectrum process entries.
 	 * 
-	 * @param eventWriter
-	 * @param eventFactory
+	 * @param streamWriter
 	 * @param processEntries
 	 * @throws XMLStreamException
 	 */
-	private void writeMassSpectrumProcessEntries(XMLEventWriter eventWriter, XMLEventFactory eventFactory, List<IMassSpectrumProcessEntry> processEntries) throws XMLStreamException {
+	private void writeMassSpectrumProcessEntries(XMLStreamWriter streamWriter, List<IMassSpectrumProcessEntry> processEntries) throws XMLStreamException {
 
-		/*
-		 * Element and content definition.
-		 */
-		StartElement entriesStart = eventFactory.createStartElement("", "", IBatchProcessJobTags.MASSSPECTRUM_PROCESS_ENTRIES);
-		EndElement entriesEnd = eventFactory.createEndElement("", "", IBatchProcessJobTags.MASSSPECTRUM_PROCESS_ENTRIES);
-		/*
-		 * Write the elements.
-		 */
-		eventWriter.add(entriesStart);
+		streamWriter.writeStartElement(IBatchProcessJobTags.MASSSPECTRUM_PROCESS_ENTRIES);
 		for(IMassSpectrumProcessEntry processEntry : processEntries) {
-			writeMassSpectrumProcessEntry(eventWriter, eventFactory, processEntry);
+			streamWriter.writeStartElement(IBatchProcessJobTags.MASSSPECTRUM_PROCESS_ENTRY);
+			streamWriter.writeAttribute(IBatchProcessJobTags.PROCESSOR_TYPE, processEntry.getProcessCategory());
+			streamWriter.writeAttribute(IBatchProcessJobTags.PROCESSOR_ID, processEntry.getProcessorId());
+			streamWriter.writeEndElement();
 		}
-		eventWriter.add(entriesEnd);
-	}
-
-	/**
-	 * Writes the mass spectrum process entry.
-	 * 
-	 * @param eventWriter
-	 * @param eventFactory
-	 * @param processEntry
-	 * @throws XMLStreamException
-	 */
-	private void writeMassSpectrumProcessEntry(XMLEventWriter eventWriter, XMLEventFactory eventFactory, IMassSpectrumProcessEntry processEntry) throws XMLStreamException {
-
-		/*
-		 * Element and content definition.
-		 */
-		StartElement entryStart = eventFactory.createStartElement("", "", IBatchProcessJobTags.MASSSPECTRUM_PROCESS_ENTRY);
-		EndElement entryEnd = eventFactory.createEndElement("", "", IBatchProcessJobTags.MASSSPECTRUM_PROCESS_ENTRY);
-		/*
-		 * Attributes and values.
-		 */
-		Attribute processorType = eventFactory.createAttribute(IBatchProcessJobTags.PROCESSOR_TYPE, processEntry.getProcessCategory());
-		Attribute processorId = eventFactory.createAttribute(IBatchProcessJobTags.PROCESSOR_ID, processEntry.getProcessorId());
-		/*
-		 * Write the elements.
-		 */
-		eventWriter.add(entryStart);
-		eventWriter.add(processorType);
-		eventWriter.add(processorId);
-		eventWriter.add(entryEnd);
+		streamWriter.writeEndElement();
 	}
 
 	/**
 	 * Writes the mass spectrum output entries.
 	 * 
-	 * @param eventWriter
-	 * @param eventFactory
-	 * @param inputEntries
+	 * @param streamWriter
+	 * @param outputEntries
 	 * @throws XMLStreamException
 	 */
-	private void writeMassSpectrumOutputEntries(XMLEventWriter eventWriter, XMLEventFactory eventFactory, List<IMassSpectrumOutputEntry> outputEntries) throws XMLStreamException {
+	private void writeMassSpectrumOutputEntries(XMLStreamWriter streamWriter, List<IMassSpectrumOutputEntry> outputEntries) throws XMLStreamException {
 
-		/*
-		 * Element and content definition.
-		 */
-		StartElement entriesStart = eventFactory.createStartElement("", "", IBatchProcessJobTags.MASSSPECTRUM_OUTPUT_ENTRIES);
-		EndElement entriesEnd = eventFactory.createEndElement("", "", IBatchProcessJobTags.MASSSPECTRUM_OUTPUT_ENTRIES);
-		/*
-		 * Write the elements.
-		 */
-		eventWriter.add(entriesStart);
+		streamWriter.writeStartElement(IBatchProcessJobTags.MASSSPECTRUM_OUTPUT_ENTRIES);
 		for(IMassSpectrumOutputEntry outputEntry : outputEntries) {
-			writeMassSpectrumOutputEntry(eventWriter, eventFactory, outputEntry);
+			streamWriter.writeStartElement(IBatchProcessJobTags.MASSSPECTRUM_OUTPUT_ENTRY);
+			streamWriter.writeAttribute(IBatchProcessJobTags.MASSSPECTRUM_CONVERTER_ID, outputEntry.getConverterId());
+			streamWriter.writeCData(outputEntry.getOutputFolder());
+			streamWriter.writeEndElement();
 		}
-		eventWriter.add(entriesEnd);
-	}
-
-	/**
-	 * Writes the mass spectrum output entry.
-	 * 
-	 * @param eventWriter
-	 * @param eventFactory
-	 * @param inputEntry
-	 * @throws XMLStreamException
-	 */
-	private void writeMassSpectrumOutputEntry(XMLEventWriter eventWriter, XMLEventFactory eventFactory, IMassSpectrumOutputEntry outputEntry) throws XMLStreamException {
-
-		/*
-		 * Element and content definition.
-		 */
-		StartElement entryStart = eventFactory.createStartElement("", "", IBatchProcessJobTags.MASSSPECTRUM_OUTPUT_ENTRY);
-		EndElement entryEnd = eventFactory.createEndElement("", "", IBatchProcessJobTags.MASSSPECTRUM_OUTPUT_ENTRY);
-		/*
-		 * Attributes and Values.
-		 */
-		Attribute converterId = eventFactory.createAttribute(IBatchProcessJobTags.MASSSPECTRUM_CONVERTER_ID, outputEntry.getConverterId());
-		Characters outputFolder = eventFactory.createCData(outputEntry.getOutputFolder());
-		/*
-		 * Write the elements.
-		 */
-		eventWriter.add(entryStart);
-		eventWriter.add(converterId);
-		eventWriter.add(outputFolder);
-		eventWriter.add(entryEnd);
+		streamWriter.writeEndElement();
 	}
 
 	/**
 	 * Writes the mass spectrum report entries.
 	 * 
-	 * @param eventWriter
-	 * @param eventFactory
-	 * @param inputEntries
+	 * @param streamWriter
+	 * @param reportEntries
 	 * @throws XMLStreamException
 	 */
-	private void writeMassSpectrumReportEntries(XMLEventWriter eventWriter, XMLEventFactory eventFactory, List<IMassSpectrumReportSupplierEntry> reportEntries) throws XMLStreamException {
+	private void writeMassSpectrumReportEntries(XMLStreamWriter streamWriter, List<IMassSpectrumReportSupplierEntry> reportEntries) throws XMLStreamException {
 
-		/*
-		 * Element and content definition.
-		 */
-		StartElement entriesStart = eventFactory.createStartElement("", "", IBatchProcessJobTags.MASSSPECTRUM_REPORT_ENTRIES);
-		EndElement entriesEnd = eventFactory.createEndElement("", "", IBatchProcessJobTags.MASSSPECTRUM_REPORT_ENTRIES);
-		/*
-		 * Write the elements.
-		 */
-		eventWriter.add(entriesStart);
+		streamWriter.writeStartElement(IBatchProcessJobTags.MASSSPECTRUM_REPORT_ENTRIES);
 		for(IMassSpectrumReportSupplierEntry reportEntry : reportEntries) {
-			writeMassSpectrumReportEntry(eventWriter, eventFactory, reportEntry);
+			streamWriter.writeStartElement(IBatchProcessJobTags.MASSSPECTRUM_REPORT_ENTRY);
+			streamWriter.writeAttribute(IBatchProcessJobTags.MASSSPECTRUM_REPORT_SUPPLIER_ID, reportEntry.getReportSupplierId());
+			streamWriter.writeCData(reportEntry.getReportFolderOrFile());
+			streamWriter.writeEndElement();
 		}
-		eventWriter.add(entriesEnd);
-	}
-
-	/**
-	 * Writes the chromatogram report entry.
-	 * 
-	 * @param eventWriter
-	 * @param eventFactory
-	 * @param inputEntry
-	 * @throws XMLStreamException
-	 */
-	private void writeMassSpectrumReportEntry(XMLEventWriter eventWriter, XMLEventFactory eventFactory, IMassSpectrumReportSupplierEntry reportEntry) throws XMLStreamException {
-
-		/*
-		 * Element and content definition.
-		 */
-		StartElement entryStart = eventFactory.createStartElement("", "", IBatchProcessJobTags.MASSSPECTRUM_REPORT_ENTRY);
-		EndElement entryEnd = eventFactory.createEndElement("", "", IBatchProcessJobTags.MASSSPECTRUM_REPORT_ENTRY);
-		/*
-		 * Attributes and Values.
-		 */
-		Attribute converterId = eventFactory.createAttribute(IBatchProcessJobTags.MASSSPECTRUM_REPORT_SUPPLIER_ID, reportEntry.getReportSupplierId());
-		Characters reportFolderOrFile = eventFactory.createCData(reportEntry.getReportFolderOrFile());
-		/*
-		 * Write the elements.
-		 */
-		eventWriter.add(entryStart);
-		eventWriter.add(converterId);
-		eventWriter.add(reportFolderOrFile);
-		eventWriter.add(entryEnd);
+		streamWriter.writeEndElement();
 	}
 }
@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Lablicate GmbH.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * Lablicate GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.chemclipse.msd.process.supplier.batchprocess.io;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * A converter that is able to read and/or write mass spectra scan by scan,
+ * without holding the whole file in memory.
+ * 
+ */
+public interface IMassSpectrumStreamConverter {
+
+	/**
+	 * Returns whether the given file can be read as a stream.
+	 * 
+	 * @param file
+	 * @return boolean
+	 */
+	boolean canRead(File file);
+
+	/**
+	 * Opens a stream reader for the given file.
+	 * 
+	 * @param file
+	 * @param monitor
+	 * @return {@link IMassSpectrumStreamReader}
+	 * @throws IOException
+	 */
+	IMassSpectrumStreamReader openReader(File file, IProgressMonitor monitor) throws IOException;
+
+	/**
+	 * Returns whether the given converter id can be written as a stream.
+	 * 
+	 * @param converterId
+	 * @return boolean
+	 */
+	boolean canWrite(String converterId);
+
+	/**
+	 * Opens a stream writer for the given file and converter id.
+	 * 
+	 * @param file
+	 * @param converterId
+	 * @param monitor
+	 * @return {@link IMassSpectrumStreamWriter}
+	 * @throws IOException
+	 */
+	IMassSpectrumStreamWriter openWriter(File file, String converterId, IProgressMonitor monitor) throws IOException;
+}
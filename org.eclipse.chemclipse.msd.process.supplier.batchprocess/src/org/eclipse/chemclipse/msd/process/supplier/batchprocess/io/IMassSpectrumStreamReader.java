@@ -0,0 +1,39 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Lablicate GmbH.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * Lablicate GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.chemclipse.msd.process.supplier.batchprocess.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import org.eclipse.chemclipse.msd.model.core.IScanMSD;
+
+/**
+ * Reads the scans of a mass spectra file one after another.
+ * 
+ */
+public interface IMassSpectrumStreamReader extends Closeable {
+
+	/**
+	 * Returns the name of the mass spectra.
+	 * 
+	 * @return String
+	 */
+	String getName();
+
+	/**
+	 * Returns the next scan or null if the end of the file has been reached.
+	 * 
+	 * @return {@link IScanMSD}
+	 * @throws IOException
+	 */
+	IScanMSD next() throws IOException;
+}
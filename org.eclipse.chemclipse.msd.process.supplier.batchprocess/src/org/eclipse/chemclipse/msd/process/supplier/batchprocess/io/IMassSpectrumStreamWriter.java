@@ -0,0 +1,32 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Lablicate GmbH.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * Lablicate GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.chemclipse.msd.process.supplier.batchprocess.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import org.eclipse.chemclipse.msd.model.core.IScanMSD;
+
+/**
+ * Appends scans to a mass spectra file one after another.
+ * 
+ */
+public interface IMassSpectrumStreamWriter extends Closeable {
+
+	/**
+	 * Appends the scan.
+	 * 
+	 * @param massSpectrum
+	 * @throws IOException
+	 */
+	void write(IScanMSD massSpectrum) throws IOException;
+}
@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Lablicate GmbH.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * Lablicate GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.chemclipse.msd.process.supplier.batchprocess.io;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.eclipse.chemclipse.logging.core.Logger;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IConfigurationElement;
+import org.eclipse.core.runtime.IExtensionRegistry;
+import org.eclipse.core.runtime.Platform;
+
+/**
+ * Holds the converters that are able to stream mass spectra.
+ * Converter plug-ins contribute them to the extension point {@value #EXTENSION_POINT}.
+ * 
+ */
+public class MassSpectrumStreamConverterSupport {
+
+	private static final Logger logger = Logger.getLogger(MassSpectrumStreamConverterSupport.class);
+	public static final String EXTENSION_POINT = "org.eclipse.chemclipse.chromatogram.msd.process.supplier.batchprocess.massSpectrumStreamConverter";
+	private static final String CONVERTER = "converter";
+	//
+	private List<IMassSpectrumStreamConverter> streamConverters;
+
+	public MassSpectrumStreamConverterSupport() {
+		streamConverters = new CopyOnWriteArrayList<IMassSpectrumStreamConverter>();
+	}
+
+	/**
+	 * Registers a stream converter.
+	 * 
+	 * @param streamConverter
+	 */
+	public void add(IMassSpectrumStreamConverter streamConverter) {
+
+		if(streamConverter != null) {
+			streamConverters.add(streamConverter);
+		}
+	}
+
+	/**
+	 * Registers the stream converters that are contributed to the extension point.
+	 * Nothing is registered if the platform is not running.
+	 */
+	public void addRegisteredConverters() {
+
+		IExtensionRegistry registry = Platform.getExtensionRegistry();
+		if(registry == null) {
+			return;
+		}
+		for(IConfigurationElement element : registry.getConfigurationElementsFor(EXTENSION_POINT)) {
+			try {
+				Object streamConverter = element.createExecutableExtension(CONVERTER);
+				if(streamConverter instanceof IMassSpectrumStreamConverter) {
+					add((IMassSpectrumStreamConverter)streamConverter);
+				}
+			} catch(CoreException e) {
+				logger.warn(e);
+			}
+		}
+	}
+
+	/**
+	 * Returns true if no stream converter is registered, i.e. all files are loaded completely.
+	 * 
+	 * @return boolean
+	 */
+	public boolean isEmpty() {
+
+		return streamConverters.isEmpty();
+	}
+
+	/**
+	 * Returns a converter that is able to read the given file as a stream or null if none is available.
+	 * 
+	 * @param file
+	 * @return {@link IMassSpectrumStreamConverter}
+	 */
+	public IMassSpectrumStreamConverter getReader(File file) {
+
+		for(IMassSpectrumStreamConverter streamConverter : streamConverters) {
+			if(streamConverter.canRead(file)) {
+				return streamConverter;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns a converter that is able to write the given converter id as a stream or null if none is available.
+	 * 
+	 * @param converterId
+	 * @return {@link IMassSpectrumStreamConverter}
+	 */
+	public IMassSpectrumStreamConverter getWriter(String converterId) {
+
+		for(IMassSpectrumStreamConverter streamConverter : streamConverters) {
+			if(streamConverter.canWrite(converterId)) {
+				return streamConverter;
+			}
+		}
+		return null;
+	}
+}
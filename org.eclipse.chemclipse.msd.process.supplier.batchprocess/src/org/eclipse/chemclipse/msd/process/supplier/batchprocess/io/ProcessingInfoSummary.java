@@ -0,0 +1,197 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Lablicate GmbH.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * Lablicate GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.chemclipse.msd.process.supplier.batchprocess.io;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.chemclipse.processing.core.IProcessingInfo;
+import org.eclipse.chemclipse.processing.core.IProcessingMessage;
+import org.eclipse.chemclipse.processing.core.MessageType;
+import org.eclipse.chemclipse.processing.core.ProcessingInfo;
+import org.eclipse.chemclipse.processing.core.ProcessingMessage;
+
+/**
+ * Stores the messages of a processing info in a text file, one message per line
+ * with the type, description and message separated by tabs. The summaries of
+ * the shards of a job are written independently and merged afterwards.
+ * 
+ */
+public class ProcessingInfoSummary {
+
+	public static final String FILE_EXTENSION = ".summary";
+	//
+	private static final String COMMENT = "#";
+	private static final char SEPARATOR = '\t';
+	private static final char ESCAPE = '\\';
+
+	/**
+	 * This class has only static methods.
+	 */
+	private ProcessingInfoSummary() {
+	}
+
+	/**
+	 * Writes the messages of the processing info to the given file.
+	 * 
+	 * @param file
+	 * @param processingInfo
+	 * @throws IOException
+	 */
+	public static void write(File file, IProcessingInfo processingInfo) throws IOException {
+
+		try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+			writer.write(COMMENT + " Batch Process Summary");
+			writer.newLine();
+			StringBuilder builder = new StringBuilder();
+			for(IProcessingMessage processingMessage : processingInfo.getMessages()) {
+				builder.setLength(0);
+				builder.append(processingMessage.getMessageType().name()).append(SEPARATOR);
+				escape(builder, processingMessage.getDescription());
+				builder.append(SEPARATOR);
+				escape(builder, processingMessage.getMessage());
+				writer.append(builder);
+				writer.newLine();
+			}
+		}
+	}
+
+	/**
+	 * Reads the processing info from the given file.
+	 * 
+	 * @param file
+	 * @return {@link IProcessingInfo}
+	 * @throws FileNotFoundException
+	 * @throws IOException
+	 */
+	public static IProcessingInfo read(File file) throws FileNotFoundException, IOException {
+
+		IProcessingInfo processingInfo = new ProcessingInfo();
+		read(file, processingInfo);
+		return processingInfo;
+	}
+
+	/**
+	 * Merges the summaries in the given order into one processing info.
+	 * 
+	 * @param files
+	 * @return {@link IProcessingInfo}
+	 * @throws FileNotFoundException
+	 * @throws IOException
+	 */
+	public static IProcessingInfo merge(List<File> files) throws FileNotFoundException, IOException {
+
+		IProcessingInfo processingInfo = new ProcessingInfo();
+		for(File file : files) {
+			read(file, processingInfo);
+		}
+		return processingInfo;
+	}
+
+	private static void read(File file, IProcessingInfo processingInfo) throws FileNotFoundException, IOException {
+
+		if(!file.exists()) {
+			throw new FileNotFoundException("The summary doesn't exist: " + file);
+		}
+		try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+			String line;
+			while((line = reader.readLine()) != null) {
+				if(line.isEmpty() || line.startsWith(COMMENT)) {
+					continue;
+				}
+				List<String> fields = split(line);
+				if(fields.size() != 3) {
+					throw new IOException("The summary is corrupt: " + file);
+				}
+				try {
+					MessageType messageType = MessageType.valueOf(fields.get(0));
+					processingInfo.addMessage(new ProcessingMessage(messageType, fields.get(1), fields.get(2)));
+				} catch(IllegalArgumentException e) {
+					throw new IOException("The summary contains an unknown message type: " + file, e);
+				}
+			}
+		}
+	}
+
+	private static void escape(StringBuilder builder, String value) {
+
+		if(value == null) {
+			return;
+		}
+		for(int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch(c) {
+				case SEPARATOR:
+					builder.append(ESCAPE).append('t');
+					break;
+				case '\n':
+					builder.append(ESCAPE).append('n');
+					break;
+				case '\r':
+					builder.append(ESCAPE).append('r');
+					break;
+				case ESCAPE:
+					builder.append(ESCAPE).append(ESCAPE);
+					break;
+				default:
+					builder.append(c);
+					break;
+			}
+		}
+	}
+
+	/**
+	 * Splits the line at the separators and unescapes the fields.
+	 * 
+	 * @param line
+	 * @return List
+	 */
+	private static List<String> split(String line) {
+
+		List<String> fields = new ArrayList<String>(3);
+		StringBuilder builder = new StringBuilder();
+		for(int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if(c == SEPARATOR) {
+				fields.add(builder.toString());
+				builder.setLength(0);
+			} else if(c == ESCAPE && i + 1 < line.length()) {
+				char escaped = line.charAt(++i);
+				switch(escaped) {
+					case 't':
+						builder.append(SEPARATOR);
+						break;
+					case 'n':
+						builder.append('\n');
+						break;
+					case 'r':
+						builder.append('\r');
+						break;
+					default:
+						builder.append(escaped);
+						break;
+				}
+			} else {
+				builder.append(c);
+			}
+		}
+		fields.add(builder.toString());
+		return fields;
+	}
+}
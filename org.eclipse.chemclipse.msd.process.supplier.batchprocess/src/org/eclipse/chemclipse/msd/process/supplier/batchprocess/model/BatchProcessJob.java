@@ -27,9 +27,11 @@ import org.eclipse.chemclipse.chromatogram.xxd.report.model.IChromatogramReportS
 public class BatchProcessJob implements IBatchProcessJob {
 
 	private List<IMassSpectrumInputEntry> massSpectrumInputEntries;
+	private List<IMassSpectrumInputSource> massSpectrumInputSources;
 	private List<IMassSpectrumProcessEntry> massSpectrumProcessEntries;
 	private List<IMassSpectrumOutputEntry> massSpectrumOutputEntries;
 	private List<IMassSpectrumReportSupplierEntry> massSpectrumReportEntries;
+	private IBatchProcessSettings batchProcessSettings;
 
 	/**
 	 * Creates a new batch process job.
@@ -40,9 +42,11 @@ public class BatchProcessJob implements IBatchProcessJob {
 		 * The entries shall be processed in the order the user has chosen them.
 		 */
 		massSpectrumInputEntries = new ArrayList<IMassSpectrumInputEntry>();
+		massSpectrumInputSources = new ArrayList<IMassSpectrumInputSource>();
 		massSpectrumProcessEntries = new ArrayList<IMassSpectrumProcessEntry>();
 		massSpectrumOutputEntries = new ArrayList<IMassSpectrumOutputEntry>();
 		massSpectrumReportEntries = new ArrayList<IMassSpectrumReportSupplierEntry>();
+		batchProcessSettings = new BatchProcessSettings();
 	}
 
 	@Override
@@ -51,6 +55,12 @@ public class BatchProcessJob implements IBatchProcessJob {
 		return massSpectrumInputEntries;
 	}
 
+	@Override
+	public List<IMassSpectrumInputSource> getMassSpectrumInputSources() {
+
+		return massSpectrumInputSources;
+	}
+
 	@Override
 	public List<IMassSpectrumProcessEntry> getMassSpectrumProcessEntries() {
 
@@ -68,4 +78,10 @@ public class BatchProcessJob implements IBatchProcessJob {
 
 		return massSpectrumReportEntries;
 	}
+
+	@Override
+	public IBatchProcessSettings getBatchProcessSettings() {
+
+		return batchProcessSettings;
+	}
 }
@@ -0,0 +1,409 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Lablicate GmbH.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * Lablicate GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.chemclipse.msd.process.supplier.batchprocess.model;
+
+public class BatchProcessSettings implements IBatchProcessSettings {
+
+	private ExecutionMode executionMode = ExecutionMode.SEQUENTIAL;
+	private int numberOfThreads = DEFAULT_NUMBER_OF_THREADS;
+	private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+	private boolean streaming = false;
+	private ScanProcessingMode scanProcessingMode = ScanProcessingMode.SEQUENTIAL;
+	private ExecutorType executorType = ExecutorType.PLATFORM;
+	private int streamWindowSize = DEFAULT_STREAM_WINDOW_SIZE;
+	private String journalFile = "";
+	private boolean incremental = false;
+	private boolean parallelOutput = false;
+	private boolean resume = false;
+	private int heapBudget = DEFAULT_HEAP_BUDGET;
+	private int outputThreadsPerVolume = DEFAULT_OUTPUT_THREADS_PER_VOLUME;
+	private boolean watch = false;
+	private SchedulingPolicy schedulingPolicy = SchedulingPolicy.INPUT_ORDER;
+	private int fileTimeout = DEFAULT_FILE_TIMEOUT;
+	private int watchSettleTime = DEFAULT_WATCH_SETTLE_TIME;
+	private int messageLimit = DEFAULT_MESSAGE_LIMIT;
+	private int stageTimeout = DEFAULT_STAGE_TIMEOUT;
+	private String messageLogFile = "";
+	private int shardIndex = DEFAULT_SHARD_INDEX;
+	private int shardCount = DEFAULT_SHARD_COUNT;
+	private ShardingPolicy shardingPolicy = ShardingPolicy.HASH;
+	private String workQueueDirectory = "";
+	private int leaseTimeout = DEFAULT_LEASE_TIMEOUT;
+	private int cacheSize = DEFAULT_CACHE_SIZE;
+	private String cacheDirectory = "";
+
+	@Override
+	public ExecutionMode getExecutionMode() {
+
+		return executionMode;
+	}
+
+	@Override
+	public void setExecutionMode(ExecutionMode executionMode) {
+
+		if(executionMode != null) {
+			this.executionMode = executionMode;
+		}
+	}
+
+	@Override
+	public int getNumberOfThreads() {
+
+		return numberOfThreads;
+	}
+
+	@Override
+	public void setNumberOfThreads(int numberOfThreads) {
+
+		this.numberOfThreads = numberOfThreads;
+	}
+
+	@Override
+	public int getQueueCapacity() {
+
+		return queueCapacity;
+	}
+
+	@Override
+	public void setQueueCapacity(int queueCapacity) {
+
+		if(queueCapacity > 0) {
+			this.queueCapacity = queueCapacity;
+		}
+	}
+
+	@Override
+	public ScanProcessingMode getScanProcessingMode() {
+
+		return scanProcessingMode;
+	}
+
+	@Override
+	public void setScanProcessingMode(ScanProcessingMode scanProcessingMode) {
+
+		if(scanProcessingMode != null) {
+			this.scanProcessingMode = scanProcessingMode;
+		}
+	}
+
+	@Override
+	public boolean isStreaming() {
+
+		return streaming;
+	}
+
+	@Override
+	public void setStreaming(boolean streaming) {
+
+		this.streaming = streaming;
+	}
+
+	@Override
+	public int getStreamWindowSize() {
+
+		return streamWindowSize;
+	}
+
+	@Override
+	public void setStreamWindowSize(int streamWindowSize) {
+
+		if(streamWindowSize > 0) {
+			this.streamWindowSize = streamWindowSize;
+		}
+	}
+
+	@Override
+	public ExecutorType getExecutorType() {
+
+		return executorType;
+	}
+
+	@Override
+	public void setExecutorType(ExecutorType executorType) {
+
+		if(executorType != null) {
+			this.executorType = executorType;
+		}
+	}
+
+	@Override
+	public boolean isIncremental() {
+
+		return incremental;
+	}
+
+	@Override
+	public void setIncremental(boolean incremental) {
+
+		this.incremental = incremental;
+	}
+
+	@Override
+	public String getJournalFile() {
+
+		return journalFile;
+	}
+
+	@Override
+	public void setJournalFile(String journalFile) {
+
+		if(journalFile != null) {
+			this.journalFile = journalFile;
+		}
+	}
+
+	@Override
+	public boolean isResume() {
+
+		return resume;
+	}
+
+	@Override
+	public void setResume(boolean resume) {
+
+		this.resume = resume;
+	}
+
+	@Override
+	public boolean isParallelOutput() {
+
+		return parallelOutput;
+	}
+
+	@Override
+	public void setParallelOutput(boolean parallelOutput) {
+
+		this.parallelOutput = parallelOutput;
+	}
+
+	@Override
+	public int getOutputThreadsPerVolume() {
+
+		return outputThreadsPerVolume;
+	}
+
+	@Override
+	public void setOutputThreadsPerVolume(int outputThreadsPerVolume) {
+
+		if(outputThreadsPerVolume > 0) {
+			this.outputThreadsPerVolume = outputThreadsPerVolume;
+		}
+	}
+
+	@Override
+	public int getHeapBudget() {
+
+		return heapBudget;
+	}
+
+	@Override
+	public void setHeapBudget(int heapBudget) {
+
+		if(heapBudget >= 0) {
+			this.heapBudget = heapBudget;
+		}
+	}
+
+	@Override
+	public SchedulingPolicy getSchedulingPolicy() {
+
+		return schedulingPolicy;
+	}
+
+	@Override
+	public void setSchedulingPolicy(SchedulingPolicy schedulingPolicy) {
+
+		if(schedulingPolicy != null) {
+			this.schedulingPolicy = schedulingPolicy;
+		}
+	}
+
+	@Override
+	public boolean isWatch() {
+
+		return watch;
+	}
+
+	@Override
+	public void setWatch(boolean watch) {
+
+		this.watch = watch;
+	}
+
+	@Override
+	public int getWatchSettleTime() {
+
+		return watchSettleTime;
+	}
+
+	@Override
+	public void setWatchSettleTime(int watchSettleTime) {
+
+		if(watchSettleTime >= 0) {
+			this.watchSettleTime = watchSettleTime;
+		}
+	}
+
+	@Override
+	public int getFileTimeout() {
+
+		return fileTimeout;
+	}
+
+	@Override
+	public void setFileTimeout(int fileTimeout) {
+
+		if(fileTimeout >= 0) {
+			this.fileTimeout = fileTimeout;
+		}
+	}
+
+	@Override
+	public int getStageTimeout() {
+
+		return stageTimeout;
+	}
+
+	@Override
+	public void setStageTimeout(int stageTimeout) {
+
+		if(stageTimeout >= 0) {
+			this.stageTimeout = stageTimeout;
+		}
+	}
+
+	@Override
+	public int getMessageLimit() {
+
+		return messageLimit;
+	}
+
+	@Override
+	public void setMessageLimit(int messageLimit) {
+
+		if(messageLimit >= 0) {
+			this.messageLimit = messageLimit;
+		}
+	}
+
+	@Override
+	public String getMessageLogFile() {
+
+		return messageLogFile;
+	}
+
+	@Override
+	public void setMessageLogFile(String messageLogFile) {
+
+		if(messageLogFile != null) {
+			this.messageLogFile = messageLogFile;
+		}
+	}
+
+	@Override
+	public int getShardIndex() {
+
+		return shardIndex;
+	}
+
+	@Override
+	public void setShardIndex(int shardIndex) {
+
+		if(shardIndex >= 0) {
+			this.shardIndex = shardIndex;
+		}
+	}
+
+	@Override
+	public int getShardCount() {
+
+		return shardCount;
+	}
+
+	@Override
+	public void setShardCount(int shardCount) {
+
+		if(shardCount > 0) {
+			this.shardCount = shardCount;
+		}
+	}
+
+	@Override
+	public ShardingPolicy getShardingPolicy() {
+
+		return shardingPolicy;
+	}
+
+	@Override
+	public void setShardingPolicy(ShardingPolicy shardingPolicy) {
+
+		if(shardingPolicy != null) {
+			this.shardingPolicy = shardingPolicy;
+		}
+	}
+
+	@Override
+	public String getWorkQueueDirectory() {
+
+		return workQueueDirectory;
+	}
+
+	@Override
+	public void setWorkQueueDirectory(String workQueueDirectory) {
+
+		if(workQueueDirectory != null) {
+			this.workQueueDirectory = workQueueDirectory;
+		}
+	}
+
+	@Override
+	public int getLeaseTimeout() {
+
+		return leaseTimeout;
+	}
+
+	@Override
+	public void setLeaseTimeout(int leaseTimeout) {
+
+		if(leaseTimeout > 0) {
+			this.leaseTimeout = leaseTimeout;
+		}
+	}
+
+	@Override
+	public String getCacheDirectory() {
+
+		return cacheDirectory;
+	}
+
+	@Override
+	public void setCacheDirectory(String cacheDirectory) {
+
+		if(cacheDirectory != null) {
+			this.cacheDirectory = cacheDirectory;
+		}
+	}
+
+	@Override
+	public int getCacheSize() {
+
+		return cacheSize;
+	}
+
+	@Override
+	public void setCacheSize(int cacheSize) {
+
+		if(cacheSize > 0) {
+			this.cacheSize = cacheSize;
+		}
+	}
+}
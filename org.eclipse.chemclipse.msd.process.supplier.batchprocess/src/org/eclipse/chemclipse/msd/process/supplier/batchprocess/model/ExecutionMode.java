@@ -0,0 +1,33 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Lablicate GmbH.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * Lablicate GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.chemclipse.msd.process.supplier.batchprocess.model;
+
+/**
+ * Defines how the input entries of a batch process job are executed.
+ * 
+ */
+public enum ExecutionMode {
+	/*
+	 * One input file after the other.
+	 */
+	SEQUENTIAL, //
+	/*
+	 * Each input file is loaded, processed, written and reported
+	 * independently on a bounded worker pool.
+	 */
+	PARALLEL, //
+	/*
+	 * Loading, processing and writing run as separate stages,
+	 * connected by bounded queues.
+	 */
+	PIPELINE;
+}
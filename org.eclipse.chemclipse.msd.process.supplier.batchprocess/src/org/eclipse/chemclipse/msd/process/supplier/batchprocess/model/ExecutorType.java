@@ -0,0 +1,29 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Lablicate GmbH.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * Lablicate GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.chemclipse.msd.process.supplier.batchprocess.model;
+
+/**
+ * Defines the threads that execute the input entries in parallel mode.
+ * 
+ */
+public enum ExecutorType {
+	/*
+	 * A fixed pool of platform threads.
+	 */
+	PLATFORM, //
+	/*
+	 * One virtual thread per input file, the processing stage is bounded
+	 * by the number of threads. Falls back to platform threads if the JVM
+	 * doesn't support virtual threads.
+	 */
+	VIRTUAL;
+}
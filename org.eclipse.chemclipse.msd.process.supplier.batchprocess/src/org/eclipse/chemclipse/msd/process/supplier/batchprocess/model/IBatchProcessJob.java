@@ -12,6 +12,8 @@
  *******************************************************************************/
 package org.eclipse.chemclipse.msd.process.supplier.batchprocess.model;
 
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -27,6 +29,32 @@ public interface IBatchProcessJob {
 	 */
 	List<IMassSpectrumInputEntry> getMassSpectrumInputEntries();
 
+	/**
+	 * Returns the input entries that are still being read from the job file while the job runs.
+	 * They are processed after the input entries and before the files of the input sources.
+	 * The iterator may block until the next entry has been read and can be consumed only once.
+	 * If the job file can't be read completely, an {@link java.io.UncheckedIOException} is thrown.
+	 * Jobs that are read completely have no pending input entries.
+	 * 
+	 * @return Iterator<IMassSpectrumInputEntry>
+	 */
+	default Iterator<IMassSpectrumInputEntry> getPendingMassSpectrumInputEntries() {
+
+		return Collections.<IMassSpectrumInputEntry> emptyIterator();
+	}
+
+	/**
+	 * Returns the list of directories whose mass spectra are discovered while the job runs.
+	 * The discovered files are processed after the input entries.
+	 * Jobs without input sources return an empty list.
+	 * 
+	 * @return List<IMassSpectrumInputSource>
+	 */
+	default List<IMassSpectrumInputSource> getMassSpectrumInputSources() {
+
+		return Collections.<IMassSpectrumInputSource> emptyList();
+	}
+
 	/**
 	 * Returns the list of all entries to process each mass spectrum.
 	 * 
@@ -47,4 +75,15 @@ public interface IBatchProcessJob {
 	 * @return List<IMassSpectrumReportSupplierEntry>
 	 */
 	List<IMassSpectrumReportSupplierEntry> getMassSpectrumReportEntries();
+
+	/**
+	 * Returns the settings that control the execution of the job.
+	 * Jobs that don't keep settings are executed with the default settings.
+	 * 
+	 * @return {@link IBatchProcessSettings}
+	 */
+	default IBatchProcessSettings getBatchProcessSettings() {
+
+		return new BatchProcessSettings();
+	}
 }
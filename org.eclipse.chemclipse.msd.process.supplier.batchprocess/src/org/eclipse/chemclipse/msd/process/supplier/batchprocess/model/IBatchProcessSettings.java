@@ -0,0 +1,455 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Lablicate GmbH.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * Lablicate GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.chemclipse.msd.process.supplier.batchprocess.model;
+
+/**
+ * The settings that control how a batch process job is executed.
+ * 
+ */
+public interface IBatchProcessSettings {
+
+	/**
+	 * Use as many worker threads as processors are available.
+	 */
+	int DEFAULT_NUMBER_OF_THREADS = 0;
+	/**
+	 * The number of files that may wait between two pipeline stages.
+	 */
+	int DEFAULT_QUEUE_CAPACITY = 2;
+	/**
+	 * The number of scans that are processed together while streaming.
+	 */
+	int DEFAULT_STREAM_WINDOW_SIZE = 256;
+	/**
+	 * One writer per volume avoids seek thrashing on spinning disks.
+	 */
+	int DEFAULT_OUTPUT_THREADS_PER_VOLUME = 1;
+	/**
+	 * The loading is not bounded by default.
+	 */
+	int DEFAULT_HEAP_BUDGET = 0;
+	/**
+	 * Instruments usually write a file in one go, half a second without a change marks it as complete.
+	 */
+	int DEFAULT_WATCH_SETTLE_TIME = 500;
+	/**
+	 * Files are not timed out by default.
+	 */
+	int DEFAULT_FILE_TIMEOUT = 0;
+	/**
+	 * Stages are not timed out by default.
+	 */
+	int DEFAULT_STAGE_TIMEOUT = 0;
+	/**
+	 * All messages are kept by default.
+	 */
+	int DEFAULT_MESSAGE_LIMIT = 0;
+	/**
+	 * The first shard is executed by default.
+	 */
+	int DEFAULT_SHARD_INDEX = 0;
+	/**
+	 * The job is not sharded by default.
+	 */
+	int DEFAULT_SHARD_COUNT = 1;
+	/**
+	 * The claims of a stopped batch process expire after a minute by default.
+	 */
+	int DEFAULT_LEASE_TIMEOUT = 60;
+	/**
+	 * The cache holds a gigabyte of outputs by default.
+	 */
+	int DEFAULT_CACHE_SIZE = 1024;
+
+	/**
+	 * Returns the execution mode.
+	 * 
+	 * @return {@link ExecutionMode}
+	 */
+	ExecutionMode getExecutionMode();
+
+	/**
+	 * Sets the execution mode.
+	 * 
+	 * @param executionMode
+	 */
+	void setExecutionMode(ExecutionMode executionMode);
+
+	/**
+	 * Returns the number of worker threads. A value <= 0 means that
+	 * the number of available processors is used.
+	 * 
+	 * @return int
+	 */
+	int getNumberOfThreads();
+
+	/**
+	 * Sets the number of worker threads.
+	 * 
+	 * @param numberOfThreads
+	 */
+	void setNumberOfThreads(int numberOfThreads);
+
+	/**
+	 * Returns the capacity of the queues between the pipeline stages.
+	 * 
+	 * @return int
+	 */
+	int getQueueCapacity();
+
+	/**
+	 * Sets the capacity of the queues between the pipeline stages.
+	 * 
+	 * @param queueCapacity
+	 */
+	void setQueueCapacity(int queueCapacity);
+
+	/**
+	 * Returns how the process entries are applied to the scans of a file.
+	 * 
+	 * @return {@link ScanProcessingMode}
+	 */
+	ScanProcessingMode getScanProcessingMode();
+
+	/**
+	 * Sets how the process entries are applied to the scans of a file.
+	 * 
+	 * @param scanProcessingMode
+	 */
+	void setScanProcessingMode(ScanProcessingMode scanProcessingMode);
+
+	/**
+	 * Returns whether the scans shall be streamed from the input to the outputs, if the converters support it.
+	 * 
+	 * @return boolean
+	 */
+	boolean isStreaming();
+
+	/**
+	 * Sets whether the scans shall be streamed from the input to the outputs.
+	 * 
+	 * @param streaming
+	 */
+	void setStreaming(boolean streaming);
+
+	/**
+	 * Returns the number of scans that are held in memory while streaming.
+	 * 
+	 * @return int
+	 */
+	int getStreamWindowSize();
+
+	/**
+	 * Sets the number of scans that are held in memory while streaming.
+	 * 
+	 * @param streamWindowSize
+	 */
+	void setStreamWindowSize(int streamWindowSize);
+
+	/**
+	 * Returns the type of threads that execute the input entries in parallel mode.
+	 * 
+	 * @return {@link ExecutorType}
+	 */
+	ExecutorType getExecutorType();
+
+	/**
+	 * Sets the type of threads that execute the input entries in parallel mode.
+	 * 
+	 * @param executorType
+	 */
+	void setExecutorType(ExecutorType executorType);
+
+	/**
+	 * Returns whether inputs that have been processed successfully with the same job settings before shall be skipped.
+	 * 
+	 * @return boolean
+	 */
+	boolean isIncremental();
+
+	/**
+	 * Sets whether inputs that are up to date shall be skipped.
+	 * 
+	 * @param incremental
+	 */
+	void setIncremental(boolean incremental);
+
+	/**
+	 * Returns the path of the journal of completed inputs. An empty path disables the journal.
+	 * 
+	 * @return String
+	 */
+	String getJournalFile();
+
+	/**
+	 * Sets the path of the journal of completed inputs.
+	 * 
+	 * @param journalFile
+	 */
+	void setJournalFile(String journalFile);
+
+	/**
+	 * Returns whether inputs that are listed as completed in the journal shall be skipped.
+	 * An input that has been changed since it was completed is processed again.
+	 * The watch mode always skips the completed inputs.
+	 * 
+	 * @return boolean
+	 */
+	boolean isResume();
+
+	/**
+	 * Sets whether inputs that are listed as completed in the journal shall be skipped.
+	 * 
+	 * @param resume
+	 */
+	void setResume(boolean resume);
+
+	/**
+	 * Returns true if the output entries of a file are written concurrently.
+	 * 
+	 * @return boolean
+	 */
+	boolean isParallelOutput();
+
+	/**
+	 * If true, the output entries of a file are written concurrently, bounded per volume.
+	 * 
+	 * @param parallelOutput
+	 */
+	void setParallelOutput(boolean parallelOutput);
+
+	/**
+	 * Returns the number of output entries that are written concurrently to the same volume.
+	 * 
+	 * @return int
+	 */
+	int getOutputThreadsPerVolume();
+
+	/**
+	 * Sets the number of output entries that are written concurrently to the same volume.
+	 * 
+	 * @param outputThreadsPerVolume
+	 */
+	void setOutputThreadsPerVolume(int outputThreadsPerVolume);
+
+	/**
+	 * Returns the heap budget in MB for the loaded files. 0 means that the loading is not bounded.
+	 * 
+	 * @return int
+	 */
+	int getHeapBudget();
+
+	/**
+	 * Sets the heap budget in MB for the loaded files. 0 means that the loading is not bounded.
+	 * 
+	 * @param heapBudget
+	 */
+	void setHeapBudget(int heapBudget);
+
+	/**
+	 * Returns the order in which the input entries are started.
+	 * 
+	 * @return {@link SchedulingPolicy}
+	 */
+	SchedulingPolicy getSchedulingPolicy();
+
+	/**
+	 * Sets the order in which the input entries are started.
+	 * 
+	 * @param schedulingPolicy
+	 */
+	void setSchedulingPolicy(SchedulingPolicy schedulingPolicy);
+
+	/**
+	 * Returns true if the input sources are watched for new files until the batch process is canceled.
+	 * 
+	 * @return boolean
+	 */
+	boolean isWatch();
+
+	/**
+	 * If true, the input sources are watched for new files until the batch process is canceled.
+	 * 
+	 * @param watch
+	 */
+	void setWatch(boolean watch);
+
+	/**
+	 * Returns the time in milliseconds a watched file must stay unchanged before it is processed.
+	 * 
+	 * @return int
+	 */
+	int getWatchSettleTime();
+
+	/**
+	 * Sets the time in milliseconds a watched file must stay unchanged before it is processed.
+	 * 
+	 * @param watchSettleTime
+	 */
+	void setWatchSettleTime(int watchSettleTime);
+
+	/**
+	 * Returns the time in seconds after which the processing of a file is canceled.
+	 * Only the time in which a stage works on the file is counted, not the time it waits in a queue. 0 means no timeout.
+	 * 
+	 * @return int
+	 */
+	int getFileTimeout();
+
+	/**
+	 * Sets the time in seconds after which the processing of a file is canceled.
+	 * Only the time in which a stage works on the file is counted, not the time it waits in a queue. 0 means no timeout.
+	 * 
+	 * @param fileTimeout
+	 */
+	void setFileTimeout(int fileTimeout);
+
+	/**
+	 * Returns the time in seconds after which a single stage (cache, load, process, write) of a file is canceled. 0 means no timeout.
+	 * 
+	 * @return int
+	 */
+	int getStageTimeout();
+
+	/**
+	 * Sets the time in seconds after which a single stage (cache, load, process, write) of a file is canceled. 0 means no timeout.
+	 * 
+	 * @param stageTimeout
+	 */
+	void setStageTimeout(int stageTimeout);
+
+	/**
+	 * Returns the number of messages that are kept per kind of message in the result of the batch process. 0 means that all messages are kept.
+	 * 
+	 * @return int
+	 */
+	int getMessageLimit();
+
+	/**
+	 * Sets the number of messages that are kept per kind of message in the result of the batch process. 0 means that all messages are kept.
+	 * 
+	 * @param messageLimit
+	 */
+	void setMessageLimit(int messageLimit);
+
+	/**
+	 * Returns the file that receives the messages that are not kept if the messages are limited. An empty path discards them.
+	 * 
+	 * @return String
+	 */
+	String getMessageLogFile();
+
+	/**
+	 * Sets the file that receives the messages that are not kept if the messages are limited.
+	 * 
+	 * @param messageLogFile
+	 */
+	void setMessageLogFile(String messageLogFile);
+
+	/**
+	 * Returns the index of the shard that is executed, starting at 0.
+	 * 
+	 * @return int
+	 */
+	int getShardIndex();
+
+	/**
+	 * Sets the index of the shard that is executed, starting at 0.
+	 * 
+	 * @param shardIndex
+	 */
+	void setShardIndex(int shardIndex);
+
+	/**
+	 * Returns the number of shards the input entries are distributed among.
+	 * 
+	 * @return int
+	 */
+	int getShardCount();
+
+	/**
+	 * Sets the number of shards the input entries are distributed among. A job with one shard processes all input entries.
+	 * 
+	 * @param shardCount
+	 */
+	void setShardCount(int shardCount);
+
+	/**
+	 * Returns how the input entries are distributed among the shards.
+	 * 
+	 * @return {@link ShardingPolicy}
+	 */
+	ShardingPolicy getShardingPolicy();
+
+	/**
+	 * Sets how the input entries are distributed among the shards.
+	 * 
+	 * @param shardingPolicy
+	 */
+	void setShardingPolicy(ShardingPolicy shardingPolicy);
+
+	/**
+	 * Returns the shared directory through which several batch processes claim the input entries of the same job. An empty path means that all input entries are processed.
+	 * 
+	 * @return String
+	 */
+	String getWorkQueueDirectory();
+
+	/**
+	 * Sets the shared directory through which several batch processes claim the input entries of the same job. An empty path means that all input entries are processed.
+	 * 
+	 * @param workQueueDirectory
+	 */
+	void setWorkQueueDirectory(String workQueueDirectory);
+
+	/**
+	 * Returns the time in seconds after which the claim of an input entry expires, if its batch process stopped renewing it.
+	 * 
+	 * @return int
+	 */
+	int getLeaseTimeout();
+
+	/**
+	 * Sets the time in seconds after which the claim of an input entry expires, if its batch process stopped renewing it.
+	 * 
+	 * @param leaseTimeout
+	 */
+	void setLeaseTimeout(int leaseTimeout);
+
+	/**
+	 * Returns the directory in which the outputs of processed mass spectra are cached across jobs. An empty path means that no cache is used.
+	 * 
+	 * @return String
+	 */
+	String getCacheDirectory();
+
+	/**
+	 * Sets the directory in which the outputs of processed mass spectra are cached across jobs. An empty path means that no cache is used.
+	 * 
+	 * @param cacheDirectory
+	 */
+	void setCacheDirectory(String cacheDirectory);
+
+	/**
+	 * Returns the size of the cache in megabytes. The least recently used entries are removed if the cache grows beyond it.
+	 * 
+	 * @return int
+	 */
+	int getCacheSize();
+
+	/**
+	 * Sets the size of the cache in megabytes. The least recently used entries are removed if the cache grows beyond it.
+	 * 
+	 * @param cacheSize
+	 */
+	void setCacheSize(int cacheSize);
+}
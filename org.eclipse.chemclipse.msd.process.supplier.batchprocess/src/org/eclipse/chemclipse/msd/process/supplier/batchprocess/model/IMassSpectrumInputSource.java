@@ -0,0 +1,70 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Lablicate GmbH.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * Lablicate GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.chemclipse.msd.process.supplier.batchprocess.model;
+
+/**
+ * A directory whose mass spectrum files are discovered while the batch process runs.
+ * The include and exclude patterns are globs. A pattern without a "/" is matched against
+ * the file name, otherwise against the path relative to the directory.
+ * 
+ */
+public interface IMassSpectrumInputSource {
+
+	/**
+	 * Returns the path to the directory.
+	 * 
+	 * @return String
+	 */
+	String getDirectory();
+
+	/**
+	 * Returns the glob of the files to include, e.g. "*.mzML".
+	 * 
+	 * @return String
+	 */
+	String getInclude();
+
+	/**
+	 * Sets the glob of the files to include.
+	 * 
+	 * @param include
+	 */
+	void setInclude(String include);
+
+	/**
+	 * Returns the glob of the files and directories to exclude. An empty glob excludes nothing.
+	 * 
+	 * @return String
+	 */
+	String getExclude();
+
+	/**
+	 * Sets the glob of the files and directories to exclude.
+	 * 
+	 * @param exclude
+	 */
+	void setExclude(String exclude);
+
+	/**
+	 * Returns true if the sub directories are searched too.
+	 * 
+	 * @return boolean
+	 */
+	boolean isRecursive();
+
+	/**
+	 * Sets whether the sub directories are searched too.
+	 * 
+	 * @param recursive
+	 */
+	void setRecursive(boolean recursive);
+}
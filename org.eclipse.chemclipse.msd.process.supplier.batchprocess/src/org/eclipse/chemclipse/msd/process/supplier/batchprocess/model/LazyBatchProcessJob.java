@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Lablicate GmbH.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * Lablicate GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.chemclipse.msd.process.supplier.batchprocess.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+
+/**
+ * A job whose input entries are still being read while it is executed. The header, the process,
+ * output and report entries are complete, the remaining input entries are returned by
+ * {@link #getPendingMassSpectrumInputEntries()} as they are read. The job must be closed
+ * to release the job file if the pending entries haven't been consumed completely.
+ * 
+ */
+public class LazyBatchProcessJob extends BatchProcessJob implements Closeable {
+
+	private Iterator<IMassSpectrumInputEntry> pendingInputEntries = Collections.<IMassSpectrumInputEntry> emptyIterator();
+	private Closeable source;
+
+	/**
+	 * Sets the input entries that are read on demand and the source they are read from.
+	 * 
+	 * @param pendingInputEntries
+	 * @param source
+	 */
+	public void setPendingMassSpectrumInputEntries(Iterator<IMassSpectrumInputEntry> pendingInputEntries, Closeable source) {
+
+		this.pendingInputEntries = pendingInputEntries;
+		this.source = source;
+	}
+
+	@Override
+	public Iterator<IMassSpectrumInputEntry> getPendingMassSpectrumInputEntries() {
+
+		return pendingInputEntries;
+	}
+
+	@Override
+	public void close() throws IOException {
+
+		if(source != null) {
+			source.close();
+		}
+	}
+}
@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Lablicate GmbH.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * Lablicate GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.chemclipse.msd.process.supplier.batchprocess.model;
+
+/**
+ * A directory of mass spectrum input files.
+ * 
+ */
+public class MassSpectrumInputSource implements IMassSpectrumInputSource {
+
+	public static final String DEFAULT_INCLUDE = "*";
+	//
+	private String directory = "";
+	private String include = DEFAULT_INCLUDE;
+	private String exclude = "";
+	private boolean recursive = false;
+
+	/**
+	 * Set the directory of the mass spectrum input files.
+	 * 
+	 * @param directory
+	 */
+	public MassSpectrumInputSource(String directory) {
+		if(directory != null) {
+			this.directory = directory;
+		}
+	}
+
+	@Override
+	public String getDirectory() {
+
+		return directory;
+	}
+
+	@Override
+	public String getInclude() {
+
+		return include;
+	}
+
+	@Override
+	public void setInclude(String include) {
+
+		if(include != null && !include.isEmpty()) {
+			this.include = include;
+		}
+	}
+
+	@Override
+	public String getExclude() {
+
+		return exclude;
+	}
+
+	@Override
+	public void setExclude(String exclude) {
+
+		if(exclude != null) {
+			this.exclude = exclude;
+		}
+	}
+
+	@Override
+	public boolean isRecursive() {
+
+		return recursive;
+	}
+
+	@Override
+	public void setRecursive(boolean recursive) {
+
+		this.recursive = recursive;
+	}
+}
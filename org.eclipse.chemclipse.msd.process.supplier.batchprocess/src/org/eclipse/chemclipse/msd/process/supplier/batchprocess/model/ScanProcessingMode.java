@@ -0,0 +1,34 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Lablicate GmbH.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * Lablicate GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.chemclipse.msd.process.supplier.batchprocess.model;
+
+/**
+ * Defines how the process entries are applied to the scans of a file.
+ * 
+ */
+public enum ScanProcessingMode {
+	/*
+	 * One scan after the other on the calling thread.
+	 */
+	SEQUENTIAL, //
+	/*
+	 * The whole chain of process entries is applied to one scan
+	 * before the next scan is processed, which keeps the scan in cache.
+	 * The messages are ordered by scan instead of by process entry.
+	 */
+	FUSED, //
+	/*
+	 * The scans are split into chunks that are processed on all cores.
+	 * Processors that are not thread safe are applied sequentially.
+	 */
+	PARALLEL;
+}
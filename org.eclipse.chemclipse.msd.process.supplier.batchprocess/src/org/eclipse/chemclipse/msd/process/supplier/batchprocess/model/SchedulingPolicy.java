@@ -0,0 +1,29 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Lablicate GmbH.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * Lablicate GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.chemclipse.msd.process.supplier.batchprocess.model;
+
+/**
+ * Defines the order in which the input entries are started.
+ * The results are always reported in the order of the input entries.
+ * 
+ */
+public enum SchedulingPolicy {
+	/*
+	 * The order of the input entries in the job.
+	 */
+	INPUT_ORDER, //
+	/*
+	 * The input entries with the highest estimated cost are started first,
+	 * so that a large file doesn't delay the end of a parallel run.
+	 */
+	LARGEST_FIRST;
+}
@@ -0,0 +1,31 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Lablicate GmbH.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ * Lablicate GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.chemclipse.msd.process.supplier.batchprocess.model;
+
+/**
+ * Defines how the input entries of a job are distributed among the shards,
+ * when the same job is executed on several nodes. Each node selects the same
+ * subset for a given shard index without any coordination.
+ * 
+ */
+public enum ShardingPolicy {
+	/*
+	 * The input entries are distributed by a stable hash of their path.
+	 */
+	HASH, //
+	/*
+	 * The input entries are distributed by their file size, so that each shard gets
+	 * a similar amount of data. The input entries that are read or discovered while
+	 * the job runs are distributed by hash.
+	 */
+	SIZE;
+}
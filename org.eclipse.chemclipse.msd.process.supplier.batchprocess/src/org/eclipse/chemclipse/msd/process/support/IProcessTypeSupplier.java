@@ -29,4 +29,22 @@ public interface IProcessTypeSupplier {
 	List<String> getPluginIds() throws Exception;
 
 	IProcessingInfo applyProcessor(IScanMSD massSpectrum, String processorId, IProgressMonitor monitor);
+
+	/**
+	 * Returns whether the processor may be applied to several mass spectra concurrently.
+	 * 
+	 * @param processorId
+	 * @return boolean
+	 */
+	boolean isThreadSafe(String processorId);
+
+	/**
+	 * Returns a fingerprint of the settings that the processor applies, e.g. a hash of its preferences.
+	 * Cached results of the processor are only reused while the fingerprint is unchanged.
+	 * An empty fingerprint means that the settings are unknown, hence the results of the processor are not cached.
+	 * 
+	 * @param processorId
+	 * @return String
+	 */
+	String getSettingsFingerprint(String processorId);
 }
@@ -39,6 +39,15 @@ public class ProcessTypeSupport {
 		// TODO: processTypeSuppliers.add(new SpectrumFilterTypeSupplier());
 	}
 
+	/**
+	 * Uses the given suppliers instead of the registered ones, e.g. to benchmark the batch process.
+	 * 
+	 * @param processTypeSuppliers
+	 */
+	public ProcessTypeSupport(List<IProcessTypeSupplier> processTypeSuppliers) {
+		this.processTypeSuppliers = new ArrayList<IProcessTypeSupplier>(processTypeSuppliers);
+	}
+
 	/**
 	 * Returns an array of the processor names.
 	 * 
@@ -148,4 +157,36 @@ public class ProcessTypeSupport {
 		processingInfo.addErrorMessage("Process Type Support", "There was now supplier to process the chromatogram selection.");
 		return processingInfo;
 	}
+
+	/**
+	 * Returns whether the processor of the given entry may be applied to several mass spectra concurrently.
+	 * 
+	 * @param processEntry
+	 * @return boolean
+	 */
+	public boolean isThreadSafe(IMassSpectrumProcessEntry processEntry) {
+
+		for(IProcessTypeSupplier processTypeSupplier : processTypeSuppliers) {
+			if(processTypeSupplier.getCategory().equals(processEntry.getProcessCategory())) {
+				return processTypeSupplier.isThreadSafe(processEntry.getProcessorId());
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns a fingerprint of the settings that the processor of the given entry applies.
+	 * 
+	 * @param processEntry
+	 * @return String
+	 */
+	public String getSettingsFingerprint(IMassSpectrumProcessEntry processEntry) {
+
+		for(IProcessTypeSupplier processTypeSupplier : processTypeSuppliers) {
+			if(processTypeSupplier.getCategory().equals(processEntry.getProcessCategory())) {
+				return processTypeSupplier.getSettingsFingerprint(processEntry.getProcessorId());
+			}
+		}
+		return "";
+	}
 }